@@ -0,0 +1,104 @@
+package com.elearning.adaptive.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Appels entre nœuds : relais des requêtes d'une session vers son propriétaire et transfert
+ * d'état. Les appels internes sont authentifiés par un secret partagé ({@code app.cluster.secret}).
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterClient {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+    // Requête déjà relayée : traitée sur place quoi qu'en dise l'anneau (pas de boucle pendant
+    // qu'une arrivée ou un départ se propage)
+    public static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS =
+            List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT);
+
+    private final HttpClient http;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final byte[] secret;
+
+    public ClusterClient(
+            ObjectMapper objectMapper,
+            @Value("${app.cluster.secret:}") String secret,
+            @Value("${app.cluster.forward-timeout-ms:5000}") long timeoutMs
+    ) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("app.cluster.secret must be set when app.cluster.enabled is true");
+        }
+        this.objectMapper = objectMapper;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * Rejoue la requête sur le nœud {@code baseUrl} (même méthode, chemin, corps et
+     * authentification).
+     */
+    public HttpResponse<byte[]> forward(String baseUrl, HttpServletRequest request, byte[] body, String fromNode)
+            throws IOException, InterruptedException {
+        String target = baseUrl + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, fromNode)
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                builder.header(name, value);
+            }
+        }
+        return http.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Envoie un lot d'états au nœud {@code baseUrl}.
+     * @throws IOException si le nœud est injoignable ou refuse le lot
+     */
+    public void handoff(String baseUrl, HandoffPayload payload) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/internal/cluster/handoff"))
+                .timeout(timeout)
+                .header(SECRET_HEADER, new String(secret, StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)))
+                .build();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Handoff to " + baseUrl + " returned " + response.statusCode());
+        }
+    }
+
+    public boolean isAuthorized(String providedSecret) {
+        return providedSecret != null
+                && MessageDigest.isEqual(secret, providedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+}
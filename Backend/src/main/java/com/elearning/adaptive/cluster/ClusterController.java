@@ -0,0 +1,56 @@
+package com.elearning.adaptive.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * Points d'entrée entre nœuds, authentifiés par le secret partagé (pas de JWT : ils sont
+ * ouverts dans la configuration de sécurité).
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+
+    @PostMapping("/handoff")
+    public ResponseEntity<Void> handoff(
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret,
+            @RequestBody HandoffPayload payload
+    ) {
+        checkSecret(secret);
+        membership.accept(payload);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Vue de l'anneau par ce nœud (diagnostic).
+     */
+    @GetMapping("/members")
+    public Map<String, Object> members(
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret
+    ) {
+        checkSecret(secret);
+        return Map.of("nodeId", membership.nodeId(), "members", membership.members());
+    }
+
+    private void checkSecret(String secret) {
+        if (!client.isAuthorized(secret)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid cluster secret");
+        }
+    }
+}
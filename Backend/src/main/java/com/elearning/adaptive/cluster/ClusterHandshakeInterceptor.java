@@ -0,0 +1,48 @@
+package com.elearning.adaptive.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriTemplate;
+
+import java.util.Map;
+
+/**
+ * Refuse le handshake WebSocket d'une session possédée par un autre nœud : 421 (Misdirected
+ * Request) avec l'URL du propriétaire dans {@value #OWNER_HEADER}, à laquelle le client se
+ * reconnecte. Une connexion déjà ouverte reste où elle est si la propriété change ensuite ;
+ * l'état de ses événements est transféré au propriétaire par {@link ClusterMembership}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String OWNER_HEADER = "X-Session-Owner";
+
+    private static final UriTemplate PATH = new UriTemplate("/ws/sessions/{sessionId}/emotions");
+
+    private final ClusterMembership membership;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String ownerUrl = membership.ownerUrl(PATH.match(request.getURI().getPath()).get("sessionId"));
+        if (ownerUrl == null) {
+            return true;
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(421));
+        response.getHeaders().set(OWNER_HEADER, ownerUrl);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
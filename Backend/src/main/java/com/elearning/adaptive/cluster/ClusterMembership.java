@@ -0,0 +1,292 @@
+package com.elearning.adaptive.cluster;
+
+import com.elearning.adaptive.repository.ClusterNodeRepository;
+import com.elearning.adaptive.service.SessionStateHolder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appartenance au cluster et propriété des sessions.
+ * <p>
+ * Chaque nœud renouvelle son battement dans {@code cluster_nodes} toutes les
+ * {@code heartbeat-ms}, sur un thread dédié (un job planifié long ne doit pas retarder le
+ * battement au-delà de {@code node-ttl-ms} et sortir le nœud de l'anneau), et relit la liste des nœuds vivants : l'anneau ({@link HashRing}) est
+ * recalculé localement quand elle change, sans autre coordination que la base déjà partagée.
+ * À chaque tour, l'état en mémoire des sessions qui ne sont plus locales (arrivée d'un nœud,
+ * événements reçus pendant la propagation) est transféré à leur propriétaire ; s'il est
+ * injoignable, l'état est gardé et renvoyé au tour suivant.
+ * <p>
+ * À l'arrêt, le nœud se retire du registre et transfère tout son état avant la fermeture du
+ * serveur web : un départ ordonné ne perd pas les fenêtres en mémoire. Un nœud arrêté
+ * brutalement sort de l'anneau après {@code node-ttl-ms} ; ses sessions repartent alors de la
+ * base (repli des stats) sur leur nouveau propriétaire.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterMembership implements SmartLifecycle {
+
+    private final ClusterNodeRepository nodes;
+    private final List<SessionStateHolder<?>> holders;
+    private final ClusterClient client;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final String selfUrl;
+    private final int virtualNodes;
+    private final long nodeTtlMillis;
+    private final long heartbeatMillis;
+    private final int handoffBatchSize;
+    private final Counter ringChanges;
+    private final Counter sessionsSent;
+    private final Counter sessionsReceived;
+    private final Counter handoffFailures;
+
+    // Anneau et URLs des nœuds, remplacés ensemble ; null avant le démarrage (tout est local)
+    private volatile View view;
+    private volatile boolean running;
+    private ScheduledExecutorService heartbeat;
+
+    private record View(HashRing ring, Map<String, String> urls) {
+    }
+
+    public ClusterMembership(
+            ClusterNodeRepository nodes,
+            List<SessionStateHolder<?>> holders,
+            ClusterClient client,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.cluster.node-id}") String nodeId,
+            @Value("${app.cluster.self-url}") String selfUrl,
+            @Value("${app.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${app.cluster.node-ttl-ms:5000}") long nodeTtlMillis,
+            @Value("${app.cluster.heartbeat-ms:1000}") long heartbeatMillis,
+            @Value("${app.cluster.handoff-batch-size:500}") int handoffBatchSize
+    ) {
+        this.nodes = nodes;
+        this.holders = holders;
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId;
+        this.selfUrl = selfUrl.endsWith("/") ? selfUrl.substring(0, selfUrl.length() - 1) : selfUrl;
+        this.virtualNodes = virtualNodes;
+        this.nodeTtlMillis = nodeTtlMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.handoffBatchSize = handoffBatchSize;
+        this.ringChanges = Counter.builder("cluster.ring.changes")
+                .description("Recalculs de l'anneau (arrivée ou départ d'un nœud)")
+                .register(meterRegistry);
+        this.sessionsSent = handoffCounter(meterRegistry, "sent");
+        this.sessionsReceived = handoffCounter(meterRegistry, "received");
+        this.handoffFailures = Counter.builder("cluster.handoff.failures")
+                .description("Lots d'état non transférés (propriétaire injoignable), renvoyés au tour suivant")
+                .register(meterRegistry);
+        Gauge.builder("cluster.nodes", this, m -> m.view == null ? 0 : m.view.urls().size())
+                .description("Nœuds vivants dans l'anneau")
+                .register(meterRegistry);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocal(String sessionId) {
+        View current = view;
+        return current == null || nodeId.equals(current.ring().ownerOf(sessionId));
+    }
+
+    /**
+     * URL du nœud propriétaire de la session, ou null si elle est locale.
+     */
+    public String ownerUrl(String sessionId) {
+        View current = view;
+        if (current == null) {
+            return null;
+        }
+        String owner = current.ring().ownerOf(sessionId);
+        return nodeId.equals(owner) ? null : current.urls().get(owner);
+    }
+
+    public Map<String, String> members() {
+        View current = view;
+        return current == null ? Map.of(nodeId, selfUrl) : current.urls();
+    }
+
+    @Override
+    public void start() {
+        nodes.heartbeat(nodeId, selfUrl);
+        refresh(true);
+        running = true;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // Une exception sortie du tour annulerait les battements suivants
+                log.warn("Cluster tick failed", e);
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        log.info("Node {} joined the cluster at {} ({} node(s))", nodeId, selfUrl, members().size());
+    }
+
+    /**
+     * Phase par défaut : arrêté avant le serveur web, qui relaie encore les requêtes
+     * pendant le transfert.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        heartbeat.shutdown();
+        try {
+            // Un tour en cours termine son transfert avant le départ
+            heartbeat.awaitTermination(nodeTtlMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            nodes.remove(nodeId);
+            refresh(false);
+        } catch (DataAccessException e) {
+            log.warn("Could not leave the cluster registry; peers will drop node {} after its TTL", nodeId, e);
+        }
+        handOffMisplaced();
+        log.info("Node {} left the cluster", nodeId);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void tick() {
+        if (!running) {
+            return;
+        }
+        try {
+            nodes.heartbeat(nodeId, selfUrl);
+            refresh(true);
+        } catch (DataAccessException e) {
+            // Anneau inchangé : on continue avec la dernière vue connue
+            log.warn("Cluster heartbeat failed", e);
+        }
+        handOffMisplaced();
+    }
+
+    /**
+     * Reçoit un lot d'états ; la vue est relue d'abord, l'expéditeur ayant pu quitter le cluster
+     * juste avant l'envoi.
+     */
+    public void accept(HandoffPayload payload) {
+        if (running) {
+            try {
+                refresh(true);
+            } catch (DataAccessException e) {
+                log.warn("Could not refresh the cluster view before a handoff", e);
+            }
+        }
+        SessionStateHolder<?> holder = holders.stream()
+                .filter(h -> h.stateName().equals(payload.state()))
+                .findFirst().orElse(null);
+        if (holder == null) {
+            log.warn("Ignoring handoff of unknown state {} from {}", payload.state(), payload.fromNode());
+            return;
+        }
+        payload.sessions().forEach((sessionId, snapshot) -> restore(holder, sessionId, snapshot));
+        sessionsReceived.increment(payload.sessions().size());
+        log.debug("Received {} {} state(s) from {}", payload.sessions().size(), payload.state(), payload.fromNode());
+    }
+
+    private synchronized void refresh(boolean includeSelf) {
+        Map<String, String> live = new TreeMap<>(nodes.findLive(nodeTtlMillis));
+        if (includeSelf) {
+            live.put(nodeId, selfUrl);
+        } else {
+            live.remove(nodeId);
+        }
+        View current = view;
+        if (live.isEmpty() || current != null && current.urls().equals(live)) {
+            return;
+        }
+        if (current != null && current.ring().nodes().equals(live.keySet())) {
+            view = new View(current.ring(), Map.copyOf(live)); // URL changée, même anneau
+            return;
+        }
+        view = new View(new HashRing(live.keySet(), virtualNodes), Map.copyOf(live));
+        holders.forEach(h -> h.ownershipChanged(this::isLocal));
+        ringChanges.increment();
+        log.info("Cluster ring is now {}", live.keySet());
+    }
+
+    private void handOffMisplaced() {
+        View current = view;
+        if (current == null) {
+            return;
+        }
+        for (SessionStateHolder<?> holder : holders) {
+            Map<String, ? extends Object> exported = holder.export(id -> !isLocal(id));
+            if (exported.isEmpty()) {
+                continue;
+            }
+            Map<String, List<Map.Entry<String, ?>>> byOwner = new HashMap<>();
+            exported.forEach((id, snapshot) -> byOwner
+                    .computeIfAbsent(current.ring().ownerOf(id), o -> new ArrayList<>())
+                    .add(Map.entry(id, snapshot)));
+            byOwner.forEach((owner, entries) -> {
+                for (int from = 0; from < entries.size(); from += handoffBatchSize) {
+                    Map<String, Object> batch = new HashMap<>();
+                    entries.subList(from, Math.min(entries.size(), from + handoffBatchSize))
+                            .forEach(e -> batch.put(e.getKey(), e.getValue()));
+                    send(holder, owner, current.urls().get(owner), batch);
+                }
+            });
+        }
+    }
+
+    private void send(SessionStateHolder<?> holder, String owner, String url, Map<String, Object> batch) {
+        try {
+            client.handoff(url, new HandoffPayload(nodeId, holder.stateName(), batch));
+            sessionsSent.increment(batch.size());
+            return;
+        } catch (IOException e) {
+            log.warn("Handoff of {} {} state(s) to {} failed: {}", batch.size(), holder.stateName(), owner, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        handoffFailures.increment();
+        batch.forEach((id, snapshot) -> restore(holder, id, snapshot));
+    }
+
+    // Snapshot typé (renvoi local) ou désérialisé en Map (réception) : convertValue rend le
+    // premier tel quel
+    private <S> void restore(SessionStateHolder<S> holder, String sessionId, Object snapshot) {
+        holder.restore(sessionId, objectMapper.convertValue(snapshot, holder.snapshotType()));
+    }
+
+    private static Counter handoffCounter(MeterRegistry registry, String direction) {
+        return Counter.builder("cluster.handoff.sessions")
+                .description("États de session transférés entre nœuds")
+                .tag("direction", direction)
+                .register(registry);
+    }
+}
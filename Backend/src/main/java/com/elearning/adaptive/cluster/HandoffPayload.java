@@ -0,0 +1,10 @@
+package com.elearning.adaptive.cluster;
+
+import java.util.Map;
+
+/**
+ * Lot d'états transférés d'un nœud à l'autre : sessions d'un même composant
+ * ({@link com.elearning.adaptive.service.SessionStateHolder#stateName()}).
+ */
+public record HandoffPayload(String fromNode, String state, Map<String, Object> sessions) {
+}
@@ -0,0 +1,74 @@
+package com.elearning.adaptive.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Anneau de hachage cohérent, immuable : chaque nœud y place {@code virtualNodes} jetons et une
+ * clé appartient au premier jeton rencontré à partir de son hash. L'arrivée ou le départ d'un
+ * nœud ne déplace que les clés des arcs qu'il gagne ou perd (environ 1/n des sessions).
+ * <p>
+ * Le résultat ne dépend que de l'ensemble des nœuds : tous les membres calculent le même anneau
+ * sans se concerter.
+ */
+public final class HashRing {
+
+    private final long[] tokens;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = Set.copyOf(nodeIds);
+        record Token(long hash, String node) {
+        }
+        Token[] all = nodes.stream()
+                .flatMap(node -> IntStream.range(0, virtualNodes)
+                        .mapToObj(i -> new Token(hash(node + "#" + i), node)))
+                // Égalité de hash (improbable) : départagée par le nom, identique sur tous les nœuds
+                .sorted(Comparator.comparingLong(Token::hash).thenComparing(Token::node))
+                .toArray(Token[]::new);
+        this.tokens = new long[all.length];
+        this.owners = new String[all.length];
+        for (int i = 0; i < all.length; i++) {
+            tokens[i] = all[i].hash();
+            owners[i] = all[i].node();
+        }
+    }
+
+    public String ownerOf(String key) {
+        int i = Arrays.binarySearch(tokens, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == tokens.length ? 0 : i];
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * FNV-1a 64 bits suivi du mélange final de MurmurHash3 : stable d'une JVM à l'autre
+     * (contrairement à {@link String#hashCode()}, trop peu dispersé pour des identifiants proches).
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,204 @@
+package com.elearning.adaptive.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Envoie les requêtes d'une session au nœud qui la possède, avant toute authentification
+ * (le propriétaire s'en charge) :
+ * <ul>
+ *   <li>{@code forward} : la requête est relayée et la réponse recopiée (le client ne voit
+ *       qu'un nœud, derrière n'importe quel répartiteur) ;</li>
+ *   <li>{@code redirect} : 307 vers le propriétaire, pour un répartiteur ou un client qui
+ *       suit les redirections (la méthode et le corps sont conservés).</li>
+ * </ul>
+ * Une requête déjà relayée, ou dont le propriétaire refuse la connexion, est traitée sur place :
+ * l'état des événements ainsi reçus rejoint le propriétaire au tour suivant de
+ * {@link ClusterMembership}. Un échec après l'envoi (délai de réponse, connexion coupée) répond
+ * 503 : le propriétaire a pu traiter la requête, la rejouer ici la compterait deux fois.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class SessionRoutingFilter extends OncePerRequestFilter {
+
+    public static final String NODE_HEADER = "X-Cluster-Node";
+
+    private static final Pattern SESSION_PATH =
+            Pattern.compile("^/api/sessions/([^/]+)/(emotion|emotions|stats|end)$");
+    private static final List<String> COPIED_RESPONSE_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.RETRY_AFTER, NODE_HEADER);
+
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+    private final boolean redirect;
+    private final Counter local;
+    private final Counter forwarded;
+    private final Counter redirected;
+    private final Counter forwardFailed;
+
+    public SessionRoutingFilter(
+            ClusterMembership membership,
+            ClusterClient client,
+            MeterRegistry meterRegistry,
+            @Value("${app.cluster.routing:forward}") String routing
+    ) {
+        this.membership = membership;
+        this.client = client;
+        this.redirect = "redirect".equalsIgnoreCase(routing);
+        this.local = routedCounter(meterRegistry, "local");
+        this.forwarded = routedCounter(meterRegistry, "forwarded");
+        this.redirected = routedCounter(meterRegistry, "redirected");
+        this.forwardFailed = routedCounter(meterRegistry, "forward_failed");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/sessions/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher matcher = SESSION_PATH.matcher(request.getRequestURI());
+        String ownerUrl = matcher.matches() && request.getHeader(ClusterClient.FORWARDED_HEADER) == null
+                ? membership.ownerUrl(matcher.group(1))
+                : null;
+        response.setHeader(NODE_HEADER, membership.nodeId());
+        if (ownerUrl == null) {
+            local.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (redirect) {
+            redirected.increment();
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, ownerUrl + request.getRequestURI()
+                    + (request.getQueryString() != null ? "?" + request.getQueryString() : ""));
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpResponse<byte[]> relayed;
+        try {
+            relayed = client.forward(ownerUrl, request, body, membership.nodeId());
+        } catch (ConnectException | HttpConnectTimeoutException e) {
+            forwardFailed.increment();
+            log.debug("Owner {} unreachable, handling {} locally: {}", ownerUrl, request.getRequestURI(), e.toString());
+            chain.doFilter(new CachedBodyRequest(request, body), response);
+            return;
+        } catch (IOException e) {
+            forwardFailed.increment();
+            log.debug("Forwarding {} to {} failed after sending: {}", request.getRequestURI(), ownerUrl, e.toString());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        forwarded.increment();
+        response.setStatus(relayed.statusCode());
+        for (String name : COPIED_RESPONSE_HEADERS) {
+            relayed.headers().firstValue(name).ifPresent(value -> response.setHeader(name, value));
+        }
+        response.setContentLength(relayed.body().length);
+        response.getOutputStream().write(relayed.body());
+    }
+
+    private static Counter routedCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("cluster.requests")
+                .description("Requêtes de session selon leur acheminement")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Requête dont le corps, déjà lu pour le relais, est rejoué depuis la mémoire.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Corps déjà en mémoire : tout est disponible dès l'enregistrement
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
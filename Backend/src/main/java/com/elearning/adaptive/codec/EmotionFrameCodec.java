@@ -0,0 +1,217 @@
+package com.elearning.adaptive.codec;
+
+import com.elearning.adaptive.dto.EmotionEventDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodage binaire compact d'un lot d'événements émotionnels
+ * (type de contenu {@value #MEDIA_TYPE}), alternative au JSON pour l'ingestion.
+ * <pre>
+ * en-tête    : 'E' 'F' | version u8 | nombre d'événements varint | base int64 (epoch ms)
+ * événement  : delta varint zigzag (ms depuis l'événement précédent, ou la base)
+ *              score float32
+ *              flags u8 (bit0 faceDetected, bit1 emotions, bit2 bbox, bit3 meta, bit4 seq)
+ *              [emotions] u8 n + n × float32
+ *              [bbox]     4 × float32 (x, y, w, h)
+ *              [meta]     varint longueur + UTF-8 (clés non typées de metaJson)
+ *              [seq]      delta varint zigzag (depuis le seq précédent du lot, ou 0)
+ * </pre>
+ * Entiers et flottants en big-endian. L'ID de session n'est pas transporté : il vient de l'URL.
+ * Le décodage ne crée ni chaîne de date ni texte JSON pour le vecteur et la boîte.
+ */
+public final class EmotionFrameCodec {
+
+    public static final String MEDIA_TYPE = "application/x-emotion-frames";
+
+    private static final byte MAGIC_0 = 'E';
+    private static final byte MAGIC_1 = 'F';
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_FACE = 1;
+    private static final int FLAG_EMOTIONS = 1 << 1;
+    private static final int FLAG_BBOX = 1 << 2;
+    private static final int FLAG_META = 1 << 3;
+    private static final int FLAG_SEQ = 1 << 4;
+
+    private static final int MAX_EVENTS = 100_000;
+
+    private EmotionFrameCodec() {
+    }
+
+    public static byte[] encode(List<EmotionEventDTO> events) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + events.size() * 24);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarint(out, events.size());
+
+        long previous = events.isEmpty() ? 0L : epochMillis(events.get(0));
+        writeLong(out, previous);
+        long previousSeq = 0;
+
+        for (EmotionEventDTO ev : events) {
+            long millis = epochMillis(ev);
+            writeVarint(out, zigzag(millis - previous));
+            previous = millis;
+            writeInt(out, Float.floatToIntBits((float) ev.frustrationScore()));
+
+            float[] emotions = ev.emotions();
+            float[] bbox = ev.bbox();
+            String meta = ev.metaJson();
+            if (emotions == null && bbox == null) {
+                EmotionMetaJson.Parts parts = EmotionMetaJson.split(meta);
+                emotions = parts.emotions();
+                bbox = parts.bbox();
+                meta = parts.extraJson();
+            }
+
+            int flags = (ev.faceDetected() ? FLAG_FACE : 0)
+                    | (emotions != null ? FLAG_EMOTIONS : 0)
+                    | (bbox != null ? FLAG_BBOX : 0)
+                    | (meta != null ? FLAG_META : 0)
+                    | (ev.seq() != null ? FLAG_SEQ : 0);
+            out.write(flags);
+            if (emotions != null) {
+                if (emotions.length > 255) {
+                    throw new IllegalArgumentException("Emotion vector too long: " + emotions.length);
+                }
+                out.write(emotions.length);
+                for (float v : emotions) {
+                    writeInt(out, Float.floatToIntBits(v));
+                }
+            }
+            if (bbox != null) {
+                if (bbox.length != 4) {
+                    throw new IllegalArgumentException("Bounding box must have 4 values");
+                }
+                for (float v : bbox) {
+                    writeInt(out, Float.floatToIntBits(v));
+                }
+            }
+            if (meta != null) {
+                byte[] utf8 = meta.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, utf8.length);
+                out.write(utf8, 0, utf8.length);
+            }
+            if (ev.seq() != null) {
+                writeVarint(out, zigzag(ev.seq() - previousSeq));
+                previousSeq = ev.seq();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException si le contenu n'est pas un lot valide.
+     */
+    public static List<EmotionEventDTO> decode(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        try {
+            if (in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+                throw new IllegalArgumentException("Not an emotion frame batch");
+            }
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported frame version " + version);
+            }
+            int count = (int) readVarint(in);
+            if (count < 0 || count > MAX_EVENTS) {
+                throw new IllegalArgumentException("Invalid event count " + count);
+            }
+            long millis = in.getLong();
+            long seq = 0;
+
+            List<EmotionEventDTO> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                millis += unzigzag(readVarint(in));
+                double score = in.getFloat();
+                int flags = in.get() & 0xFF;
+
+                float[] emotions = null;
+                if ((flags & FLAG_EMOTIONS) != 0) {
+                    emotions = new float[in.get() & 0xFF];
+                    for (int j = 0; j < emotions.length; j++) {
+                        emotions[j] = in.getFloat();
+                    }
+                }
+                float[] bbox = null;
+                if ((flags & FLAG_BBOX) != 0) {
+                    bbox = new float[]{in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat()};
+                }
+                String meta = null;
+                if ((flags & FLAG_META) != 0) {
+                    int length = (int) readVarint(in);
+                    if (length < 0 || length > in.remaining()) {
+                        throw new IllegalArgumentException("Invalid meta length " + length);
+                    }
+                    meta = new String(body, in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                }
+                Long eventSeq = null;
+                if ((flags & FLAG_SEQ) != 0) {
+                    seq += unzigzag(readVarint(in));
+                    eventSeq = seq;
+                }
+                events.add(new EmotionEventDTO(null, null, score, (flags & FLAG_FACE) != 0, meta,
+                        millis, emotions, bbox, eventSeq));
+            }
+            return events;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated emotion frame batch", e);
+        }
+    }
+
+    private static long epochMillis(EmotionEventDTO ev) {
+        if (ev.timestampMillis() != null) {
+            return ev.timestampMillis();
+        }
+        return OffsetDateTime.parse(ev.timestamp()).toInstant().toEpochMilli();
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        writeInt(out, (int) (v >>> 32));
+        writeInt(out, (int) v);
+    }
+}
@@ -0,0 +1,132 @@
+package com.elearning.adaptive.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Lecture / écriture des clés connues de {@code metaJson} :
+ * <pre>
+ * {"emotions": [0.1, 0.7, ...], "bbox": [x, y, w, h], ...autres clés libres}
+ * </pre>
+ * {@code bbox} est aussi accepté sous la forme {@code {"x":..,"y":..,"w":..,"h":..}}.
+ */
+public final class EmotionMetaJson {
+
+    public static final String EMOTIONS = "emotions";
+    public static final String BBOX = "bbox";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] BBOX_KEYS = {"x", "y", "w", "h"};
+
+    private EmotionMetaJson() {
+    }
+
+    /**
+     * Métadonnées séparées en champs typés et reste libre.
+     * @param extraJson objet JSON des clés non reconnues, ou null s'il n'y en a pas.
+     */
+    public record Parts(float[] emotions, float[] bbox, String extraJson) {
+    }
+
+    /**
+     * Extrait les clés connues ; un texte qui n'est pas un objet JSON est conservé tel quel.
+     */
+    public static Parts split(String metaJson) {
+        if (metaJson == null || metaJson.isBlank()) {
+            return new Parts(null, null, null);
+        }
+        // Évite l'analyse JSON quand aucune clé connue n'est présente (cas du format binaire)
+        if (!metaJson.contains("\"" + EMOTIONS + "\"") && !metaJson.contains("\"" + BBOX + "\"")) {
+            return new Parts(null, null, metaJson);
+        }
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(metaJson);
+        } catch (JsonProcessingException e) {
+            return new Parts(null, null, metaJson);
+        }
+        if (!(root instanceof ObjectNode node)) {
+            return new Parts(null, null, metaJson);
+        }
+
+        float[] emotions = toFloats(node.get(EMOTIONS), -1);
+        if (emotions != null) {
+            node.remove(EMOTIONS);
+        }
+        float[] bbox = toBbox(node.get(BBOX));
+        if (bbox != null) {
+            node.remove(BBOX);
+        }
+        if (emotions == null && bbox == null) {
+            return new Parts(null, null, metaJson);
+        }
+        return new Parts(emotions, bbox, node.isEmpty() ? null : node.toString());
+    }
+
+    /**
+     * Reconstitue {@code metaJson} à partir des champs typés et du reste libre.
+     */
+    public static String merge(float[] emotions, float[] bbox, String extraJson) {
+        if (emotions == null && bbox == null) {
+            return extraJson;
+        }
+        ObjectNode node = MAPPER.createObjectNode();
+        if (extraJson != null) {
+            try {
+                if (MAPPER.readTree(extraJson) instanceof ObjectNode extra) {
+                    node = extra;
+                }
+            } catch (JsonProcessingException e) {
+                // texte libre non JSON : conservé sous une clé dédiée plutôt que perdu
+                node.put("raw", extraJson);
+            }
+        }
+        if (emotions != null) {
+            ArrayNode array = node.putArray(EMOTIONS);
+            for (float v : emotions) {
+                array.add(v);
+            }
+        }
+        if (bbox != null) {
+            ArrayNode array = node.putArray(BBOX);
+            for (float v : bbox) {
+                array.add(v);
+            }
+        }
+        return node.toString();
+    }
+
+    private static float[] toBbox(JsonNode node) {
+        if (node != null && node.isObject()) {
+            float[] box = new float[BBOX_KEYS.length];
+            for (int i = 0; i < BBOX_KEYS.length; i++) {
+                JsonNode v = node.get(BBOX_KEYS[i]);
+                if (v == null || !v.isNumber()) {
+                    return null;
+                }
+                box[i] = v.floatValue();
+            }
+            return box;
+        }
+        return toFloats(node, BBOX_KEYS.length);
+    }
+
+    private static float[] toFloats(JsonNode node, int expectedLength) {
+        if (node == null || !node.isArray() || node.isEmpty()
+                || (expectedLength > 0 && node.size() != expectedLength)) {
+            return null;
+        }
+        float[] values = new float[node.size()];
+        for (int i = 0; i < values.length; i++) {
+            JsonNode v = node.get(i);
+            if (!v.isNumber()) {
+                return null;
+            }
+            values[i] = v.floatValue();
+        }
+        return values;
+    }
+}
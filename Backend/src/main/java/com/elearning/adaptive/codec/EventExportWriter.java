@@ -0,0 +1,175 @@
+package com.elearning.adaptive.codec;
+
+import com.elearning.adaptive.dto.ExportedEvent;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture en flux des lignes d'export, une ligne par événement.
+ * <ul>
+ *   <li>NDJSON ({@value #NDJSON}) : un objet JSON par ligne ;</li>
+ *   <li>CSV ({@value #CSV}) : en-tête puis une ligne par événement, vecteur d'émotions
+ *       sur {@link EmotionEvent#EMOTION_VECTOR_LENGTH} colonnes {@code emotion_0..n}.</li>
+ * </ul>
+ * Les erreurs d'écriture (client déconnecté) sont levées en {@link UncheckedIOException}
+ * pour interrompre le parcours du curseur.
+ */
+public abstract class EventExportWriter implements Closeable {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public abstract void write(ExportedEvent event);
+
+    public static EventExportWriter create(String mediaType, OutputStream out) throws IOException {
+        return CSV.equals(mediaType) ? new Csv(out) : new NdJson(out);
+    }
+
+    private static final class NdJson extends EventExportWriter {
+
+        private final JsonGenerator json;
+        private boolean empty = true;
+
+        NdJson(OutputStream out) throws IOException {
+            json = JSON.createGenerator(out, JsonEncoding.UTF8);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void write(ExportedEvent e) {
+            try {
+                json.writeStartObject();
+                json.writeNumberField("id", e.id());
+                json.writeStringField("sessionId", e.sessionId());
+                json.writeStringField("timestamp", e.timestamp().toString());
+                json.writeNumberField("frustrationScore", e.frustrationScore());
+                json.writeBooleanField("faceDetected", e.faceDetected());
+                if (e.repeatCount() > 1) {
+                    json.writeNumberField("repeatCount", e.repeatCount());
+                }
+                if (e.emotionVector() != null) {
+                    json.writeFieldName("emotions");
+                    json.writeStartArray();
+                    for (float v : e.emotionVector()) {
+                        json.writeNumber(v);
+                    }
+                    json.writeEndArray();
+                }
+                if (e.bboxX() != null) {
+                    json.writeFieldName("bbox");
+                    json.writeStartArray();
+                    json.writeNumber(e.bboxX());
+                    json.writeNumber(e.bboxY());
+                    json.writeNumber(e.bboxW());
+                    json.writeNumber(e.bboxH());
+                    json.writeEndArray();
+                }
+                if (e.metaJson() != null) {
+                    json.writeStringField("metaJson", e.metaJson());
+                }
+                json.writeEndObject();
+                empty = false;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!empty) {
+                json.writeRaw('\n');
+            }
+            // Vide le tampon sans fermer le flux de la réponse
+            json.close();
+        }
+    }
+
+    private static final class Csv extends EventExportWriter {
+
+        private final Writer out;
+
+        Csv(OutputStream stream) throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 16 * 1024);
+            out.write("id,session_id,timestamp,frustration_score,face_detected");
+            for (int i = 0; i < EmotionEvent.EMOTION_VECTOR_LENGTH; i++) {
+                out.write(",emotion_" + i);
+            }
+            // repeat_count en dernier : les colonnes existantes gardent leur position
+            out.write(",bbox_x,bbox_y,bbox_w,bbox_h,meta_json,repeat_count\n");
+        }
+
+        @Override
+        public void write(ExportedEvent e) {
+            try {
+                out.write(Long.toString(e.id()));
+                out.write(',');
+                writeText(e.sessionId());
+                out.write(',');
+                out.write(e.timestamp().toString());
+                out.write(',');
+                out.write(Double.toString(e.frustrationScore()));
+                out.write(',');
+                out.write(e.faceDetected() ? "true" : "false");
+                float[] vector = e.emotionVector();
+                for (int i = 0; i < EmotionEvent.EMOTION_VECTOR_LENGTH; i++) {
+                    out.write(',');
+                    if (vector != null && i < vector.length) {
+                        out.write(Float.toString(vector[i]));
+                    }
+                }
+                writeNumber(e.bboxX());
+                writeNumber(e.bboxY());
+                writeNumber(e.bboxW());
+                writeNumber(e.bboxH());
+                out.write(',');
+                if (e.metaJson() != null) {
+                    writeText(e.metaJson());
+                }
+                out.write(',');
+                out.write(Integer.toString(e.repeatCount()));
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void writeNumber(Float value) throws IOException {
+            out.write(',');
+            if (value != null) {
+                out.write(Float.toString(value));
+            }
+        }
+
+        // RFC 4180 : guillemets si le texte contient un séparateur, un guillemet ou un saut de ligne
+        private void writeText(String text) throws IOException {
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                out.write(text);
+                return;
+            }
+            out.write('"');
+            out.write(text.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Vide le tampon sans fermer le flux de la réponse
+            out.flush();
+        }
+    }
+}
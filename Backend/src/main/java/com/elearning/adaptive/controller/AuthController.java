@@ -1,56 +1,118 @@
 package com.elearning.adaptive.controller;
 
+import com.elearning.adaptive.dto.AuthTokensDTO;
 import com.elearning.adaptive.dto.LoginDTO;
+import com.elearning.adaptive.dto.RefreshTokenDTO;
 import com.elearning.adaptive.dto.RegisterDTO;
 import com.elearning.adaptive.entity.Role;
 import com.elearning.adaptive.entity.User;
 import com.elearning.adaptive.repository.UserRepository;
-import com.elearning.adaptive.security.JwtUtil;
-import lombok.RequiredArgsConstructor;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import com.elearning.adaptive.security.PasswordHasher;
+import com.elearning.adaptive.service.RefreshTokenService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/auth")
-@RequiredArgsConstructor
 public class AuthController {
 
     private final UserRepository userRepo;
-    private final PasswordEncoder passwordEncoder;
-    private final JwtUtil jwtUtil;
+    private final PasswordHasher passwordHasher;
+    private final RefreshTokenService refreshTokens;
+    // Suite du traitement après BCrypt (accès base) : hors du pool de hachage, qui ne doit que hacher
+    private final Executor continuations;
 
+    public AuthController(UserRepository userRepo, PasswordHasher passwordHasher, RefreshTokenService refreshTokens,
+                          @Qualifier("applicationTaskExecutor") Executor continuations) {
+        this.userRepo = userRepo;
+        this.passwordHasher = passwordHasher;
+        this.refreshTokens = refreshTokens;
+        this.continuations = continuations;
+    }
+
+    /**
+     * Deux inscriptions simultanées peuvent passer la vérification : la contrainte d'unicité
+     * tranche et le perdant reçoit la même réponse.
+     */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterDTO dto) {
+    public CompletableFuture<ResponseEntity<Void>> register(@RequestBody RegisterDTO dto) {
         if (userRepo.findByEmail(dto.getEmail()).isPresent()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already exists");
+            throw emailExists();
         }
 
-        User user = User.builder()
-                .email(dto.getEmail())
-                .fullName(dto.getFullName())
-                .passwordHash(passwordEncoder.encode(dto.getPassword()))
-                .role(Role.STUDENT)
-                .build();
+        return passwordHasher.encode(dto.getPassword()).thenApplyAsync(hash -> {
+            User user = User.builder()
+                    .email(dto.getEmail())
+                    .fullName(dto.getFullName())
+                    .passwordHash(hash)
+                    .role(Role.STUDENT)
+                    .build();
 
-        userRepo.save(user);
-        return ResponseEntity.status(HttpStatus.CREATED).build();
+            try {
+                userRepo.save(user);
+            } catch (DataIntegrityViolationException e) {
+                throw emailExists();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).<Void>build();
+        }, continuations);
     }
 
+    /**
+     * Vérification BCrypt sur le pool dédié ; le thread HTTP est libéré pendant le calcul et
+     * l'émission des tokens (accès base) se fait ensuite sur l'exécuteur applicatif.
+     */
     @PostMapping("/login")
-    public Map<String, String> login(@RequestBody LoginDTO dto) {
+    public CompletableFuture<AuthTokensDTO> login(@RequestBody LoginDTO dto) {
         User user = userRepo.findByEmail(dto.getEmail())
+                .filter(User::isActive)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials"));
 
-        if (!passwordEncoder.matches(dto.getPassword(), user.getPasswordHash())) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
-        }
+        return passwordHasher.matches(dto.getPassword(), user.getPasswordHash()).thenApplyAsync(matches -> {
+            if (!matches) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
+            }
+            return refreshTokens.issue(user);
+        }, continuations);
+    }
+
+    /**
+     * Nouvel access token sans mot de passe ; le refresh token présenté est remplacé.
+     */
+    @PostMapping("/refresh")
+    public AuthTokensDTO refresh(@RequestBody RefreshTokenDTO dto) {
+        return refreshTokens.refresh(dto.refreshToken());
+    }
+
+    /**
+     * Déconnexion de l'appareil courant (famille du refresh token).
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenDTO dto) {
+        refreshTokens.revoke(dto.refreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Révoque tous les refresh tokens de l'utilisateur authentifié (tous appareils).
+     * Les access tokens déjà émis restent valides jusqu'à leur expiration.
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutAll() {
+        AuthenticatedUser user = AuthenticatedUser.current()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        refreshTokens.revokeAll(user.id());
+        return ResponseEntity.noContent().build();
+    }
 
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
-        return Map.of("token", token);
+    private static ResponseStatusException emailExists() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already exists");
     }
 }
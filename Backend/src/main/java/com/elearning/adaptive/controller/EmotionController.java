@@ -1,14 +1,20 @@
 package com.elearning.adaptive.controller;
 
+import com.elearning.adaptive.codec.EmotionFrameCodec;
+import com.elearning.adaptive.dto.BatchIngestResult;
 import com.elearning.adaptive.dto.EmotionEventDTO;
 import com.elearning.adaptive.entity.EmotionEvent;
 import com.elearning.adaptive.service.EmotionService;
+import com.elearning.adaptive.service.SamplingAdvisor;
 import com.elearning.adaptive.dto.SessionStats;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,6 +23,7 @@ import java.util.Map;
 public class EmotionController {
 
     private final EmotionService emotionService;
+    private final SamplingAdvisor samplingAdvisor;
 
     /**
      * Ingestion d'un événement émotionnel pour une session spécifique.
@@ -27,16 +34,88 @@ public class EmotionController {
             @RequestBody EmotionEventDTO body
     ) {
         // Assurer que sessionId de l'URL correspond à celui du body
-        EmotionEventDTO dto = new EmotionEventDTO(
-                sessionId,
-                body.timestamp(),
-                body.frustrationScore(),
-                body.faceDetected(),
-                body.metaJson()
-        );
+        EmotionEventDTO dto = body.withSessionId(sessionId);
+        return recordSingle(dto);
+    }
+
+    /**
+     * Variante binaire compacte de l'ingestion unitaire (lot d'un seul événement).
+     */
+    @PostMapping(value = "/{sessionId}/emotion", consumes = EmotionFrameCodec.MEDIA_TYPE)
+    public ResponseEntity<?> ingestSingleBinary(
+            @PathVariable String sessionId,
+            @RequestBody byte[] body
+    ) {
+        List<EmotionEventDTO> events = decode(body);
+        if (events.size() != 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected exactly one event");
+        }
+        return recordSingle(events.get(0).withSessionId(sessionId));
+    }
 
+    private ResponseEntity<?> recordSingle(EmotionEventDTO dto) {
         EmotionEvent saved = emotionService.recordEmotion(dto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", saved.getId()));
+        Map<String, Object> body = new LinkedHashMap<>();
+        HttpStatus status = HttpStatus.CREATED;
+        if (saved == null) {
+            // Renvoi d'un événement déjà reçu : succès, rien n'est écrit
+            body.put("duplicate", true);
+            status = HttpStatus.OK;
+        } else if (saved.getId() == null) {
+            // Mode write-behind : accepté, l'ID sera attribué à l'écriture en base
+            body.put("queued", true);
+            status = HttpStatus.ACCEPTED;
+        } else {
+            body.put("id", saved.getId());
+        }
+        // Cadence conseillée au client (après commit : tient compte de cet événement)
+        Long nextIntervalMs = samplingAdvisor.nextIntervalMs(dto.sessionId());
+        if (nextIntervalMs != null) {
+            body.put("nextIntervalMs", nextIntervalMs);
+        }
+        return ResponseEntity.status(status).body(body);
+    }
+
+    /**
+     * Ingestion d'un lot d'événements émotionnels (plusieurs frames webcam) pour une session.
+     * Retourne le nombre d'événements acceptés et rejetés, et la cadence d'envoi conseillée.
+     */
+    @PostMapping("/{sessionId}/emotions")
+    public ResponseEntity<BatchIngestResult> ingestBatch(
+            @PathVariable String sessionId,
+            @RequestBody List<EmotionEventDTO> body
+    ) {
+        return recordBatch(sessionId, body);
+    }
+
+    /**
+     * Variante binaire compacte de l'ingestion par lot (voir {@link EmotionFrameCodec}).
+     */
+    @PostMapping(value = "/{sessionId}/emotions", consumes = EmotionFrameCodec.MEDIA_TYPE)
+    public ResponseEntity<BatchIngestResult> ingestBatchBinary(
+            @PathVariable String sessionId,
+            @RequestBody byte[] body
+    ) {
+        return recordBatch(sessionId, decode(body));
+    }
+
+    private ResponseEntity<BatchIngestResult> recordBatch(String sessionId, List<EmotionEventDTO> events) {
+        // Un élément null du tableau JSON est compté comme rejeté par le service
+        List<EmotionEventDTO> dtos = events.stream()
+                .map(e -> e == null ? null : e.withSessionId(sessionId))
+                .toList();
+
+        BatchIngestResult result = emotionService.recordEmotions(dtos);
+        result.setNextIntervalMs(samplingAdvisor.nextIntervalMs(sessionId));
+        return ResponseEntity.status(result.isQueued() ? HttpStatus.ACCEPTED : HttpStatus.CREATED).body(result);
+    }
+
+    private List<EmotionEventDTO> decode(byte[] body) {
+        try {
+            return EmotionFrameCodec.decode(body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     /**
@@ -0,0 +1,70 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.service.EmotionExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Export en flux des événements bruts, en NDJSON (défaut) ou CSV ({@code format=csv}).
+ * Paramètres communs : {@code from} / {@code to} (ISO-8601, [from, to)) et la clé de reprise
+ * {@code afterTimestamp} / {@code afterId} (+ {@code afterSession} pour une leçon),
+ * recopiée de la dernière ligne reçue.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final EmotionExportService exportService;
+
+    @GetMapping("/api/sessions/{sessionId}/events/export")
+    public ResponseEntity<StreamingResponseBody> exportSession(
+            @PathVariable String sessionId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime afterTimestamp,
+            @RequestParam(required = false) Long afterId
+    ) {
+        String mediaType = EmotionExportService.mediaType(format);
+        StreamingResponseBody body = exportService.exportSession(sessionId, mediaType, from, to, afterTimestamp, afterId);
+        return response(mediaType, "session-" + sessionId, format, body);
+    }
+
+    /**
+     * Export groupé de toutes les sessions d'une leçon (accès TEACHER / ADMIN, voir SecurityConfig).
+     */
+    @GetMapping("/api/lessons/{lessonId}/events/export")
+    public ResponseEntity<StreamingResponseBody> exportLesson(
+            @PathVariable Long lessonId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String afterSession,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime afterTimestamp,
+            @RequestParam(required = false) Long afterId
+    ) {
+        String mediaType = EmotionExportService.mediaType(format);
+        StreamingResponseBody body = exportService.exportLesson(lessonId, mediaType, from, to,
+                afterSession, afterTimestamp, afterId);
+        return response(mediaType, "lesson-" + lessonId, format, body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> response(String mediaType, String name, String format,
+                                                                  StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(mediaType + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "-events." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,29 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.dto.HeatmapDTO;
+import com.elearning.adaptive.entity.HeatmapScope;
+import com.elearning.adaptive.service.HeatmapAggregator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Cartes de chaleur de frustration pour les enseignants (accès TEACHER / ADMIN, voir SecurityConfig).
+ */
+@RestController
+@RequiredArgsConstructor
+public class HeatmapController {
+
+    private final HeatmapAggregator heatmaps;
+
+    @GetMapping("/api/lessons/{lessonId}/heatmap")
+    public HeatmapDTO lessonHeatmap(@PathVariable Long lessonId) {
+        return heatmaps.heatmap(HeatmapScope.LESSON, lessonId);
+    }
+
+    @GetMapping("/api/courses/{courseId}/heatmap")
+    public HeatmapDTO courseHeatmap(@PathVariable Long courseId) {
+        return heatmaps.heatmap(HeatmapScope.COURSE, courseId);
+    }
+}
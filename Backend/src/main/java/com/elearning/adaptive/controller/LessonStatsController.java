@@ -0,0 +1,27 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.dto.LessonStats;
+import com.elearning.adaptive.service.LessonStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Statistiques agrégées d'une classe en cours (accès TEACHER / ADMIN, voir SecurityConfig).
+ */
+@RestController
+@RequiredArgsConstructor
+public class LessonStatsController {
+
+    private final LessonStatsService lessonStats;
+
+    @GetMapping("/api/lessons/{lessonId}/stats")
+    public LessonStats lessonStats(
+            @PathVariable Long lessonId,
+            @RequestParam(defaultValue = "60") int windowSeconds
+    ) {
+        return lessonStats.getLessonStats(lessonId, windowSeconds);
+    }
+}
@@ -0,0 +1,40 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.service.LiveStatsHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Statistiques de sessions poussées en direct (Server-Sent Events) à la place du polling de
+ * {@code /api/sessions/{id}/stats}. Chaque événement {@code stats} contient la liste des
+ * {@code SessionStats} modifiées depuis le précédent. Accès TEACHER / ADMIN, voir SecurityConfig.
+ */
+@RestController
+@RequiredArgsConstructor
+public class LiveStatsController {
+
+    private final LiveStatsHub hub;
+
+    @GetMapping(value = "/api/live/stats", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter sessionsStats(
+            @RequestParam List<String> sessionIds,
+            @RequestParam(defaultValue = "60") int windowSeconds
+    ) {
+        return hub.subscribeSessions(sessionIds, windowSeconds);
+    }
+
+    @GetMapping(value = "/api/lessons/{lessonId}/live/stats", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter lessonStats(
+            @PathVariable Long lessonId,
+            @RequestParam(defaultValue = "60") int windowSeconds
+    ) {
+        return hub.subscribeLesson(lessonId, windowSeconds);
+    }
+}
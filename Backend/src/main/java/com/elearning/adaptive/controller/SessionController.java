@@ -0,0 +1,34 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.dto.SessionDTO;
+import com.elearning.adaptive.dto.StartSessionDTO;
+import com.elearning.adaptive.service.SessionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Cycle de vie des sessions : ouverture par l'étudiant au début d'une leçon, clôture à la fin.
+ */
+@RestController
+@RequestMapping("/api/sessions")
+@RequiredArgsConstructor
+public class SessionController {
+
+    private final SessionService sessionService;
+
+    @PostMapping
+    public ResponseEntity<SessionDTO> start(@RequestBody StartSessionDTO body) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(sessionService.start(body.lessonId()));
+    }
+
+    @PostMapping("/{sessionId}/end")
+    public SessionDTO end(@PathVariable String sessionId) {
+        return sessionService.end(sessionId);
+    }
+}
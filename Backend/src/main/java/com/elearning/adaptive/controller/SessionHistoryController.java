@@ -0,0 +1,46 @@
+package com.elearning.adaptive.controller;
+
+import com.elearning.adaptive.dto.SessionHistoryPage;
+import com.elearning.adaptive.service.SessionHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Historique des sessions, de la plus récente à la plus ancienne. La page suivante s'obtient en
+ * repassant {@code next.afterStartedAt} / {@code next.afterId} de la réponse.
+ */
+@RestController
+@RequiredArgsConstructor
+public class SessionHistoryController {
+
+    private final SessionHistoryService history;
+
+    @GetMapping("/api/students/{studentId}/sessions")
+    public SessionHistoryPage studentSessions(
+            @PathVariable Long studentId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime afterStartedAt,
+            @RequestParam(required = false) String afterId
+    ) {
+        return history.studentHistory(studentId, limit, afterStartedAt, afterId);
+    }
+
+    /**
+     * Accès TEACHER / ADMIN, voir SecurityConfig.
+     */
+    @GetMapping("/api/lessons/{lessonId}/sessions")
+    public SessionHistoryPage lessonSessions(
+            @PathVariable Long lessonId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime afterStartedAt,
+            @RequestParam(required = false) String afterId
+    ) {
+        return history.lessonHistory(lessonId, limit, afterStartedAt, afterId);
+    }
+}
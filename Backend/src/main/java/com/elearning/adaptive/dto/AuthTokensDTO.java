@@ -0,0 +1,9 @@
+package com.elearning.adaptive.dto;
+
+/**
+ * Réponse de login / refresh.
+ * @param token     access token JWT (courte durée)
+ * @param expiresIn durée de validité de l'access token, en secondes
+ */
+public record AuthTokensDTO(String token, String refreshToken, long expiresIn) {
+}
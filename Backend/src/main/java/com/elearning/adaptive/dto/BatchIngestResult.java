@@ -0,0 +1,21 @@
+package com.elearning.adaptive.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class BatchIngestResult {
+    private int accepted;
+    private int rejected;
+    private int duplicates;                        // renvois déjà reçus, ni acceptés ni rejetés
+    private Map<String, Integer> rejectedByReason; // exemple: {"bad_timestamp": 2}
+    private boolean queued;                        // true si l'écriture en base est différée
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextIntervalMs;                   // intervalle conseillé entre deux images, fixé après commit
+}
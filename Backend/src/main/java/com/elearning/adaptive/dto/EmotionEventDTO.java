@@ -5,6 +5,28 @@ public record EmotionEventDTO(
         String timestamp,           // ISO-8601 string, exemple "2025-11-30T13:00:00Z"
         double frustrationScore,
         boolean faceDetected,
-        String metaJson
-) {}
+        String metaJson,
+        Long timestampMillis,       // optionnel : epoch millis, prioritaire sur timestamp (format binaire)
+        float[] emotions,           // optionnel : vecteur de probabilités d'émotions
+        float[] bbox,               // optionnel : boîte du visage [x, y, w, h]
+        Long seq                    // optionnel : numéro croissant par session, pour écarter les renvois
+) {
 
+    public EmotionEventDTO(String sessionId, String timestamp, double frustrationScore,
+                           boolean faceDetected, String metaJson) {
+        this(sessionId, timestamp, frustrationScore, faceDetected, metaJson, null, null, null, null);
+    }
+
+    public EmotionEventDTO(String sessionId, String timestamp, double frustrationScore, boolean faceDetected,
+                           String metaJson, Long timestampMillis, float[] emotions, float[] bbox) {
+        this(sessionId, timestamp, frustrationScore, faceDetected, metaJson, timestampMillis, emotions, bbox, null);
+    }
+
+    /**
+     * Copie de l'événement rattachée à la session indiquée (celle de l'URL fait foi).
+     */
+    public EmotionEventDTO withSessionId(String sessionId) {
+        return new EmotionEventDTO(sessionId, timestamp, frustrationScore, faceDetected, metaJson,
+                timestampMillis, emotions, bbox, seq);
+    }
+}
@@ -0,0 +1,18 @@
+package com.elearning.adaptive.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection des métadonnées typées d'un événement (vecteur d'émotions, boîte englobante),
+ * lue directement depuis les colonnes sans passer par metaJson.
+ * Les champs de la boîte sont null si aucun visage n'a été localisé.
+ */
+public record EmotionVectorDTO(
+        OffsetDateTime timestamp,
+        float[] emotionVector,
+        Float bboxX,
+        Float bboxY,
+        Float bboxW,
+        Float bboxH
+) {
+}
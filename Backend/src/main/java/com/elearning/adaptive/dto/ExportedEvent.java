@@ -0,0 +1,24 @@
+package com.elearning.adaptive.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Ligne d'export d'un événement émotionnel (colonnes typées, sans entité JPA).
+ * {@code sessionId}, {@code timestamp} et {@code id} forment la clé de reprise d'un export.
+ * {@code repeatCount} : nombre d'événements quasi identiques représentés par la ligne (compaction).
+ */
+public record ExportedEvent(
+        long id,
+        String sessionId,
+        OffsetDateTime timestamp,
+        double frustrationScore,
+        boolean faceDetected,
+        float[] emotionVector,
+        Float bboxX,
+        Float bboxY,
+        Float bboxW,
+        Float bboxH,
+        String metaJson,
+        int repeatCount
+) {
+}
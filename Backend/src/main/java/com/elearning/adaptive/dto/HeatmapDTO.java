@@ -0,0 +1,24 @@
+package com.elearning.adaptive.dto;
+
+import java.util.List;
+
+/**
+ * Carte de chaleur d'une leçon ou d'un cours, tranche par tranche depuis le début des sessions.
+ */
+public record HeatmapDTO(
+        String scope,        // LESSON, COURSE
+        Long id,
+        int bucketSeconds,
+        List<Bucket> buckets
+) {
+
+    public record Bucket(
+            int offsetSeconds,
+            long events,
+            long sessions,
+            double averageFrustration,
+            double maxFrustration,
+            double highFrustrationRatio
+    ) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.elearning.adaptive.dto;
+
+/**
+ * Statistiques d'une leçon sur une fenêtre : esquisses de ses sessions actives fusionnées.
+ */
+public record LessonStats(
+        Long lessonId,
+        int sessions,
+        long totalEvents,
+        double averageFrustration,
+        double maxFrustration,
+        long countHighFrustration,
+        Double p50Frustration,
+        Double p90Frustration,
+        Double p99Frustration,
+        Double faceDetectedRatio
+) {
+}
@@ -0,0 +1,4 @@
+package com.elearning.adaptive.dto;
+
+public record RefreshTokenDTO(String refreshToken) {
+}
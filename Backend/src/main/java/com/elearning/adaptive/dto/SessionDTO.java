@@ -0,0 +1,16 @@
+package com.elearning.adaptive.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Session créée ou terminée ; {@code id} sert ensuite de chemin aux appels d'ingestion.
+ */
+public record SessionDTO(
+        String id,
+        Long studentId,
+        Long lessonId,
+        String status,      // ACTIVE, ENDED
+        OffsetDateTime startedAt,
+        OffsetDateTime endedAt
+) {
+}
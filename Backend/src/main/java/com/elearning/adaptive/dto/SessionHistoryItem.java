@@ -0,0 +1,38 @@
+package com.elearning.adaptive.dto;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Ligne d'historique des sessions (projection JPQL, sans charger les entités).
+ * Les chiffres viennent de {@code session_summaries} : nuls / à zéro tant que le job de
+ * rollup n'est pas passé sur la session.
+ *
+ * @param durationSeconds durée d'une session terminée, null si elle est en cours
+ */
+public record SessionHistoryItem(
+        String sessionId,
+        Long studentId,
+        String studentName,
+        Long lessonId,
+        String lessonTitle,
+        String status,
+        OffsetDateTime startedAt,
+        OffsetDateTime endedAt,
+        Long durationSeconds,
+        long eventCount,
+        Double averageFrustration,
+        long highFrustrationCount
+) {
+
+    // Expression constructeur des requêtes de SessionRepository
+    public SessionHistoryItem(String sessionId, Long studentId, String studentName, Long lessonId,
+                              String lessonTitle, String status, OffsetDateTime startedAt, OffsetDateTime endedAt,
+                              Long eventCount, Double scoreSum, Long highCount) {
+        this(sessionId, studentId, studentName, lessonId, lessonTitle, status, startedAt, endedAt,
+                endedAt == null ? null : Duration.between(startedAt, endedAt).toSeconds(),
+                eventCount == null ? 0 : eventCount,
+                eventCount == null || eventCount == 0 ? null : scoreSum / eventCount,
+                highCount == null ? 0 : highCount);
+    }
+}
@@ -0,0 +1,15 @@
+package com.elearning.adaptive.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Page d'historique, de la session la plus récente à la plus ancienne.
+ *
+ * @param next paramètres {@code afterStartedAt} / {@code afterId} de la page suivante, null en fin de liste
+ */
+public record SessionHistoryPage(List<SessionHistoryItem> items, Cursor next) {
+
+    public record Cursor(OffsetDateTime afterStartedAt, String afterId) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.elearning.adaptive.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Faits d'une session nécessaires à l'ingestion (projection légère, mise en cache).
+ */
+public record SessionInfo(
+        String id,
+        Long studentId,
+        String status,      // ACTIVE, ENDED
+        Long lessonId,
+        Long courseId,
+        OffsetDateTime startedAt
+) {
+
+    public boolean isActive() {
+        return "ACTIVE".equals(status);
+    }
+}
@@ -1,14 +1,38 @@
 package com.elearning.adaptive.dto;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 @Getter
 @AllArgsConstructor
+@EqualsAndHashCode // diffusion en direct : seules les stats modifiées sont renvoyées
 public class SessionStats {
+
+    // Seuil au-delà duquel un événement compte comme "frustration élevée"
+    public static final double HIGH_FRUSTRATION_THRESHOLD = 0.7;
+
     private String sessionId;
     private double averageFrustration;
     private double maxFrustration;
     private long countHighFrustration;
     private int totalEvents;
+
+    // Quantiles des scores de la fenêtre (esquisse : précision 1 / app.stats.sketch.bins) ;
+    // null sans événement, ou au-delà de l'horizon des événements bruts
+    private Double p50Frustration;
+    private Double p90Frustration;
+    private Double p99Frustration;
+
+    // Niveau et pente (par seconde) lissés, demi-vie app.stats.trend.half-life-seconds ;
+    // null sans événement récent
+    private Double trendFrustration;
+    private Double trendSlopePerSecond;
+
+    // Part des images avec visage détecté ; null sans événement
+    private Double faceDetectedRatio;
+
+    public static SessionStats empty(String sessionId) {
+        return new SessionStats(sessionId, 0.0, 0.0, 0, 0, null, null, null, null, null, null);
+    }
 }
@@ -0,0 +1,7 @@
+package com.elearning.adaptive.dto;
+
+/**
+ * Demande d'ouverture d'une session de suivi sur une leçon.
+ */
+public record StartSessionDTO(Long lessonId) {
+}
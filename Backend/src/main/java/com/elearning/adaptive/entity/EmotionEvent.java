@@ -2,20 +2,30 @@ package com.elearning.adaptive.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "emotion_events", indexes = {
-        @Index(name = "idx_session_time", columnList = "session_id, timestamp")
+        @Index(name = "idx_session_time", columnList = "session_id, timestamp"),
+        @Index(name = "idx_emotion_events_time", columnList = "timestamp") // rollup et purge par plage
 })
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class EmotionEvent {
 
+    // Taille du vecteur d'émotions stocké en colonne (7 classes du modèle FER côté client)
+    public static final int EMOTION_VECTOR_LENGTH = 7;
+
+    // Séquence avec pré-allocation (incrément 50). Les INSERT passent par EmotionEventInsertRepository
+    // (renvois écartés en base), qui découpe la même séquence en blocs de 50 selon la convention
+    // de l'optimiseur pooled : les deux allocations peuvent coexister sans collision
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emotion_events_seq")
+    @SequenceGenerator(name = "emotion_events_seq", sequenceName = "emotion_events_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "session_id", nullable = false)
@@ -30,8 +40,37 @@ public class EmotionEvent {
     @Column(nullable = false)
     private boolean faceDetected;
 
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "emotion_vector", columnDefinition = "real[]")
+    private float[] emotionVector; // probabilités par émotion, longueur EMOTION_VECTOR_LENGTH
+
+    // Boîte englobante du visage détecté
+    @Column(name = "bbox_x")
+    private Float bboxX;
+
+    @Column(name = "bbox_y")
+    private Float bboxY;
+
+    @Column(name = "bbox_w")
+    private Float bboxW;
+
+    @Column(name = "bbox_h")
+    private Float bboxH;
+
     @Column(columnDefinition = "text")
-    private String metaJson; // données additionnelles (vecteur émotion, bounding box, etc.)
+    private String metaJson; // débordement : clés additionnelles non typées (JSON)
+
+    // Événements quasi identiques représentés par cette ligne (compaction à l'ingestion) ;
+    // le score est alors leur moyenne, l'horodatage celui du premier. Défaut en base (V10) :
+    // les lignes antérieures et les écritures hors JPA valent un événement
+    @Column(name = "repeat_count", nullable = false, columnDefinition = "integer not null default 1")
+    @Builder.Default
+    private int repeatCount = 1;
+
+    // Numéro de séquence client (renvois écartés, voir SequenceTracker) ; une ligne compactée
+    // couvre les numéros consécutifs seq .. seq + repeatCount - 1
+    @Column(name = "seq")
+    private Long seq;
 
     // Optionnel : relation vers Session si tu veux naviguer facilement
     @ManyToOne(fetch = FetchType.LAZY)
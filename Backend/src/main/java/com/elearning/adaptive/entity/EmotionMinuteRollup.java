@@ -0,0 +1,56 @@
+package com.elearning.adaptive.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Agrégat par session et par minute des événements bruts, alimenté par le job de rollup
+ * (SQL direct, voir EmotionRollupRepository) et conservé au-delà de l'horizon des données brutes.
+ */
+@Entity
+@Table(name = "emotion_minute_rollups")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmotionMinuteRollup {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "event_count", nullable = false)
+    private int eventCount;
+
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(name = "score_min", nullable = false)
+    private double scoreMin;
+
+    @Column(name = "score_max", nullable = false)
+    private double scoreMax;
+
+    @Column(name = "high_count", nullable = false)
+    private int highCount; // scores > SessionStats.HIGH_FRUSTRATION_THRESHOLD
+
+    @Column(name = "face_count", nullable = false)
+    private int faceCount; // événements avec visage détecté (ratio = faceCount / eventCount)
+
+    @Embeddable
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Column(name = "session_id", length = 64)
+        private String sessionId;
+
+        @Column(name = "minute")
+        private OffsetDateTime minute; // début de la minute
+    }
+}
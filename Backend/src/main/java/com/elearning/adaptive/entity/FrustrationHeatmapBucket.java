@@ -0,0 +1,57 @@
+package com.elearning.adaptive.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+
+/**
+ * Tranche de carte de chaleur : frustration cumulée de toutes les sessions d'une leçon
+ * (ou d'un cours) à {@code offsetSeconds} secondes après le début de session.
+ * Maintenue incrémentalement par HeatmapAggregator (SQL direct, voir HeatmapRepository).
+ */
+@Entity
+@Table(name = "frustration_heatmap_buckets")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FrustrationHeatmapBucket {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Column(name = "session_count", nullable = false)
+    private long sessionCount; // sessions ayant au moins un événement dans la tranche
+
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(name = "score_max", nullable = false)
+    private double scoreMax;
+
+    @Column(name = "high_count", nullable = false)
+    private long highCount;
+
+    @Embeddable
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "scope", length = 10)
+        private HeatmapScope scope;
+
+        @Column(name = "scope_id")
+        private Long scopeId; // id de la leçon ou du cours
+
+        @Column(name = "offset_seconds")
+        private int offsetSeconds; // début de la tranche, en secondes depuis Session.startedAt
+    }
+}
@@ -0,0 +1,3 @@
+package com.elearning.adaptive.entity;
+
+public enum HeatmapScope { LESSON, COURSE }
@@ -0,0 +1,24 @@
+package com.elearning.adaptive.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Avancement d'un job d'agrégation : tout ce qui précède {@code rolledUntil} a été agrégé.
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "rolled_until", nullable = false)
+    private OffsetDateTime rolledUntil;
+}
@@ -1,11 +1,17 @@
 package com.elearning.adaptive.entity;
 
+import com.elearning.adaptive.service.SessionCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.OffsetDateTime;
 
 @Entity
-@Table(name = "sessions")
+@Table(name = "sessions", indexes = {
+        // Historique paginé par (startedAt, id), voir SessionRepository
+        @Index(name = "idx_sessions_student_started", columnList = "student_id, started_at, id"),
+        @Index(name = "idx_sessions_lesson_started", columnList = "lesson_id, started_at, id")
+})
+@EntityListeners(SessionCacheInvalidator.class)
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
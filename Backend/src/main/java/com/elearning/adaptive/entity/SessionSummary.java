@@ -0,0 +1,39 @@
+package com.elearning.adaptive.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Totaux d'une session, recalculés à partir des agrégats par minute à chaque passage du job
+ * de rollup pour les sessions touchées (SQL direct, voir EmotionRollupRepository).
+ * En retard sur les événements bruts du délai de rollup (quelques minutes).
+ */
+@Entity
+@Table(name = "session_summaries")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionSummary {
+
+    @Id
+    @Column(name = "session_id", length = 64)
+    private String sessionId;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(name = "high_count", nullable = false)
+    private long highCount; // scores > SessionStats.HIGH_FRUSTRATION_THRESHOLD
+
+    @Column(name = "first_minute")
+    private OffsetDateTime firstMinute;
+
+    @Column(name = "last_minute")
+    private OffsetDateTime lastMinute;
+}
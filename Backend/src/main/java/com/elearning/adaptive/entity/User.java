@@ -15,6 +15,10 @@ public class User {
     @Column(nullable=false) private String passwordHash;
     @Enumerated(EnumType.STRING)
     private Role role;
+    // @Builder.Default : sans cela le builder (inscription) ignore les valeurs initiales
+    @Builder.Default
     private boolean active = true;
+    @Builder.Default
+    @Column(nullable=false)
     private OffsetDateTime createdAt = OffsetDateTime.now();
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.elearning.adaptive.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accès SQL au registre des nœuds du cluster ({@code cluster_nodes}). L'horloge de référence
+ * est celle de la base : les nœuds n'ont pas à être synchronisés entre eux.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClusterNodeRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Enregistre le nœud ou renouvelle son battement.
+     */
+    public void heartbeat(String nodeId, String url) {
+        jdbc.update("""
+                INSERT INTO cluster_nodes (node_id, url) VALUES (?, ?)
+                ON CONFLICT (node_id) DO UPDATE SET url = excluded.url, heartbeat_at = now()
+                """, nodeId, url);
+    }
+
+    /**
+     * Nœuds vivants (battement depuis moins de {@code ttlMillis}) : identifiant vers URL.
+     */
+    public Map<String, String> findLive(long ttlMillis) {
+        Map<String, String> live = new LinkedHashMap<>();
+        jdbc.query("""
+                SELECT node_id, url FROM cluster_nodes
+                WHERE heartbeat_at > now() - make_interval(secs => ?)
+                ORDER BY node_id
+                """, rs -> {
+            live.put(rs.getString(1), rs.getString(2));
+        }, ttlMillis / 1000.0);
+        return live;
+    }
+
+    public void remove(String nodeId) {
+        jdbc.update("DELETE FROM cluster_nodes WHERE node_id = ?", nodeId);
+    }
+}
@@ -0,0 +1,141 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.service.BackpressureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission devant le pool de connexions : un sémaphore de {@code maximum-pool-size} permis
+ * enveloppe la {@link DataSource}. Au-delà de {@code max-waiters} demandeurs en attente, ou après
+ * {@code wait-timeout-ms}, la demande est refusée par une {@link BackpressureException}
+ * (503 + Retry-After, y compris enveloppée par le gestionnaire de transactions) au lieu
+ * d'empiler des milliers de threads virtuels sur le pool jusqu'à son propre délai.
+ * Le permis est rendu à la fermeture de la connexion.
+ */
+@Component
+public class ConnectionAdmission implements BeanPostProcessor, MeterBinder {
+
+    private final Semaphore permits;
+    private final int poolSize;
+    private final int maxWaiters;
+    private final long waitTimeoutMs;
+    private final long retryAfterSeconds;
+    private final boolean enabled;
+    private Counter rejected;
+
+    public ConnectionAdmission(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${app.db.admission.enabled:true}") boolean enabled,
+            @Value("${app.db.admission.max-waiters:1000}") int maxWaiters,
+            @Value("${app.db.admission.wait-timeout-ms:2000}") long waitTimeoutMs,
+            @Value("${app.db.admission.retry-after-seconds:1}") long retryAfterSeconds
+    ) {
+        this.permits = new Semaphore(poolSize, true);
+        this.poolSize = poolSize;
+        this.enabled = enabled;
+        this.maxWaiters = maxWaiters;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // Seuls les pools sont gardés : un DataSource qui délègue (routage vers le réplica) passe
+        // par le pool primaire déjà gardé, et un permis pris deux fois bloquerait le sémaphore
+        if (enabled && bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+            return new GuardedDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.admission.waiting", permits, Semaphore::getQueueLength)
+                .description("Threads en attente d'un permis de connexion")
+                .register(registry);
+        rejected = Counter.builder("db.admission.rejected")
+                .description("Demandes de connexion refusées (saturation)")
+                .register(registry);
+    }
+
+    /**
+     * Demandeurs en attente par connexion du pool : 1 quand chaque connexion a déjà un successeur.
+     */
+    public double pressure() {
+        return enabled ? (double) permits.getQueueLength() / poolSize : 0;
+    }
+
+    private Connection acquire(DataSource target) throws SQLException {
+        if (permits.getQueueLength() >= maxWaiters) {
+            throw busy();
+        }
+        try {
+            if (!permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw busy();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return releasingOnClose(target.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private BackpressureException busy() {
+        if (rejected != null) {
+            rejected.increment();
+        }
+        return new BackpressureException("Database busy", retryAfterSeconds);
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private final class GuardedDataSource extends DelegatingDataSource {
+
+        GuardedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return acquire(obtainTargetDataSource());
+        }
+    }
+}
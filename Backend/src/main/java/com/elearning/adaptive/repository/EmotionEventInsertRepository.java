@@ -0,0 +1,153 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Écriture des événements bruts avec dédoublonnage en base : un renvoi (même session, {@code seq}
+ * et horodatage) échappé au filtre en mémoire ({@code SequenceTracker}, perdu au redémarrage ou
+ * au changement de nœud) est écarté par l'index unique partiel {@code uq_emotion_events_session_seq}
+ * (V11). Le conflit est ciblé sur cet index : tout autre conflit (clé primaire...) reste une erreur.
+ * <p>
+ * Un INSERT multi-lignes par tranche de {@value #CHUNK_SIZE} lignes ; {@code RETURNING} indique
+ * les lignes réellement écrites, pour que comptes et listeners ne voient pas les renvois.
+ * Participe à la transaction en cours (JPA ou JDBC).
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmotionEventInsertRepository {
+
+    // 13 paramètres par ligne : loin de la limite de 32767 paramètres par requête Postgres
+    static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT = """
+            INSERT INTO emotion_events (id, session_id, timestamp, frustration_score, face_detected,
+                emotion_vector, bbox_x, bbox_y, bbox_w, bbox_h, meta_json, repeat_count, seq)
+            VALUES %s
+            ON CONFLICT (session_id, seq, timestamp) WHERE seq IS NOT NULL DO NOTHING
+            RETURNING id
+            """;
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Incrément de emotion_events_seq, égal à l'allocationSize de EmotionEvent.id
+    static final int ID_BLOCK = 50;
+
+    private final JdbcTemplate jdbc;
+    // Bloc d'IDs en cours : [nextId, blockEnd], vide si nextId > blockEnd
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId = 1;
+    private long blockEnd = 0;
+
+    /**
+     * Insère les lignes ; les IDs sont pris dans {@code emotion_events_seq} (par blocs) et posés
+     * sur les lignes écrites.
+     * @return lignes écartées comme renvois (ID nul), dans l'ordre reçu
+     */
+    public List<EmotionEvent> insertSkippingReplays(List<EmotionEvent> rows) {
+        List<EmotionEvent> skipped = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            skipped.addAll(insertChunk(rows.subList(from, Math.min(rows.size(), from + CHUNK_SIZE))));
+        }
+        return skipped;
+    }
+
+    private List<EmotionEvent> insertChunk(List<EmotionEvent> rows) {
+        List<Long> ids = allocateIds(rows.size());
+        String sql = INSERT.formatted(String.join(", ", Collections.nCopies(rows.size(), ROW)));
+        Set<Long> inserted = new HashSet<>();
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = 0;
+            for (int r = 0; r < rows.size(); r++) {
+                i = bind(ps, i, ids.get(r), rows.get(r));
+            }
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getLong(1));
+        });
+
+        List<EmotionEvent> skipped = new ArrayList<>();
+        for (int r = 0; r < rows.size(); r++) {
+            EmotionEvent row = rows.get(r);
+            if (inserted.contains(ids.get(r))) {
+                row.setId(ids.get(r));
+            } else {
+                skipped.add(row);
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * IDs pris par blocs de {@value #ID_BLOCK} comme l'optimiseur pooled d'Hibernate : chaque
+     * valeur de la séquence (incrément {@value #ID_BLOCK}, V2) est la borne haute de son bloc.
+     * Le reste du dernier bloc sert aux insertions suivantes de ce nœud.
+     */
+    List<Long> allocateIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        idLock.lock();
+        try {
+            while (ids.size() < count && nextId <= blockEnd) {
+                ids.add(nextId++);
+            }
+            int missing = count - ids.size();
+            if (missing > 0) {
+                List<Long> highs = jdbc.queryForList(
+                        "SELECT nextval('emotion_events_seq') FROM generate_series(1, ?)",
+                        Long.class, Math.ceilDiv(missing, ID_BLOCK));
+                for (long high : highs) {
+                    for (long id = high - ID_BLOCK + 1; id <= high; id++) {
+                        if (ids.size() < count) {
+                            ids.add(id);
+                        } else {
+                            nextId = id;
+                            blockEnd = high;
+                            break;
+                        }
+                    }
+                }
+            }
+            return ids;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private static int bind(PreparedStatement ps, int i, long id, EmotionEvent ev) throws SQLException {
+        ps.setLong(++i, id);
+        ps.setString(++i, ev.getSessionId());
+        ps.setObject(++i, ev.getTimestamp());
+        ps.setDouble(++i, ev.getFrustrationScore());
+        ps.setBoolean(++i, ev.isFaceDetected());
+        float[] vector = ev.getEmotionVector();
+        if (vector == null) {
+            ps.setNull(++i, Types.ARRAY);
+        } else {
+            Float[] boxed = new Float[vector.length];
+            for (int k = 0; k < vector.length; k++) {
+                boxed[k] = vector[k];
+            }
+            ps.setArray(++i, ps.getConnection().createArrayOf("float4", boxed));
+        }
+        ps.setObject(++i, ev.getBboxX(), Types.REAL);
+        ps.setObject(++i, ev.getBboxY(), Types.REAL);
+        ps.setObject(++i, ev.getBboxW(), Types.REAL);
+        ps.setObject(++i, ev.getBboxH(), Types.REAL);
+        ps.setString(++i, ev.getMetaJson());
+        ps.setInt(++i, ev.getRepeatCount());
+        ps.setObject(++i, ev.getSeq(), Types.BIGINT);
+        return i;
+    }
+}
@@ -1,7 +1,11 @@
 package com.elearning.adaptive.repository;
 
+import com.elearning.adaptive.dto.EmotionVectorDTO;
 import com.elearning.adaptive.entity.EmotionEvent;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -13,5 +17,23 @@ public interface EmotionEventRepository extends JpaRepository<EmotionEvent, Long
 
     // Récupérer le dernier événement d'une session
     Optional<EmotionEvent> findFirstBySessionIdOrderByTimestampDesc(String sessionId);
-}
 
+    // Vecteurs d'émotions et boîtes d'une session, lus depuis les colonnes typées (sans metaJson)
+    @Query("select new com.elearning.adaptive.dto.EmotionVectorDTO(e.timestamp, e.emotionVector, "
+            + "e.bboxX, e.bboxY, e.bboxW, e.bboxH) from EmotionEvent e "
+            + "where e.sessionId = :sessionId and e.timestamp > :after order by e.timestamp")
+    List<EmotionVectorDTO> findVectorsBySessionIdAndTimestampAfter(@Param("sessionId") String sessionId,
+                                                                   @Param("after") OffsetDateTime after);
+
+    // Dernières lignes numérotées d'une session (index partiel uq_emotion_events_session_seq) ; une
+    // ligne compactée couvre les numéros seq .. seq + repeatCount - 1
+    @Query("select e.seq as seq, e.repeatCount as repeatCount from EmotionEvent e "
+            + "where e.sessionId = :sessionId and e.seq is not null order by e.seq desc")
+    List<SequenceRange> findLatestSequences(@Param("sessionId") String sessionId, Limit limit);
+
+    interface SequenceRange {
+        Long getSeq();
+
+        int getRepeatCount();
+    }
+}
@@ -0,0 +1,106 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.dto.ExportedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lecture en flux des événements bruts pour l'export : curseur côté serveur
+ * ({@code fetch-size} lignes par aller-retour), aucune liste ni entité en mémoire.
+ * Le curseur Postgres n'existe que dans une transaction (autocommit désactivé) :
+ * les méthodes de flux doivent être appelées dans une transaction en lecture seule.
+ */
+@Repository
+public class EmotionExportRepository {
+
+    private static final String COLUMNS = """
+            id, session_id, timestamp, frustration_score, face_detected, emotion_vector,
+            bbox_x, bbox_y, bbox_w, bbox_h, meta_json, repeat_count
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    public EmotionExportRepository(DataSource dataSource,
+                                   @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Sessions d'une leçon, dans l'ordre de l'export groupé, à partir de {@code fromSessionId} inclus.
+     */
+    public List<String> findSessionIdsByLesson(long lessonId, String fromSessionId) {
+        return jdbc.queryForList("""
+                SELECT id FROM sessions
+                WHERE lesson_id = ? AND (?::text IS NULL OR id >= ?)
+                ORDER BY id
+                """, String.class, lessonId, fromSessionId, fromSessionId);
+    }
+
+    /**
+     * Parcourt les événements d'une session dans l'ordre (timestamp, id), dans [from, to)
+     * et strictement après la clé de reprise ({@code afterTimestamp}, {@code afterId}) si fournie.
+     */
+    public void streamSession(String sessionId, OffsetDateTime from, OffsetDateTime to,
+                              OffsetDateTime afterTimestamp, Long afterId, Consumer<ExportedEvent> sink) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS)
+                .append("FROM emotion_events WHERE session_id = ?");
+        args.add(sessionId);
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+            args.add(to);
+        }
+        if (afterTimestamp != null) {
+            sql.append(" AND (timestamp, id) > (?, ?)");
+            args.add(afterTimestamp);
+            args.add(afterId == null ? Long.MAX_VALUE : afterId);
+        }
+        sql.append(" ORDER BY timestamp, id");
+
+        jdbc.query(sql.toString(), (RowCallbackHandler) rs -> sink.accept(map(rs)), args.toArray());
+    }
+
+    private static ExportedEvent map(ResultSet rs) throws SQLException {
+        return new ExportedEvent(
+                rs.getLong("id"),
+                rs.getString("session_id"),
+                rs.getObject("timestamp", OffsetDateTime.class),
+                rs.getDouble("frustration_score"),
+                rs.getBoolean("face_detected"),
+                toFloats(rs.getArray("emotion_vector")),
+                rs.getObject("bbox_x", Float.class),
+                rs.getObject("bbox_y", Float.class),
+                rs.getObject("bbox_w", Float.class),
+                rs.getObject("bbox_h", Float.class),
+                rs.getString("meta_json"),
+                rs.getInt("repeat_count"));
+    }
+
+    private static float[] toFloats(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        Object[] values = (Object[]) array.getArray();
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = values[i] == null ? Float.NaN : ((Number) values[i]).floatValue();
+        }
+        return floats;
+    }
+}
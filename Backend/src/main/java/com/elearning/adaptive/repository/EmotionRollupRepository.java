@@ -0,0 +1,196 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.dto.SessionStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Accès SQL aux agrégats par minute ({@code emotion_minute_rollups}) et agrégations
+ * calculées directement en base, sans charger les événements.
+ * <p>
+ * Une ligne d'{@code emotion_events} compte pour {@code repeat_count} événements (suite compactée
+ * à l'ingestion, score moyen) : comptes et sommes sont pondérés, min et max lus tels quels.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmotionRollupRepository {
+
+    public static final String MINUTE_ROLLUP = "emotion_minute_rollups";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Agrège les événements de [from, to) par session et par minute. Rejouer une plage
+     * remplace ses agrégats (idempotent).
+     * @return sessions touchées (distinctes)
+     */
+    public List<String> rollUp(OffsetDateTime from, OffsetDateTime to) {
+        return jdbc.queryForList("""
+                WITH rolled AS (
+                INSERT INTO emotion_minute_rollups
+                    (session_id, minute, event_count, score_sum, score_min, score_max, high_count, face_count)
+                SELECT session_id, date_trunc('minute', timestamp), sum(repeat_count),
+                       sum(frustration_score * repeat_count), min(frustration_score), max(frustration_score),
+                       coalesce(sum(repeat_count) FILTER (WHERE frustration_score > ?), 0),
+                       coalesce(sum(repeat_count) FILTER (WHERE face_detected), 0)
+                FROM emotion_events
+                WHERE timestamp >= ? AND timestamp < ?
+                GROUP BY session_id, date_trunc('minute', timestamp)
+                ON CONFLICT (session_id, minute) DO UPDATE SET
+                    event_count = excluded.event_count,
+                    score_sum = excluded.score_sum,
+                    score_min = excluded.score_min,
+                    score_max = excluded.score_max,
+                    high_count = excluded.high_count,
+                    face_count = excluded.face_count
+                RETURNING session_id
+                )
+                SELECT DISTINCT session_id FROM rolled
+                """, String.class, SessionStats.HIGH_FRUSTRATION_THRESHOLD, from, to);
+    }
+
+    /**
+     * Recalcule les totaux ({@code session_summaries}) des sessions données à partir de leurs
+     * agrégats par minute (clé primaire (session_id, minute) : lecture des seules sessions visées).
+     */
+    public int refreshSummaries(Collection<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        return jdbc.update("""
+                INSERT INTO session_summaries
+                    (session_id, event_count, score_sum, high_count, first_minute, last_minute)
+                SELECT session_id, sum(event_count), sum(score_sum), sum(high_count), min(minute), max(minute)
+                FROM emotion_minute_rollups
+                WHERE session_id = ANY (?)
+                GROUP BY session_id
+                ON CONFLICT (session_id) DO UPDATE SET
+                    event_count = excluded.event_count,
+                    score_sum = excluded.score_sum,
+                    high_count = excluded.high_count,
+                    first_minute = excluded.first_minute,
+                    last_minute = excluded.last_minute
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", sessionIds.toArray())));
+    }
+
+    /**
+     * Verrou applicatif Postgres limité à la transaction courante : une seule instance agrège à la fois.
+     */
+    public boolean tryLock(String name) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, name));
+    }
+
+    public Optional<OffsetDateTime> findWatermark(String name) {
+        return jdbc.query("SELECT rolled_until FROM rollup_watermarks WHERE name = ?",
+                (rs, i) -> rs.getObject(1, OffsetDateTime.class), name).stream().findFirst();
+    }
+
+    public void saveWatermark(String name, OffsetDateTime rolledUntil) {
+        jdbc.update("""
+                INSERT INTO rollup_watermarks (name, rolled_until) VALUES (?, ?)
+                ON CONFLICT (name) DO UPDATE SET rolled_until = excluded.rolled_until
+                """, name, rolledUntil);
+    }
+
+    /**
+     * Premier horodatage brut, ou vide si la table est vide.
+     */
+    public Optional<OffsetDateTime> findFirstEventTime() {
+        return Optional.ofNullable(jdbc.queryForObject(
+                "SELECT min(timestamp) FROM emotion_events", OffsetDateTime.class));
+    }
+
+    /**
+     * Agrégat des événements bruts d'une session depuis {@code from} (inclus).
+     */
+    public Aggregate rawAggregate(String sessionId, OffsetDateTime from) {
+        return jdbc.queryForObject("""
+                SELECT coalesce(sum(repeat_count), 0), coalesce(sum(frustration_score * repeat_count), 0),
+                       coalesce(max(frustration_score), 0),
+                       coalesce(sum(repeat_count) FILTER (WHERE frustration_score > ?), 0),
+                       coalesce(sum(repeat_count) FILTER (WHERE face_detected), 0)
+                FROM emotion_events
+                WHERE session_id = ? AND timestamp >= ?
+                """, (rs, i) -> new Aggregate(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getLong(4),
+                        rs.getLong(5)),
+                SessionStats.HIGH_FRUSTRATION_THRESHOLD, sessionId, from);
+    }
+
+    /**
+     * Agrégat des événements bruts de plusieurs sessions depuis {@code from} (inclus).
+     */
+    public Aggregate rawAggregate(Collection<String> sessionIds, OffsetDateTime from) {
+        return jdbc.queryForObject("""
+                SELECT coalesce(sum(repeat_count), 0), coalesce(sum(frustration_score * repeat_count), 0),
+                       coalesce(max(frustration_score), 0),
+                       coalesce(sum(repeat_count) FILTER (WHERE frustration_score > ?), 0),
+                       coalesce(sum(repeat_count) FILTER (WHERE face_detected), 0)
+                FROM emotion_events
+                WHERE session_id = ANY (?) AND timestamp >= ?
+                """, (rs, i) -> new Aggregate(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getLong(4),
+                        rs.getLong(5)),
+                SessionStats.HIGH_FRUSTRATION_THRESHOLD, sessionIds.toArray(String[]::new), from);
+    }
+
+    /**
+     * Esquisse de quantiles des événements bruts depuis {@code from} : nombre d'événements par
+     * classe de score, même découpage que {@code ScoreHistogram} ({@code bins} classes sur [0, 1]).
+     */
+    public long[] rawHistogram(Collection<String> sessionIds, OffsetDateTime from, int bins) {
+        long[] counts = new long[bins];
+        jdbc.query("""
+                SELECT least(greatest(floor(frustration_score * ?)::int, 0), ? - 1), sum(repeat_count)
+                FROM emotion_events
+                WHERE session_id = ANY (?) AND timestamp >= ?
+                GROUP BY 1
+                """, rs -> {
+            counts[rs.getInt(1)] += rs.getLong(2);
+        }, bins, bins, sessionIds.toArray(String[]::new), from);
+        return counts;
+    }
+
+    /**
+     * Parcourt les scores d'une session depuis {@code from}, dans l'ordre chronologique
+     * (index (session_id, timestamp) : pas de tri).
+     */
+    public void forEachScore(String sessionId, OffsetDateTime from, ScoreVisitor visitor) {
+        jdbc.query("""
+                SELECT timestamp, frustration_score FROM emotion_events
+                WHERE session_id = ? AND timestamp >= ?
+                ORDER BY timestamp
+                """, rs -> {
+            visitor.visit(rs.getObject(1, OffsetDateTime.class).toInstant().toEpochMilli(), rs.getDouble(2));
+        }, sessionId, from);
+    }
+
+    public interface ScoreVisitor {
+        void visit(long epochMillis, double score);
+    }
+
+    /**
+     * Agrégat des minutes d'une session dans [fromMinute, toMinute).
+     */
+    public Aggregate rollupAggregate(String sessionId, OffsetDateTime fromMinute, OffsetDateTime toMinute) {
+        return jdbc.queryForObject("""
+                SELECT coalesce(sum(event_count), 0), coalesce(sum(score_sum), 0), coalesce(max(score_max), 0),
+                       coalesce(sum(high_count), 0), coalesce(sum(face_count), 0)
+                FROM emotion_minute_rollups
+                WHERE session_id = ? AND minute >= ? AND minute < ?
+                """, (rs, i) -> new Aggregate(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getLong(4),
+                        rs.getLong(5)),
+                sessionId, fromMinute, toMinute);
+    }
+
+    /**
+     * Sommes combinables (brut + agrégé) d'une fenêtre.
+     */
+    public record Aggregate(long count, double sum, double max, long highCount, long faceCount) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.dto.HeatmapDTO;
+import com.elearning.adaptive.entity.HeatmapScope;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Accès SQL aux cartes de chaleur ({@code frustration_heatmap_buckets}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class HeatmapRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Accroissements à ajouter aux tranches existantes.
+     */
+    public record Increment(HeatmapScope scope, long scopeId, int offsetSeconds, long events, long sessions,
+                            double scoreSum, double scoreMax, long highCount) {
+    }
+
+    /**
+     * Ajoute les accroissements en un seul batch JDBC (upsert additif).
+     */
+    public void add(List<Increment> increments) {
+        jdbc.batchUpdate("""
+                INSERT INTO frustration_heatmap_buckets AS b
+                    (scope, scope_id, offset_seconds, event_count, session_count, score_sum, score_max, high_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (scope, scope_id, offset_seconds) DO UPDATE SET
+                    event_count = b.event_count + excluded.event_count,
+                    session_count = b.session_count + excluded.session_count,
+                    score_sum = b.score_sum + excluded.score_sum,
+                    score_max = greatest(b.score_max, excluded.score_max),
+                    high_count = b.high_count + excluded.high_count
+                """, increments, increments.size(), (ps, inc) -> {
+            ps.setString(1, inc.scope().name());
+            ps.setLong(2, inc.scopeId());
+            ps.setInt(3, inc.offsetSeconds());
+            ps.setLong(4, inc.events());
+            ps.setLong(5, inc.sessions());
+            ps.setDouble(6, inc.scoreSum());
+            ps.setDouble(7, inc.scoreMax());
+            ps.setLong(8, inc.highCount());
+        });
+    }
+
+    /**
+     * Tranches d'une leçon ou d'un cours, dans l'ordre (lecture par clé primaire).
+     */
+    public List<HeatmapDTO.Bucket> find(HeatmapScope scope, long scopeId) {
+        return jdbc.query("""
+                SELECT offset_seconds, event_count, session_count, score_sum, score_max, high_count
+                FROM frustration_heatmap_buckets
+                WHERE scope = ? AND scope_id = ?
+                ORDER BY offset_seconds
+                """, (rs, i) -> {
+            long events = rs.getLong(2);
+            return new HeatmapDTO.Bucket(rs.getInt(1), events, rs.getLong(3),
+                    events == 0 ? 0.0 : rs.getDouble(4) / events, rs.getDouble(5),
+                    events == 0 ? 0.0 : (double) rs.getLong(6) / events);
+        }, scope.name(), scopeId);
+    }
+}
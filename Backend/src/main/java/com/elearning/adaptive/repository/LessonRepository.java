@@ -0,0 +1,7 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.entity.Lesson;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface LessonRepository extends JpaRepository<Lesson, Long> {
+}
@@ -0,0 +1,74 @@
+package com.elearning.adaptive.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Lectures sur un réplica, écritures sur le primaire, chacun avec son pool : les lectures lourdes
+ * des tableaux de bord (stats, historique, exports, heatmaps) ne prennent plus de connexions
+ * ni d'I/O au chemin d'ingestion.
+ * <p>
+ * La {@link DataSource} de l'application retarde l'obtention de la connexion physique jusqu'à la
+ * première requête : une transaction {@code readOnly} la prend alors au {@link ReplicaDataSource}
+ * (qui retombe sur le primaire si le réplica est en retard ou injoignable), toute autre au primaire.
+ * Seul le pool primaire passe par {@link ConnectionAdmission} ; le réplica est borné par son pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(
+            @Qualifier("primaryPool") DataSource primary,
+            MeterRegistry meterRegistry,
+            @Value("${app.db.replica.url}") String url,
+            @Value("${app.db.replica.username}") String username,
+            @Value("${app.db.replica.password}") String password,
+            @Value("${app.db.replica.pool-size:20}") int poolSize,
+            @Value("${app.db.replica.connection-timeout-ms:1000}") long connectionTimeoutMs,
+            @Value("${app.db.replica.max-lag-ms:5000}") long maxLagMs,
+            @Value("${app.db.replica.lag-query:}") String lagQuery
+    ) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(url);
+        replica.setUsername(username);
+        replica.setPassword(password);
+        replica.setMaximumPoolSize(poolSize);
+        replica.setConnectionTimeout(connectionTimeoutMs);
+        replica.setReadOnly(true);
+        // Démarrage sans réplica joignable : les lectures vont au primaire jusqu'à son retour
+        replica.setInitializationFailTimeout(-1);
+        replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new ReplicaDataSource(replica, primary, maxLagMs,
+                lagQuery.isBlank() ? ReplicaDataSource.POSTGRES_LAG_QUERY : lagQuery, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryPool") DataSource primary, ReplicaDataSource replica) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replica);
+        return routing;
+    }
+}
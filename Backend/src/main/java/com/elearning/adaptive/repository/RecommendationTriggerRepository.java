@@ -0,0 +1,12 @@
+package com.elearning.adaptive.repository;
+
+import com.elearning.adaptive.entity.RecommendationTrigger;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RecommendationTriggerRepository extends JpaRepository<RecommendationTrigger, Long> {
+
+    // Triggers d'une session, du plus récent au plus ancien
+    List<RecommendationTrigger> findBySessionIdOrderByCreatedAtDesc(String sessionId);
+}
@@ -0,0 +1,133 @@
+package com.elearning.adaptive.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Source des transactions en lecture seule : le réplica tant que son retard reste sous
+ * {@code max-lag-ms}, sinon le primaire. Le retard est mesuré toutes les {@code check-interval-ms}
+ * par {@code lag-query} (ms, null si inconnu) ; un réplica injoignable ou en retard bascule les
+ * lectures sur le primaire jusqu'à la mesure suivante qui le trouve à jour.
+ * <p>
+ * Une connexion refusée par le réplica entre deux mesures est aussi servie par le primaire,
+ * sans attendre la mesure suivante pour les demandes qui suivent.
+ */
+@Slf4j
+public class ReplicaDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    /**
+     * Retard d'un réplica en flux continu : nul s'il a rejoué tout ce qu'il a reçu (primaire
+     * inactif), sinon âge de la dernière transaction rejouée. Un serveur hors récupération
+     * (doublure locale) est considéré à jour. Sans réception WAL en cours, la position reçue est
+     * figée et l'égalité ne prouve plus rien : retard inconnu (null), lectures sur le primaire.
+     * Le statut du récepteur n'est visible qu'avec {@code pg_read_all_stats} (ou {@code pg_monitor}).
+     */
+    public static final String POSTGRES_LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint
+            END
+            """;
+
+    private final DataSource primary;
+    private final long maxLagMillis;
+    private final String lagQuery;
+    private final Counter fallbacks;
+    private volatile boolean usable;
+    private volatile boolean checked;
+    private volatile long lagMillis = -1;
+
+    public ReplicaDataSource(DataSource replica, DataSource primary, long maxLagMillis, String lagQuery,
+                             MeterRegistry meterRegistry) {
+        super(replica);
+        this.primary = primary;
+        this.maxLagMillis = maxLagMillis;
+        this.lagQuery = lagQuery;
+        this.fallbacks = Counter.builder("db.replica.fallback")
+                .description("Connexions en lecture seule servies par le primaire (réplica en retard ou injoignable)")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.lag", this, r -> r.lagMillis)
+                .description("Dernier retard mesuré du réplica (ms, -1 si injoignable)")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.usable", this, r -> r.usable ? 1 : 0)
+                .description("1 si les lectures vont au réplica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (usable) {
+            try {
+                return obtainTargetDataSource().getConnection();
+            } catch (SQLException | RuntimeException e) {
+                if (usable) {
+                    usable = false;
+                    log.warn("Replica unavailable, reads go to the primary until the next check: {}", e.toString());
+                }
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.db.replica.check-interval-ms:2000}")
+    public void check() {
+        Long lag = null;
+        try (Connection connection = obtainTargetDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (rs.next()) {
+                    long value = rs.getLong(1);
+                    lag = rs.wasNull() ? null : value;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Replica lag check failed: {}", e.toString());
+        }
+        update(lag);
+    }
+
+    /**
+     * Applique une mesure de retard (null : réplica injoignable ou retard inconnu).
+     */
+    void update(Long lag) {
+        boolean fresh = lag != null && lag <= maxLagMillis;
+        if (fresh != usable || !checked) {
+            if (fresh) {
+                log.info("Replica caught up (lag {} ms), serving read-only transactions", lag);
+            } else if (lag == null) {
+                log.warn("Replica unreachable or lag unknown, reads go to the primary");
+            } else {
+                log.warn("Replica lag {} ms exceeds {} ms, reads go to the primary", lag, maxLagMillis);
+            }
+        }
+        lagMillis = lag == null ? -1 : lag;
+        usable = fresh;
+        checked = true;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.elearning.adaptive.repository;
 
+import com.elearning.adaptive.dto.SessionHistoryItem;
+import com.elearning.adaptive.dto.SessionInfo;
 import com.elearning.adaptive.entity.Session;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +25,49 @@ public interface SessionRepository extends JpaRepository<Session, String> {
 
     // Trouver toutes les sessions actives pour un étudiant
     List<Session> findByStudentIdAndStatus(Long studentId, String status);
+
+    // Sessions en cours d'une leçon, les plus récentes d'abord (abonnements aux stats en direct)
+    @Query("select s.id from Session s where s.lesson.id = :lessonId and s.status = 'ACTIVE' " +
+            "order by s.startedAt desc, s.id desc")
+    List<String> findActiveIdsByLesson(@Param("lessonId") Long lessonId, Limit limit);
+
+    // Nombre de sessions par statut (jauge sessions.active)
+    long countByStatus(String status);
+
+    /*
+     * Historique paginé par clé (startedAt, id) décroissante : chaque page est un parcours
+     * d'index borné (idx_sessions_student_started / idx_sessions_lesson_started), aussi rapide
+     * en fin de liste qu'au début. La condition redondante startedAt <= :afterStartedAt sert de
+     * borne à ce parcours.
+     */
+    String HISTORY_SELECT = "select new com.elearning.adaptive.dto.SessionHistoryItem(s.id, st.id, st.fullName, " +
+            "l.id, l.title, s.status, s.startedAt, s.endedAt, sm.eventCount, sm.scoreSum, sm.highCount) " +
+            "from Session s join s.student st join s.lesson l " +
+            "left join SessionSummary sm on sm.sessionId = s.id ";
+    String HISTORY_AFTER = "and s.startedAt <= :afterStartedAt " +
+            "and (s.startedAt < :afterStartedAt or s.id < :afterId) ";
+    String HISTORY_ORDER = "order by s.startedAt desc, s.id desc";
+
+    @Query(HISTORY_SELECT + "where s.student.id = :studentId " + HISTORY_ORDER)
+    List<SessionHistoryItem> findHistoryByStudent(@Param("studentId") Long studentId, Limit limit);
+
+    @Query(HISTORY_SELECT + "where s.student.id = :studentId " + HISTORY_AFTER + HISTORY_ORDER)
+    List<SessionHistoryItem> findHistoryByStudentAfter(@Param("studentId") Long studentId,
+                                                       @Param("afterStartedAt") OffsetDateTime afterStartedAt,
+                                                       @Param("afterId") String afterId,
+                                                       Limit limit);
+
+    @Query(HISTORY_SELECT + "where s.lesson.id = :lessonId " + HISTORY_ORDER)
+    List<SessionHistoryItem> findHistoryByLesson(@Param("lessonId") Long lessonId, Limit limit);
+
+    @Query(HISTORY_SELECT + "where s.lesson.id = :lessonId " + HISTORY_AFTER + HISTORY_ORDER)
+    List<SessionHistoryItem> findHistoryByLessonAfter(@Param("lessonId") Long lessonId,
+                                                      @Param("afterStartedAt") OffsetDateTime afterStartedAt,
+                                                      @Param("afterId") String afterId,
+                                                      Limit limit);
+
+    // Faits utiles à l'ingestion pour un lot de sessions (sans charger les entités)
+    @Query("select new com.elearning.adaptive.dto.SessionInfo(s.id, s.student.id, s.status, l.id, l.course.id, " +
+            "s.startedAt) from Session s join s.lesson l where s.id in :ids")
+    List<SessionInfo> findInfoByIds(@Param("ids") Collection<String> ids);
 }
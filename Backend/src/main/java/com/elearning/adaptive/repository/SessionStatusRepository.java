@@ -0,0 +1,77 @@
+package com.elearning.adaptive.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Accès SQL au statut des sessions, pour les traitements de masse (sessions inactives)
+ * qui ne chargent pas les entités.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SessionStatusRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Termine en une requête les sessions encore actives, chacune à son heure de fin, sauf celles
+     * qui ont reçu un événement après cette heure (alimentées via une autre instance).
+     * Contourne les listeners JPA : le cache des sessions est à invalider par l'appelant.
+     * @return sessions effectivement terminées (celles déjà closes ou actives ailleurs sont ignorées)
+     */
+    public List<String> endActive(List<String> sessionIds, List<Long> endedAtMillis) {
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbc.query("""
+                UPDATE sessions s SET status = 'ENDED', ended_at = to_timestamp(v.ended_ms / 1000.0)
+                FROM unnest(?, ?) AS v(id, ended_ms)
+                WHERE s.id = v.id AND s.status = 'ACTIVE'
+                  AND NOT EXISTS (SELECT 1 FROM emotion_events e
+                                  WHERE e.session_id = v.id AND e.timestamp > to_timestamp(v.ended_ms / 1000.0))
+                RETURNING s.id
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", sessionIds.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", endedAtMillis.toArray()));
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    /**
+     * Dernier événement enregistré des sessions encore actives parmi celles données (index
+     * idx_session_time) ; les sessions sans événement sont absentes du résultat.
+     */
+    public Map<String, Long> lastEventMillis(List<String> sessionIds) {
+        Map<String, Long> last = new HashMap<>();
+        if (sessionIds.isEmpty()) {
+            return last;
+        }
+        jdbc.query("""
+                SELECT s.id, (SELECT (extract(epoch FROM max(e.timestamp)) * 1000)::bigint
+                              FROM emotion_events e WHERE e.session_id = s.id)
+                FROM sessions s
+                WHERE s.id = ANY(?) AND s.status = 'ACTIVE'
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", sessionIds.toArray())),
+                (RowCallbackHandler) rs -> {
+                    long millis = rs.getLong(2);
+                    if (!rs.wasNull()) {
+                        last.put(rs.getString(1), millis);
+                    }
+                });
+        return last;
+    }
+
+    /**
+     * Parcourt les identifiants des sessions actives (index partiel idx_sessions_active).
+     */
+    public void forEachActiveId(Consumer<String> action) {
+        jdbc.query("SELECT id FROM sessions WHERE status = 'ACTIVE'",
+                (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+    }
+}
@@ -0,0 +1,40 @@
+package com.elearning.adaptive.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Principal;
+import java.util.Optional;
+
+/**
+ * Utilisateur authentifié placé dans le SecurityContext par {@link JwtAuthenticationFilter}.
+ */
+public record AuthenticatedUser(Long id, String email, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    /**
+     * Enseignant ou administrateur : accès aux données de toutes les sessions.
+     */
+    public boolean isStaff() {
+        return isAdmin() || "TEACHER".equals(role);
+    }
+
+    /**
+     * Utilisateur de la requête courante, s'il y en a un.
+     */
+    public static Optional<AuthenticatedUser> current() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+}
@@ -1,13 +1,14 @@
 package com.elearning.adaptive.security;
 
-import com.elearning.adaptive.repository.UserRepository;
-import io.jsonwebtoken.Claims;
+import com.elearning.adaptive.service.BackpressureException;
 import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -16,12 +17,26 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
-    private final UserRepository userRepo;
+    private final TokenAuthenticator authenticator;
+
+    // Durée de l'authentification seule (hors traitement de la requête), par résultat
+    private final Timer authenticated;
+    private final Timer unknownUser;
+    private final Timer rejected;
+    private final Timer busy;
+
+    public JwtAuthenticationFilter(TokenAuthenticator authenticator, MeterRegistry meterRegistry) {
+        this.authenticator = authenticator;
+        this.authenticated = timer(meterRegistry, "authenticated");
+        this.unknownUser = timer(meterRegistry, "unknown_user");
+        this.rejected = timer(meterRegistry, "rejected");
+        this.busy = timer(meterRegistry, "busy");
+    }
 
     @Override
     protected void doFilterInternal(
@@ -33,28 +48,47 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            long start = System.nanoTime();
             try {
                 String token = authHeader.substring(7);
-                Claims claims = jwtUtil.validateAndGetClaims(token);
-                String email = claims.getSubject();
+                Optional<AuthenticatedUser> user = authenticator.authenticate(token);
 
-                userRepo.findByEmail(email).ifPresent(user -> {
+                user.ifPresent(u -> {
                     var auth = new UsernamePasswordAuthenticationToken(
-                            email,
+                            u,
                             null,
-                            List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
+                            List.of(new SimpleGrantedAuthority("ROLE_" + u.role()))
                     );
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 });
+                (user.isPresent() ? authenticated : unknownUser).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
             } catch (JwtException e) {
                 // Token invalide ou expiré
+                rejected.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
                 response.setStatus(HttpStatus.UNAUTHORIZED.value());
                 return; // arrêt de la requête
+            } catch (RuntimeException e) {
+                // Lecture de l'état du compte refusée faute de connexion : 503 plutôt que 500
+                BackpressureException backpressure = BackpressureException.findIn(e);
+                if (backpressure == null) {
+                    throw e;
+                }
+                busy.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(backpressure.getRetryAfterSeconds()));
+                return;
             }
         }
 
         // Passer à la prochaine étape du filtre
         filterChain.doFilter(request, response);
     }
+
+    private static Timer timer(MeterRegistry registry, String outcome) {
+        return Timer.builder("security.jwt.filter")
+                .description("Durée d'authentification JWT d'une requête")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
 }
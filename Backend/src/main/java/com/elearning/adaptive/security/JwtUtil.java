@@ -1,13 +1,16 @@
 package com.elearning.adaptive.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Date;
@@ -22,6 +25,19 @@ public class JwtUtil {
     @Value("${app.jwt.expiration-ms}")
     private long expirationMs;
 
+    // Clé et parser construits une seule fois (le parser est thread-safe)
+    private SecretKey key;
+    private JwtParser parser;
+
+    /**
+     * Échoue au démarrage si le secret est trop court pour HS256 (32 octets minimum).
+     */
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
     /**
      * Génère un JWT pour un utilisateur avec son rôle.
      */
@@ -33,10 +49,14 @@ public class JwtUtil {
                 .claim("role", role)
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(now.plusMillis(expirationMs)))
-                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
     /**
      * Valide le JWT et retourne les claims.
      * @param token JWT à valider
@@ -44,10 +64,6 @@ public class JwtUtil {
      * @throws io.jsonwebtoken.JwtException si le token est invalide ou expiré
      */
     public Claims validateAndGetClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -1,7 +1,8 @@
 package com.elearning.adaptive.security;
 
-import com.elearning.adaptive.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -15,22 +16,33 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @RequiredArgsConstructor
 public class SecurityConfig {
 
-    private final JwtUtil jwtUtil;
-    private final UserRepository userRepo;
+    private final TokenAuthenticator tokenAuthenticator;
+    private final MeterRegistry meterRegistry;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 
-        JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(jwtUtil, userRepo);
+        JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(tokenAuthenticator, meterRegistry);
 
         http
                 .csrf(csrf -> csrf.disable()) // nouvelle syntaxe
                 .authorizeHttpRequests(auth -> auth
+                        // Fin d'une réponse asynchrone (export en flux) : la requête initiale est déjà autorisée
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/**",
+                                "/error", // sinon les erreurs (404, 503...) sont masquées par un 403
+                                "/ws/**", // authentification au handshake (JwtHandshakeInterceptor)
+                                "/internal/cluster/**", // secret partagé entre nœuds (ClusterController)
                                 "/v3/api-docs/**",
-                                "/swagger-ui/**"
+                                "/swagger-ui/**",
+                                "/actuator/health/**", // port de gestion uniquement (management.server.port)
+                                "/actuator/prometheus"
                         ).permitAll()
+                        .requestMatchers("/api/lessons/*/heatmap", "/api/courses/*/heatmap",
+                                "/api/lessons/*/events/export", "/api/lessons/*/sessions", "/api/lessons/*/stats",
+                                "/api/live/**", "/api/lessons/*/live/stats")
+                        .hasAnyRole("TEACHER", "ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session ->
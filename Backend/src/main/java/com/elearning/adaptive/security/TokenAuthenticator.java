@@ -0,0 +1,133 @@
+package com.elearning.adaptive.security;
+
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.UserRepository;
+import com.elearning.adaptive.service.CoalescingLoads;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Résout l'utilisateur d'un JWT.
+ * <ul>
+ *   <li>{@code stateless} (défaut) : le rôle vient du claim {@code role} ; les tokens déjà
+ *       vérifiés sont gardés en cache jusqu'à leur expiration, et l'état du compte
+ *       (id, {@code User.active}) est relu en base au plus toutes les
+ *       {@code user-status-staleness-seconds}. Un compte désactivé est donc refusé
+ *       au plus tard après ce délai ; un changement de rôle s'applique au prochain token.</li>
+ *   <li>{@code lookup} : lecture de l'utilisateur en base à chaque requête.</li>
+ * </ul>
+ */
+@Component
+public class TokenAuthenticator {
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepo;
+    private final boolean stateless;
+    private final Cache<String, VerifiedToken> tokens;
+    private final AsyncCache<String, UserStatus> statuses;
+
+    public TokenAuthenticator(
+            JwtUtil jwtUtil,
+            UserRepository userRepo,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.auth-mode:stateless}") String authMode,
+            @Value("${app.security.token-cache.max-size:10000}") long tokenCacheSize,
+            @Value("${app.security.user-status.max-size:10000}") long statusCacheSize,
+            @Value("${app.security.user-status.staleness-seconds:30}") long stalenessSeconds
+    ) {
+        this.jwtUtil = jwtUtil;
+        this.userRepo = userRepo;
+        this.stateless = !"lookup".equalsIgnoreCase(authMode);
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(statusCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(stalenessSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "jwt-tokens");
+        CaffeineCacheMetrics.monitor(meterRegistry, statuses, "user-status");
+    }
+
+    /**
+     * @return l'utilisateur du token, vide si le compte n'existe plus ou est désactivé.
+     * @throws JwtException si le token est invalide ou expiré.
+     */
+    public Optional<AuthenticatedUser> authenticate(String token) {
+        if (!stateless) {
+            String email = jwtUtil.validateAndGetClaims(token).getSubject();
+            return userRepo.findByEmail(email)
+                    .filter(User::isActive)
+                    .map(u -> new AuthenticatedUser(u.getId(), u.getEmail(), u.getRole().name()));
+        }
+
+        VerifiedToken verified = tokens.getIfPresent(token);
+        if (verified == null || verified.expiresAtMillis() <= System.currentTimeMillis()) {
+            verified = VerifiedToken.of(jwtUtil.validateAndGetClaims(token));
+            tokens.put(token, verified);
+        }
+        // Chargement hors verrou de la map, sur le thread appelant (voir CoalescingLoads)
+        UserStatus status = CoalescingLoads.get(statuses, verified.email(), this::loadStatus);
+        if (status == null || !status.active()) {
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedUser(status.id(), verified.email(), verified.role()));
+    }
+
+    private UserStatus loadStatus(String email) {
+        return userRepo.findByEmail(email)
+                .map(u -> new UserStatus(u.getId(), u.isActive()))
+                .orElse(null);
+    }
+
+    private record VerifiedToken(String email, String role, long expiresAtMillis) {
+
+        static VerifiedToken of(Claims claims) {
+            String role = claims.get("role", String.class);
+            if (claims.getExpiration() == null || role == null) {
+                throw new JwtException("Token without expiration or role");
+            }
+            return new VerifiedToken(claims.getSubject(), role, claims.getExpiration().getTime());
+        }
+    }
+
+    private record UserStatus(Long id, boolean active) {
+    }
+
+    /**
+     * Une entrée de cache ne survit pas à l'expiration du token.
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMs = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
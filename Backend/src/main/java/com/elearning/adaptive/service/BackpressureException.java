@@ -0,0 +1,44 @@
+package com.elearning.adaptive.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Levée lorsque le serveur est saturé : réponse 503 avec l'en-tête Retry-After
+ * pour que le client réessaie plus tard au lieu d'insister.
+ */
+public class BackpressureException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public BackpressureException(String reason, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Cherche une saturation dans la chaîne des causes (ex. refus de connexion enveloppé
+     * par le gestionnaire de transactions).
+     * @return l'exception trouvée, ou null.
+     */
+    public static BackpressureException findIn(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BackpressureException backpressure) {
+                return backpressure;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,107 @@
+package com.elearning.adaptive.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Chargements d'un {@link AsyncCache} exécutés sur le thread appelant, un seul chargement par clé
+ * à la fois (les appelants concurrents attendent le même résultat).
+ * <p>
+ * {@code Cache.get(key, loader)} exécute le loader sous le verrou {@code synchronized} d'une case
+ * de {@code ConcurrentHashMap} : une requête SQL y épinglerait le thread virtuel à son porteur.
+ * Ici seule l'insertion d'un futur se fait sous ce verrou ; le chargement a lieu ensuite, hors
+ * verrou et dans la transaction de l'appelant. Une invalidation pendant le chargement retire le
+ * futur : la valeur lue, peut-être périmée, n'est pas conservée. Un résultat null ou une
+ * exception ne sont pas mis en cache.
+ */
+public final class CoalescingLoads {
+
+    private CoalescingLoads() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        CompletableFuture<V> existing = cache.getIfPresent(key);
+        if (existing != null) {
+            return join(existing);
+        }
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> prior = cache.asMap().putIfAbsent(key, mine);
+        if (prior != null) {
+            return join(prior);
+        }
+        try {
+            V value = loader.apply(key);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Variante groupée : une seule invocation de {@code loader} pour toutes les clés absentes
+     * et non déjà en cours de chargement. Les clés introuvables sont absentes du résultat.
+     */
+    public static <K, V> Map<K, V> getAll(AsyncCache<K, V> cache, Collection<K> keys,
+                                          Function<List<K>, Map<K, V>> loader) {
+        ConcurrentMap<K, CompletableFuture<V>> map = cache.asMap();
+        Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> mine = new HashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> future = cache.getIfPresent(key);
+            if (future == null) {
+                CompletableFuture<V> created = new CompletableFuture<>();
+                future = map.putIfAbsent(key, created);
+                if (future == null) {
+                    future = created;
+                    mine.put(key, created);
+                }
+            }
+            pending.put(key, future);
+        }
+
+        if (!mine.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(mine.keySet()));
+                mine.forEach((key, future) -> future.complete(loaded.get(key)));
+            } catch (RuntimeException | Error e) {
+                mine.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+        }
+
+        Map<K, V> result = new HashMap<>();
+        pending.forEach((key, future) -> {
+            V value = join(future);
+            if (value != null) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+}
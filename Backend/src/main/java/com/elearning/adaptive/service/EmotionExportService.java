@@ -0,0 +1,159 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.codec.EventExportWriter;
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.repository.EmotionExportRepository;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Export en flux des événements bruts (réentraînement des modèles, relecture d'une session).
+ * <p>
+ * Les événements sont lus par curseur côté serveur et écrits au fil de l'eau : la mémoire
+ * utilisée ne dépend pas de la taille de l'export. Ordre : (session, timestamp, id) ; chaque ligne
+ * porte {@code sessionId}, {@code timestamp} et {@code id}, qu'un client repasse en
+ * {@code afterSession} / {@code afterTimestamp} / {@code afterId} pour reprendre un export
+ * interrompu juste après la dernière ligne reçue.
+ * <p>
+ * Un export occupe une connexion pendant toute sa durée : leur nombre simultané est borné
+ * ({@code app.export.max-concurrent}, 503 au-delà).
+ */
+@Slf4j
+@Service
+public class EmotionExportService {
+
+    private static final String SLOT_RELEASE = EmotionExportService.class.getName() + ".slot";
+
+    private final EmotionExportRepository exports;
+    private final SessionCache sessionCache;
+    private final TransactionTemplate readOnlyTx;
+    private final Semaphore slots;
+    private final long retryAfterSeconds;
+
+    public EmotionExportService(
+            EmotionExportRepository exports,
+            SessionCache sessionCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.export.max-concurrent:4}") int maxConcurrent,
+            @Value("${app.export.retry-after-seconds:5}") long retryAfterSeconds
+    ) {
+        this.exports = exports;
+        this.sessionCache = sessionCache;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.slots = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Événements d'une session (propriétaire, enseignant ou administrateur), dans [from, to).
+     */
+    public StreamingResponseBody exportSession(String sessionId, String mediaType,
+                                               OffsetDateTime from, OffsetDateTime to,
+                                               OffsetDateTime afterTimestamp, Long afterId) {
+        SessionInfo session = sessionCache.get(sessionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found"));
+        AuthenticatedUser user = AuthenticatedUser.current()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed"));
+        if (!user.isStaff() && !user.id().equals(session.studentId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Session belongs to another student");
+        }
+        return stream(mediaType, "session " + sessionId, writer ->
+                exports.streamSession(sessionId, from, to, afterTimestamp, afterId, writer::write));
+    }
+
+    /**
+     * Événements de toutes les sessions d'une leçon, session après session (accès contrôlé
+     * par SecurityConfig). La reprise commence à {@code afterSession}, après la clé
+     * ({@code afterTimestamp}, {@code afterId}) dans cette session.
+     */
+    public StreamingResponseBody exportLesson(long lessonId, String mediaType,
+                                              OffsetDateTime from, OffsetDateTime to,
+                                              String afterSession, OffsetDateTime afterTimestamp, Long afterId) {
+        return stream(mediaType, "lesson " + lessonId, writer -> {
+            List<String> sessionIds = exports.findSessionIdsByLesson(lessonId, afterSession);
+            for (String sessionId : sessionIds) {
+                boolean resumed = sessionId.equals(afterSession);
+                exports.streamSession(sessionId, from, to,
+                        resumed ? afterTimestamp : null, resumed ? afterId : null, writer::write);
+            }
+        });
+    }
+
+    /**
+     * Le permis est rendu une seule fois, à la fin du corps ou à la fin de la requête asynchrone :
+     * un corps jamais exécuté (tâche refusée, délai dépassé, client parti avant le démarrage)
+     * ne le garde pas.
+     */
+    private StreamingResponseBody stream(String mediaType, String what, ExportJob job) {
+        if (!slots.tryAcquire()) {
+            throw new BackpressureException("Too many exports in progress", retryAfterSeconds);
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                slots.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(currentRequest()).registerCallableInterceptor(SLOT_RELEASE,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        release.run();
+                    }
+                });
+        return out -> {
+            long start = System.currentTimeMillis();
+            try (EventExportWriter writer = EventExportWriter.create(mediaType, out)) {
+                readOnlyTx.executeWithoutResult(status -> job.run(writer));
+            } catch (UncheckedIOException e) {
+                // Client déconnecté : il reprendra avec la clé de la dernière ligne reçue
+                log.info("Export of {} interrupted after {} ms: {}", what, System.currentTimeMillis() - start,
+                        e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    @FunctionalInterface
+    private interface ExportJob {
+        void run(EventExportWriter writer);
+    }
+
+    /**
+     * Paramètre {@code format} d'un export vers le type de contenu de la réponse.
+     */
+    public static String mediaType(String format) {
+        return switch (format == null ? "ndjson" : format.toLowerCase()) {
+            case "ndjson", "jsonl" -> EventExportWriter.NDJSON;
+            case "csv" -> EventExportWriter.CSV;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format " + format);
+        };
+    }
+}
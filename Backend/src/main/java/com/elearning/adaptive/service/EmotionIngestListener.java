@@ -0,0 +1,14 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+
+/**
+ * Composant notifié de chaque événement émotionnel accepté à l'ingestion
+ * (agrégats en mémoire, déclencheurs...). Appelé après validation, une fois
+ * l'événement écrit en base ou mis en file d'écriture.
+ * Les implémentations doivent rester en O(1) et ne pas faire d'I/O bloquante.
+ */
+public interface EmotionIngestListener {
+
+    void onEvent(EmotionEvent event);
+}
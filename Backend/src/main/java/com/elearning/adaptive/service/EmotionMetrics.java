@@ -0,0 +1,166 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.repository.SessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métriques du pipeline d'ingestion et des statistiques de session.
+ * <ul>
+ *   <li>{@code emotion.ingest.events} : événements acceptés / rejetés, par motif / renvois
+ *       écartés en mémoire ({@code outcome=duplicate}) ;</li>
+ *   <li>{@code emotion.ingest.transaction} : durée de la transaction d'ingestion, commit compris ;</li>
+ *   <li>{@code emotion.ingest.batch.size} : taille des lots reçus ;</li>
+ *   <li>{@code emotion.ingest.rows} : lignes écrites, après compaction (à rapporter aux
+ *       événements acceptés pour le gain de stockage) ;</li>
+ *   <li>{@code emotion.stats.query} : calcul des stats, par source (mémoire, brut, agrégats) ;</li>
+ *   <li>{@code sessions.active} / {@code sessions.streaming} : sessions ouvertes en base /
+ *       ayant émis des événements dans l'horizon en mémoire.</li>
+ * </ul>
+ * Aucune étiquette ne porte d'identifiant de session : le nombre de séries reste fixe.
+ */
+@Component
+public class EmotionMetrics {
+
+    public static final String OPERATION_SINGLE = "single";
+    public static final String OPERATION_BATCH = "batch";
+
+    public static final String SOURCE_MEMORY = "memory";
+    public static final String SOURCE_RAW = "raw";
+    public static final String SOURCE_ROLLUP = "rollup";
+
+    private final SessionRepository sessionRepo;
+
+    private final Counter accepted;
+    private final Counter duplicates;
+    private final Map<IngestRejection, Counter> rejected = new EnumMap<>(IngestRejection.class);
+    private final DistributionSummary batchSizes;
+    // Clé : opération + "/" + issue, ou source des stats
+    private final Map<String, Timer> transactionTimers = new HashMap<>();
+    private final Map<String, Timer> statsTimers = new HashMap<>();
+    private final AtomicLong activeSessions = new AtomicLong();
+    private final Counter rows;
+    // Durée lissée des dernières transactions d'ingestion (mises à jour concurrentes non
+    // synchronisées : une mesure perdue de temps en temps est sans conséquence)
+    private volatile double recentTransactionMillis;
+
+    public EmotionMetrics(MeterRegistry meterRegistry,
+                          SessionRepository sessionRepo,
+                          SessionWindowAggregator windowAggregator) {
+        this.sessionRepo = sessionRepo;
+
+        this.accepted = Counter.builder("emotion.ingest.events")
+                .description("Événements émotionnels reçus")
+                .tag("outcome", "accepted")
+                .tag("reason", "none")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("emotion.ingest.events")
+                .description("Événements émotionnels reçus")
+                .tag("outcome", "duplicate")
+                .tag("reason", "none")
+                .register(meterRegistry);
+        for (IngestRejection reason : IngestRejection.values()) {
+            rejected.put(reason, Counter.builder("emotion.ingest.events")
+                    .description("Événements émotionnels reçus")
+                    .tag("outcome", "rejected")
+                    .tag("reason", reason.code())
+                    .register(meterRegistry));
+        }
+        this.rows = Counter.builder("emotion.ingest.rows")
+                .description("Lignes d'événements écrites (après compaction)")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("emotion.ingest.batch.size")
+                .description("Nombre d'événements par appel d'ingestion")
+                .register(meterRegistry);
+
+        for (String operation : List.of(OPERATION_SINGLE, OPERATION_BATCH)) {
+            for (String outcome : List.of("committed", "rolled_back")) {
+                transactionTimers.put(operation + "/" + outcome, Timer.builder("emotion.ingest.transaction")
+                        .description("Durée de la transaction d'ingestion, commit compris")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+        for (String source : List.of(SOURCE_MEMORY, SOURCE_RAW, SOURCE_ROLLUP)) {
+            statsTimers.put(source, Timer.builder("emotion.stats.query")
+                    .description("Calcul des statistiques d'une session")
+                    .tag("source", source)
+                    .register(meterRegistry));
+        }
+
+        Gauge.builder("sessions.active", activeSessions, AtomicLong::get)
+                .description("Sessions au statut ACTIVE (rafraîchi périodiquement)")
+                .register(meterRegistry);
+        Gauge.builder("sessions.streaming", windowAggregator, SessionWindowAggregator::sessionCount)
+                .description("Sessions ayant émis des événements dans l'horizon en mémoire")
+                .register(meterRegistry);
+    }
+
+    public void accepted(int count) {
+        accepted.increment(count);
+    }
+
+    public void rejected(IngestRejection reason, int count) {
+        rejected.get(reason).increment(count);
+    }
+
+    public void duplicates(int count) {
+        duplicates.increment(count);
+    }
+
+    public void batchReceived(int size) {
+        batchSizes.record(size);
+    }
+
+    public void rowsWritten(int count) {
+        rows.increment(count);
+    }
+
+    public double recentTransactionMillis() {
+        return recentTransactionMillis;
+    }
+
+    /**
+     * Mesure la transaction en cours jusqu'à sa fin (flush et commit compris).
+     * À appeler au début de la méthode transactionnelle ; sans transaction, ne mesure rien.
+     */
+    public void timeTransaction(String operation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        long start = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                String outcome = status == STATUS_COMMITTED ? "committed" : "rolled_back";
+                long elapsed = System.nanoTime() - start;
+                transactionTimers.get(operation + "/" + outcome).record(elapsed, TimeUnit.NANOSECONDS);
+                recentTransactionMillis += 0.1 * (elapsed / 1e6 - recentTransactionMillis);
+            }
+        });
+    }
+
+    public void statsServed(Timer.Sample sample, String source) {
+        sample.stop(statsTimers.get(source));
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.active-sessions-refresh-ms:30000}")
+    public void refreshActiveSessions() {
+        activeSessions.set(sessionRepo.countByStatus("ACTIVE"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Rétention des événements bruts : ne sont gardés que ceux des {@code raw-horizon-days}
+ * derniers jours, et jamais ceux pas encore agrégés (au-delà du watermark de rollup).
+ * <p>
+ * Si {@code emotion_events} est partitionnée par jour (migration V6), la purge supprime des
+ * partitions entières et le job crée à l'avance celles des jours suivants. Sinon (schéma créé
+ * par Hibernate), repli sur des DELETE par lots, au plus {@code max-delete-batches} par passage :
+ * le job partage le thread des tâches planifiées, un arriéré est résorbé sur plusieurs passages.
+ */
+@Slf4j
+@Component
+public class EmotionRetentionJob {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbc;
+    private final EmotionRollupRepository rollups;
+
+    @Value("${app.retention.raw-horizon-days:30}")
+    private int rawHorizonDays;
+
+    @Value("${app.retention.partition-days-ahead:7}")
+    private int partitionDaysAhead;
+
+    @Value("${app.retention.delete-batch-size:10000}")
+    private int deleteBatchSize;
+
+    @Value("${app.retention.max-delete-batches:50}")
+    private int maxDeleteBatches;
+
+    public EmotionRetentionJob(JdbcTemplate jdbc, EmotionRollupRepository rollups) {
+        this.jdbc = jdbc;
+        this.rollups = rollups;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.retention.partition-cron:0 5 0 * * *}", zone = "UTC")
+    public void ensurePartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        // Les partitions sont contiguës : on repart de la borne haute la plus récente
+        OffsetDateTime maxUpper = partitions().stream()
+                .map(Partition::upperBound)
+                .max(OffsetDateTime::compareTo)
+                .orElse(null);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate day = maxUpper == null ? today : maxUpper.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        for (; !day.isAfter(today.plusDays(partitionDaysAhead)); day = day.plusDays(1)) {
+            String name = "emotion_events_p" + day.format(PARTITION_SUFFIX);
+            try {
+                jdbc.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF emotion_events"
+                        + " FOR VALUES FROM ('" + day + " 00:00:00+00') TO ('" + day.plusDays(1) + " 00:00:00+00')");
+            } catch (DataAccessException e) {
+                // ex. lignes de ce jour déjà présentes dans la partition par défaut
+                log.warn("Could not create partition {}", name, e);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${app.retention.purge-cron:0 15 * * * *}", zone = "UTC")
+    public void purge() {
+        OffsetDateTime watermark = rollups.findWatermark(EmotionRollupRepository.MINUTE_ROLLUP).orElse(null);
+        if (watermark == null) {
+            return; // rien d'agrégé : on ne supprime rien
+        }
+        OffsetDateTime horizon = OffsetDateTime.now(ZoneOffset.UTC).minusDays(rawHorizonDays);
+        OffsetDateTime cutoff = horizon.isBefore(watermark) ? horizon : watermark;
+
+        if (isPartitioned()) {
+            dropPartitionsBefore(cutoff);
+        } else {
+            deleteInBatches(cutoff);
+        }
+    }
+
+    private void dropPartitionsBefore(OffsetDateTime cutoff) {
+        for (Partition p : partitions()) {
+            if (!p.upperBound().isAfter(cutoff)) {
+                jdbc.execute("DROP TABLE \"" + p.name().replace("\"", "\"\"") + "\"");
+                log.info("Dropped raw emotion partition {} (before {})", p.name(), p.upperBound());
+            }
+        }
+    }
+
+    private void deleteInBatches(OffsetDateTime cutoff) {
+        long total = 0;
+        int batches = 0;
+        int deleted;
+        do {
+            deleted = jdbc.update("DELETE FROM emotion_events WHERE id IN "
+                    + "(SELECT id FROM emotion_events WHERE timestamp < ? LIMIT ?)", cutoff, deleteBatchSize);
+            total += deleted;
+            batches++;
+        } while (deleted == deleteBatchSize && batches < maxDeleteBatches);
+        if (total > 0) {
+            log.info("Deleted {} raw emotion events before {} (table not partitioned{})", total, cutoff,
+                    deleted == deleteBatchSize ? ", more left for the next run" : "");
+        }
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('emotion_events'))",
+                Boolean.class));
+    }
+
+    /**
+     * Partitions bornées (hors partition par défaut), avec leur borne haute exclusive.
+     */
+    private List<Partition> partitions() {
+        return jdbc.query("""
+                SELECT name, upper_bound FROM (
+                    SELECT c.relname AS name,
+                           substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \\(''([^'']+)''\\)')::timestamptz
+                               AS upper_bound
+                    FROM pg_inherits i
+                    JOIN pg_class c ON c.oid = i.inhrelid
+                    WHERE i.inhparent = 'emotion_events'::regclass
+                ) p
+                WHERE upper_bound IS NOT NULL
+                """, (rs, i) -> new Partition(rs.getString(1), rs.getObject(2, OffsetDateTime.class)));
+    }
+
+    private record Partition(String name, OffsetDateTime upperBound) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrège incrémentalement les événements bruts en minutes ({@code emotion_minute_rollups}).
+ * <p>
+ * Chaque passage traite les minutes complètes entre le watermark et {@code now - lag}, par tranches
+ * de {@code max-span-minutes} ; agrégats et watermark sont écrits dans la même transaction.
+ * Le délai {@code lag} laisse arriver les événements en retard (file write-behind, réseau).
+ * Un événement reçu après l'agrégation de sa minute est noté à l'ingestion et sa minute est
+ * réagrégée aux deux passages suivants (le second couvre une écriture encore en file au premier).
+ * Le retard accepté est borné à l'ingestion ({@code app.ingest.clock-skew.max-age-seconds}).
+ */
+@Slf4j
+@Component
+public class EmotionRollupJob implements EmotionIngestListener {
+
+    private static final long MINUTE_MS = 60_000;
+
+    // Minutes (epoch ms) ayant reçu un événement potentiellement déjà agrégé
+    private final Set<Long> lateMinutes = ConcurrentHashMap.newKeySet();
+    // Minutes réagrégées au passage précédent, rejouées une seconde fois (thread planifié seul)
+    private Set<Long> settlingMinutes = Set.of();
+
+    private final EmotionRollupRepository rollups;
+    private final TransactionTemplate tx;
+    private final Duration lag;
+    private final Duration maxSpan;
+
+    public EmotionRollupJob(
+            EmotionRollupRepository rollups,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.retention.rollup.lag-seconds:120}") long lagSeconds,
+            @Value("${app.retention.rollup.max-span-minutes:360}") long maxSpanMinutes
+    ) {
+        this.rollups = rollups;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.lag = Duration.ofSeconds(lagSeconds);
+        this.maxSpan = Duration.ofMinutes(maxSpanMinutes);
+    }
+
+    /**
+     * Le watermark n'atteint jamais {@code now - lag} : un événement plus récent ne peut être en retard.
+     */
+    @Override
+    public void onEvent(EmotionEvent event) {
+        long epochMillis = event.getTimestamp().toInstant().toEpochMilli();
+        if (epochMillis < System.currentTimeMillis() - lag.toMillis()) {
+            lateMinutes.add(Math.floorDiv(epochMillis, MINUTE_MS) * MINUTE_MS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.retention.rollup.interval-ms:60000}",
+            initialDelayString = "${app.retention.rollup.initial-delay-ms:30000}")
+    public void rollUp() {
+        reRollLateMinutes();
+        OffsetDateTime upper = OffsetDateTime.now(ZoneOffset.UTC).minus(lag).truncatedTo(ChronoUnit.MINUTES);
+        OffsetDateTime from = startingPoint(upper);
+        while (from != null && from.isBefore(upper)) {
+            OffsetDateTime to = from.plus(maxSpan).isBefore(upper) ? from.plus(maxSpan) : upper;
+            from = rollUpRange(from, to);
+        }
+    }
+
+    /**
+     * @return fin de la plage agrégée, ou null si une autre instance détient le verrou
+     */
+    private OffsetDateTime rollUpRange(OffsetDateTime from, OffsetDateTime to) {
+        return tx.execute(status -> {
+            if (!rollups.tryLock(EmotionRollupRepository.MINUTE_ROLLUP)) {
+                return null;
+            }
+            // Relu sous verrou : une autre instance a pu avancer entre-temps
+            OffsetDateTime current = rollups.findWatermark(EmotionRollupRepository.MINUTE_ROLLUP).orElse(from);
+            if (!current.isBefore(to)) {
+                return current;
+            }
+            long start = System.nanoTime();
+            List<String> sessions = rollups.rollUp(current, to);
+            // Totaux des sessions touchées, recalculés dans la même transaction que leurs minutes
+            rollups.refreshSummaries(sessions);
+            rollups.saveWatermark(EmotionRollupRepository.MINUTE_ROLLUP, to);
+            log.debug("Rolled up [{}, {}) for {} sessions in {} ms",
+                    current, to, sessions.size(), (System.nanoTime() - start) / 1_000_000);
+            return to;
+        });
+    }
+
+    /**
+     * Réagrège les minutes déjà couvertes par le watermark qui ont reçu des événements en retard.
+     * Verrou pris par une autre instance : les minutes sont gardées pour le passage suivant.
+     */
+    private void reRollLateMinutes() {
+        Set<Long> minutes = new HashSet<>(settlingMinutes);
+        Set<Long> arrived = new HashSet<>();
+        for (Long minute : lateMinutes) {
+            lateMinutes.remove(minute);
+            arrived.add(minute);
+        }
+        minutes.addAll(arrived);
+        if (minutes.isEmpty()) {
+            return;
+        }
+        Integer reRolled = tx.execute(status -> {
+            if (!rollups.tryLock(EmotionRollupRepository.MINUTE_ROLLUP)) {
+                return null;
+            }
+            OffsetDateTime watermark = rollups.findWatermark(EmotionRollupRepository.MINUTE_ROLLUP).orElse(null);
+            if (watermark == null) {
+                return 0;
+            }
+            Set<String> sessions = new HashSet<>();
+            int count = 0;
+            for (long minute : minutes) {
+                OffsetDateTime from = OffsetDateTime.ofInstant(Instant.ofEpochMilli(minute), ZoneOffset.UTC);
+                // Minutes pas encore agrégées : le passage normal s'en charge
+                if (from.isBefore(watermark)) {
+                    sessions.addAll(rollups.rollUp(from, from.plusMinutes(1)));
+                    count++;
+                }
+            }
+            rollups.refreshSummaries(sessions);
+            return count;
+        });
+        if (reRolled == null) {
+            lateMinutes.addAll(arrived);
+            return;
+        }
+        settlingMinutes = arrived;
+        if (reRolled > 0) {
+            log.debug("Re-rolled {} minutes after late events", reRolled);
+        }
+    }
+
+    private OffsetDateTime startingPoint(OffsetDateTime upper) {
+        Optional<OffsetDateTime> watermark = rollups.findWatermark(EmotionRollupRepository.MINUTE_ROLLUP);
+        if (watermark.isPresent()) {
+            return watermark.get();
+        }
+        // Premier passage : depuis le plus ancien événement (ou rien à faire si table vide)
+        return rollups.findFirstEventTime()
+                .map(t -> t.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES))
+                .orElse(upper);
+    }
+}
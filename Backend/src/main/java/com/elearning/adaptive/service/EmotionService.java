@@ -1,18 +1,30 @@
 package com.elearning.adaptive.service;
 
+import com.elearning.adaptive.dto.BatchIngestResult;
 import com.elearning.adaptive.dto.EmotionEventDTO;
 import com.elearning.adaptive.dto.SessionStats;
 import com.elearning.adaptive.entity.EmotionEvent;
 
+import java.util.List;
+
 public interface EmotionService {
 
     /**
      * Enregistre un nouvel événement émotionnel.
      * @param dto Données de l'événement émotionnel.
-     * @return L'entité EmotionEvent persistée.
+     * @return L'entité EmotionEvent persistée, ou null si son numéro de séquence a déjà été reçu.
      */
     EmotionEvent recordEmotion(EmotionEventDTO dto);
 
+    /**
+     * Enregistre un lot d'événements émotionnels en une seule transaction.
+     * Les événements invalides sont ignorés et comptabilisés par motif de rejet.
+     * Les renvois (numéro de séquence déjà reçu) sont ignorés et comptés à part.
+     * @param dtos Événements à enregistrer.
+     * @return Le nombre d'événements acceptés et rejetés.
+     */
+    BatchIngestResult recordEmotions(List<EmotionEventDTO> dtos);
+
     /**
      * Calcule les statistiques d'une session sur une fenêtre de temps donnée.
      * @param sessionId L'ID de la session.
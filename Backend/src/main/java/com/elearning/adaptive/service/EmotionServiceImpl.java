@@ -1,24 +1,78 @@
 package com.elearning.adaptive.service;
 
+import com.elearning.adaptive.codec.EmotionMetaJson;
+import com.elearning.adaptive.dto.BatchIngestResult;
 import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.elearning.adaptive.dto.SessionInfo;
 import com.elearning.adaptive.dto.SessionStats;
 import com.elearning.adaptive.entity.EmotionEvent;
-import com.elearning.adaptive.repository.EmotionEventRepository;
-import com.elearning.adaptive.repository.SessionRepository;
+import com.elearning.adaptive.repository.EmotionEventInsertRepository;
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class EmotionServiceImpl implements EmotionService {
 
-    private final EmotionEventRepository repo;
-    private final SessionRepository sessionRepo;
+    private final EmotionEventInsertRepository inserts;
+    private final SessionCache sessionCache;
+    private final EmotionWriteBehindQueue writeBehind;
+    private final SessionWindowAggregator windowAggregator;
+    private final List<EmotionIngestListener> listeners;
+    private final EmotionRollupRepository rollups;
+    private final EmotionMetrics metrics;
+    private final EventCompactor compactor;
+    private final SequenceTracker sequences;
+    private final PlatformTransactionManager transactionManager;
+
+    // Lecture seule réservée au repli SQL des stats : la voie en mémoire ne prend pas de connexion
+    private TransactionTemplate readOnlyTx;
+
+    @Value("${app.ingest.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${app.retention.raw-horizon-days:30}")
+    private int rawHorizonDays;
+
+    @Value("${app.ingest.clock-skew.max-ahead-seconds:60}")
+    private long maxAheadSeconds;
+
+    @Value("${app.ingest.clock-skew.max-age-seconds:86400}")
+    private long maxAgeSeconds;
+
+    @PostConstruct
+    void init() {
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
 
     /**
      * Enregistre un nouvel événement émotionnel après validation minimale.
@@ -26,51 +80,308 @@ public class EmotionServiceImpl implements EmotionService {
     @Override
     @Transactional
     public EmotionEvent recordEmotion(EmotionEventDTO dto) {
-        // Vérification que la session existe
-        var sessionOpt = sessionRepo.findById(dto.sessionId());
-        if (sessionOpt.isEmpty()) {
+        metrics.timeTransaction(EmotionMetrics.OPERATION_SINGLE);
+        metrics.batchReceived(1);
+
+        // Vérification que la session existe, est active et appartient à l'appelant (via le cache)
+        SessionInfo session = sessionCache.get(dto.sessionId()).orElse(null);
+        if (session == null) {
+            metrics.rejected(IngestRejection.UNKNOWN_SESSION, 1);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found");
         }
+        checkOwner(session);
+        if (!session.isActive()) {
+            metrics.rejected(IngestRejection.SESSION_NOT_ACTIVE, 1);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Session not active");
+        }
 
         // Conversion du timestamp
-        OffsetDateTime ts = OffsetDateTime.parse(dto.timestamp());
+        OffsetDateTime ts = parseTimestamp(dto);
+        IngestRejection rejection = validate(dto, ts);
+        if (rejection != null) {
+            metrics.rejected(rejection, 1);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid event: " + rejection.code());
+        }
+        if (dto.seq() != null && sequences.isDuplicate(dto.sessionId(), dto.seq())) {
+            metrics.duplicates(1);
+            return null;
+        }
 
-        // Création de l'entité
-        EmotionEvent ev = EmotionEvent.builder()
-                .sessionId(dto.sessionId())
-                .timestamp(ts)
-                .frustrationScore(dto.frustrationScore())
-                .faceDetected(dto.faceDetected())
-                .metaJson(dto.metaJson())
-                .build();
+        EmotionEvent ev = toEntity(dto, ts);
 
-        // Persistance
-        return repo.save(ev);
+        // Mode write-behind : l'événement est écrit plus tard par les workers (ID encore nul)
+        if (writeBehind.isEnabled()) {
+            writeBehind.enqueueAll(List.of(ev));
+            metrics.accepted(1);
+            metrics.rowsWritten(1);
+            publish(List.of(ev));
+            return ev;
+        }
+
+        // Persistance ; un renvoi déjà en base (inconnu du filtre en mémoire) n'est pas compté
+        if (!inserts.insertSkippingReplays(List.of(ev)).isEmpty()) {
+            metrics.duplicates(1);
+            return null;
+        }
+        metrics.accepted(1);
+        metrics.rowsWritten(1);
+        publish(List.of(ev));
+        return ev;
+    }
+
+    /**
+     * Enregistre un lot d'événements : une seule requête pour vérifier les sessions,
+     * puis des INSERT regroupés par Hibernate (hibernate.jdbc.batch_size).
+     */
+    @Override
+    @Transactional
+    public BatchIngestResult recordEmotions(List<EmotionEventDTO> dtos) {
+        if (dtos.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch too large (max " + maxBatchSize + " events)");
+        }
+        metrics.timeTransaction(EmotionMetrics.OPERATION_BATCH);
+        metrics.batchReceived(dtos.size());
+
+        // Vérification groupée des sessions référencées par le lot (une requête au plus pour les absentes du cache)
+        Set<String> sessionIds = dtos.stream()
+                .filter(Objects::nonNull)
+                .map(EmotionEventDTO::sessionId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, SessionInfo> sessions = sessionIds.isEmpty() ? Map.of() : sessionCache.getAll(sessionIds);
+        sessions.values().forEach(this::checkOwner);
+
+        List<EmotionEvent> accepted = new ArrayList<>(dtos.size());
+        Map<IngestRejection, Integer> rejections = new EnumMap<>(IngestRejection.class);
+        // Numéros déjà vus dans ce lot, par session (un lot renvoyé en partie dans lui-même)
+        Map<String, Set<Long>> batchSeqs = new HashMap<>();
+        int duplicates = 0;
+
+        for (EmotionEventDTO dto : dtos) {
+            OffsetDateTime ts = null;
+            SessionInfo session = dto == null || dto.sessionId() == null ? null : sessions.get(dto.sessionId());
+            IngestRejection rejection;
+            if (dto == null) {
+                rejection = IngestRejection.MISSING_EVENT;
+            } else if (session == null) {
+                rejection = IngestRejection.UNKNOWN_SESSION;
+            } else if (!session.isActive()) {
+                rejection = IngestRejection.SESSION_NOT_ACTIVE;
+            } else {
+                ts = parseTimestamp(dto);
+                rejection = validate(dto, ts);
+            }
+            if (rejection != null) {
+                rejections.merge(rejection, 1, Integer::sum);
+            } else if (dto.seq() != null && (sequences.isDuplicate(dto.sessionId(), dto.seq())
+                    || !batchSeqs.computeIfAbsent(dto.sessionId(), id -> new HashSet<>()).add(dto.seq()))) {
+                duplicates++;
+            } else {
+                accepted.add(toEntity(dto, ts));
+            }
+        }
+
+        // Les suites quasi identiques sont écrites en une ligne ; les listeners voient chaque événement
+        List<EmotionEvent> rows = compactor.compact(accepted);
+        boolean queued = writeBehind.isEnabled();
+        int written = rows.size();
+        if (queued) {
+            writeBehind.enqueueAll(rows);
+        } else {
+            List<EmotionEvent> replays = inserts.insertSkippingReplays(rows);
+            if (!replays.isEmpty()) {
+                written -= replays.size();
+                int before = accepted.size();
+                accepted = withoutReplays(accepted, replays);
+                duplicates += before - accepted.size();
+            }
+        }
+        publish(accepted);
+
+        metrics.accepted(accepted.size());
+        metrics.rowsWritten(written);
+        metrics.duplicates(duplicates);
+        rejections.forEach(metrics::rejected);
+        Map<String, Integer> byReason = new LinkedHashMap<>();
+        rejections.forEach((reason, count) -> byReason.put(reason.code(), count));
+        return new BatchIngestResult(accepted.size(), dtos.size() - accepted.size() - duplicates, duplicates,
+                byReason, queued, null);
+    }
+
+    /**
+     * Événements acceptés moins ceux que couvrent les lignes écartées comme renvois en base
+     * (une ligne compactée couvre les numéros seq .. seq + repeatCount - 1 de sa session).
+     */
+    private static List<EmotionEvent> withoutReplays(List<EmotionEvent> accepted, List<EmotionEvent> replays) {
+        return accepted.stream()
+                .filter(ev -> ev.getSeq() == null || replays.stream().noneMatch(row ->
+                        row.getSessionId().equals(ev.getSessionId())
+                                && ev.getSeq() >= row.getSeq()
+                                && ev.getSeq() < row.getSeq() + row.getRepeatCount()))
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     /**
      * Calcule les statistiques pour une session sur une fenêtre temporelle donnée.
+     * Servies par les agrégats en mémoire ; au-delà de l'horizon en mémoire, agrégation SQL
+     * des événements bruts (esquisse de quantiles comprise), complétée par les agrégats par
+     * minute au-delà de l'horizon brut (sans quantiles). Le lissage est recalculé sur les
+     * événements bruts récents. Seul ce repli SQL ouvre une transaction (lecture seule).
      */
     @Override
     public SessionStats getSessionStats(String sessionId, int windowSeconds) {
-        OffsetDateTime since = OffsetDateTime.now().minusSeconds(windowSeconds);
+        Timer.Sample sample = Timer.start();
+        SessionStats inMemory = windowAggregator.stats(sessionId, windowSeconds);
+        if (inMemory != null) {
+            metrics.statsServed(sample, EmotionMetrics.SOURCE_MEMORY);
+            return inMemory;
+        }
+        return readOnlyTx.execute(status -> statsFromDatabase(sessionId, windowSeconds, sample));
+    }
 
-        var events = repo.findBySessionIdAndTimestampAfter(sessionId, since);
+    private SessionStats statsFromDatabase(String sessionId, int windowSeconds, Timer.Sample sample) {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime since = now.minusSeconds(windowSeconds);
+        StatsAccumulator acc = new StatsAccumulator(windowAggregator.sketchBins());
+        // Au-delà de l'horizon brut : minutes agrégées jusqu'au watermark, puis événements bruts
+        // pas encore agrégés. La première minute est comptée entière (précision : une minute).
+        OffsetDateTime watermark = since.isBefore(now.minusDays(rawHorizonDays))
+                ? rollups.findWatermark(EmotionRollupRepository.MINUTE_ROLLUP).orElse(null)
+                : null;
+        String source;
+        if (watermark == null || !watermark.isAfter(since)) {
+            acc.add(rollups.rawAggregate(sessionId, since));
+            acc.addHistogram(rollups.rawHistogram(List.of(sessionId), since, windowAggregator.sketchBins()));
+            source = EmotionMetrics.SOURCE_RAW;
+        } else {
+            acc.add(rollups.rollupAggregate(sessionId, since.truncatedTo(ChronoUnit.MINUTES), watermark));
+            acc.add(rollups.rawAggregate(sessionId, watermark));
+            acc.withoutQuantiles();
+            source = EmotionMetrics.SOURCE_ROLLUP;
+        }
+        SessionStats stats = acc.toSessionStats(sessionId, recentTrend(sessionId, since, now));
+        metrics.statsServed(sample, source);
+        return stats;
+    }
 
-        double avg = events.stream()
-                .mapToDouble(EmotionEvent::getFrustrationScore)
-                .average()
-                .orElse(0.0);
+    // Au-delà de 10 constantes de temps, le poids d'un score dans le lissage est inférieur à 5e-5 :
+    // seuls les événements plus récents sont relus
+    private EwmaTrend recentTrend(String sessionId, OffsetDateTime since, OffsetDateTime now) {
+        double tauMillis = windowAggregator.trendTauMillis();
+        OffsetDateTime lookback = now.minus((long) (10 * tauMillis), ChronoUnit.MILLIS);
+        EwmaTrend trend = new EwmaTrend();
+        rollups.forEachScore(sessionId, since.isAfter(lookback) ? since : lookback,
+                (epochMillis, score) -> trend.update(epochMillis, score, tauMillis));
+        return trend;
+    }
 
-        double max = events.stream()
-                .mapToDouble(EmotionEvent::getFrustrationScore)
-                .max()
-                .orElse(0.0);
+    /**
+     * Seul l'étudiant propriétaire de la session (ou un administrateur) peut y envoyer des événements.
+     */
+    private void checkOwner(SessionInfo session) {
+        AuthenticatedUser user = AuthenticatedUser.current()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed"));
+        if (!user.isAdmin() && !user.id().equals(session.studentId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Session belongs to another student");
+        }
+    }
 
-        long countHigh = events.stream()
-                .filter(e -> e.getFrustrationScore() > 0.7)
-                .count();
+    /**
+     * Notifie les listeners d'ingestion, après commit si une transaction est en cours
+     * (un lot annulé ne doit pas fausser les agrégats en mémoire).
+     */
+    private void publish(List<EmotionEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyListeners(events);
+                }
+            });
+        } else {
+            notifyListeners(events);
+        }
+    }
 
-        return new SessionStats(sessionId, avg, max, countHigh, events.size());
+    private void notifyListeners(List<EmotionEvent> events) {
+        for (EmotionEvent ev : events) {
+            for (EmotionIngestListener listener : listeners) {
+                listener.onEvent(ev);
+            }
+        }
+    }
+
+    /**
+     * Contrôle le contenu d'un événement (hors existence de la session).
+     * @return le motif de rejet, ou null si l'événement est valide.
+     */
+    private IngestRejection validate(EmotionEventDTO dto, OffsetDateTime ts) {
+        if (ts == null) {
+            return IngestRejection.BAD_TIMESTAMP;
+        }
+        // Horloge client trop en avance : ferait avancer les fenêtres en mémoire et ignorer les
+        // événements suivants ; trop ancien : derrière les agrégats déjà calculés
+        Instant at = ts.toInstant();
+        Instant now = Instant.now();
+        if (at.isAfter(now.plusSeconds(maxAheadSeconds)) || at.isBefore(now.minusSeconds(maxAgeSeconds))) {
+            return IngestRejection.CLOCK_SKEW;
+        }
+        double score = dto.frustrationScore();
+        if (Double.isNaN(score) || score < 0.0 || score > 1.0) {
+            return IngestRejection.INVALID_SCORE;
+        }
+        if (dto.seq() != null && dto.seq() < 0) {
+            return IngestRejection.INVALID_SEQUENCE;
+        }
+        return null;
+    }
+
+    private OffsetDateTime parseTimestamp(EmotionEventDTO dto) {
+        if (dto.timestamp() == null && dto.timestampMillis() == null) {
+            return null;
+        }
+        try {
+            return dto.timestampMillis() != null
+                    ? OffsetDateTime.ofInstant(Instant.ofEpochMilli(dto.timestampMillis()), ZoneOffset.UTC)
+                    : OffsetDateTime.parse(dto.timestamp());
+        } catch (DateTimeException e) { // format invalide ou hors de la plage des dates
+            return null;
+        }
+    }
+
+    /**
+     * Les métadonnées connues sont analysées une seule fois ici et rangées en colonnes typées ;
+     * seules les clés inconnues restent en JSON dans {@code metaJson}.
+     */
+    private EmotionEvent toEntity(EmotionEventDTO dto, OffsetDateTime ts) {
+        EmotionMetaJson.Parts parts = EmotionMetaJson.split(dto.metaJson());
+        float[] emotions = dto.emotions() != null ? dto.emotions() : parts.emotions();
+        float[] bbox = dto.bbox() != null ? dto.bbox() : parts.bbox();
+        String extraJson = parts.extraJson();
+        // Vecteur ou boîte de taille inattendue : conservés dans le débordement plutôt que perdus
+        if (emotions != null && emotions.length != EmotionEvent.EMOTION_VECTOR_LENGTH) {
+            extraJson = EmotionMetaJson.merge(emotions, null, extraJson);
+            emotions = null;
+        }
+        if (bbox != null && bbox.length != 4) {
+            extraJson = EmotionMetaJson.merge(null, bbox, extraJson);
+            bbox = null;
+        }
+        EmotionEvent.EmotionEventBuilder builder = EmotionEvent.builder()
+                .sessionId(dto.sessionId())
+                .timestamp(ts)
+                .frustrationScore(dto.frustrationScore())
+                .faceDetected(dto.faceDetected())
+                .emotionVector(emotions)
+                .metaJson(extraJson)
+                .seq(dto.seq());
+        if (bbox != null) {
+            builder.bboxX(bbox[0]).bboxY(bbox[1]).bboxW(bbox[2]).bboxH(bbox[3]);
+        }
+        return builder.build();
     }
 }
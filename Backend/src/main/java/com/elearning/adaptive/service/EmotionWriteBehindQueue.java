@@ -0,0 +1,251 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionEventInsertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File d'écriture différée (write-behind) des événements émotionnels.
+ * <p>
+ * Les requêtes d'ingestion sont acquittées dès que les événements sont en file ;
+ * un pool de workers vide la file par lots (taille max / délai max) vers la base.
+ * La capacité est bornée : un lot qui ne tient pas dans la file est refusé en entier
+ * (503 + Retry-After). Activé avec {@code app.ingest.mode=write-behind}.
+ * Un renvoi déjà en base n'est écarté qu'à l'écriture, une fois acquitté et vu des listeners :
+ * il est compté à part ({@code emotion.writebehind.replays}). Un lot perdu après
+ * {@value #MAX_FLUSH_ATTEMPTS} essais est retiré du {@link SequenceTracker} : son renvoi par le
+ * client n'est pas pris pour un doublon.
+ */
+@Slf4j
+@Component
+public class EmotionWriteBehindQueue implements SmartLifecycle {
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final EmotionEventInsertRepository inserts;
+    private final SequenceTracker sequences;
+    private final TransactionTemplate tx;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ingest.mode:sync}")
+    private String mode;
+
+    @Value("${app.ingest.write-behind.capacity:50000}")
+    private int capacity;
+
+    @Value("${app.ingest.write-behind.workers:2}")
+    private int workerCount;
+
+    @Value("${app.ingest.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.ingest.write-behind.max-linger-ms:200}")
+    private long maxLingerMs;
+
+    @Value("${app.ingest.write-behind.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${app.ingest.write-behind.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    private final LinkedBlockingQueue<EmotionEvent> queue = new LinkedBlockingQueue<>();
+    // Places réservées dans la file, libérées une fois le lot écrit (inclut donc les lots en vol)
+    private Semaphore slots;
+    private final AtomicInteger pending = new AtomicInteger();
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+    private Timer flushTimer;
+    private Counter dropped;
+    private Counter replays;
+
+    public EmotionWriteBehindQueue(EmotionEventInsertRepository inserts,
+                                   SequenceTracker sequences,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.inserts = inserts;
+        this.sequences = sequences;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return "write-behind".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Met en file un lot d'événements, en entier ou pas du tout.
+     * @throws BackpressureException si la file est pleine ou arrêtée.
+     */
+    public void enqueueAll(List<EmotionEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!running || !slots.tryAcquire(events.size())) {
+            throw new BackpressureException("Ingestion queue full", retryAfterSeconds);
+        }
+        pending.addAndGet(events.size());
+        queue.addAll(events);
+    }
+
+    /**
+     * Nombre d'événements acceptés mais pas encore écrits en base.
+     */
+    public int depth() {
+        return pending.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        slots = new Semaphore(capacity);
+        Gauge.builder("emotion.writebehind.queue.depth", pending, AtomicInteger::get)
+                .description("Événements en attente d'écriture")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("emotion.writebehind.batch.size")
+                .description("Taille des lots écrits en base")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("emotion.writebehind.flush")
+                .description("Durée d'écriture d'un lot")
+                .register(meterRegistry);
+        dropped = Counter.builder("emotion.writebehind.dropped")
+                .description("Événements perdus après échec d'écriture")
+                .register(meterRegistry);
+        replays = Counter.builder("emotion.writebehind.replays")
+                .description("Lignes écartées à l'écriture comme renvois déjà en base (déjà acquittées)")
+                .register(meterRegistry);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "emotion-writer-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::drainLoop);
+        }
+        log.info("Write-behind ingestion enabled (capacity={}, workers={}, batchSize={}, maxLingerMs={})",
+                capacity, workerCount, batchSize, maxLingerMs);
+    }
+
+    /**
+     * Arrêt : plus aucune mise en file, puis les workers vident la file avant de s'arrêter.
+     */
+    @Override
+    public void stop() {
+        if (workers == null) {
+            return;
+        }
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                log.warn("Write-behind flush timed out, {} events not persisted", pending.get());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Arrêté après le serveur web : plus aucune requête n'arrive pendant le vidage final
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<EmotionEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EmotionEvent first = queue.poll(maxLingerMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Compléter le lot jusqu'à batchSize ou jusqu'à l'expiration du délai
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    EmotionEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (!batch.isEmpty()) {
+                    pending.addAndGet(-batch.size());
+                    slots.release(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void flush(List<EmotionEvent> batch) throws InterruptedException {
+        batchSizes.record(batch.size());
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            try {
+                List<EmotionEvent> skipped = tx.execute(status -> inserts.insertSkippingReplays(batch));
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                replays.increment(skipped.size());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Write-behind flush of {} events failed (attempt {}/{})",
+                        batch.size(), attempt, MAX_FLUSH_ATTEMPTS, e);
+                // Les IDs attribués lors de l'essai raté ne sont pas réutilisables
+                batch.forEach(ev -> ev.setId(null));
+                Thread.sleep(100L * attempt);
+            }
+        }
+        dropped.increment(batch.size());
+        for (EmotionEvent ev : batch) {
+            if (ev.getSeq() != null) {
+                sequences.forget(ev.getSessionId(), ev.getSeq(), ev.getRepeatCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compaction d'un lot avant écriture : une suite d'événements consécutifs quasi identiques
+ * devient une seule ligne ({@code repeatCount} événements, score moyen, horodatage, vecteur et
+ * boîte du premier).
+ * <p>
+ * Une suite regroupe des événements de la même session, même {@code faceDetected}, mêmes
+ * métadonnées non typées, horodatages croissants sur au plus {@code max-run-ms}, numéros de
+ * séquence client absents ou consécutifs (la ligne couvre {@code seq .. seq + repeatCount - 1}),
+ * et dont les scores tiennent dans un intervalle de largeur {@code score-tolerance}. Bornes d'erreur des
+ * statistiques calculées en base (les agrégats en mémoire voient tous les événements) :
+ * <ul>
+ *   <li>nombre d'événements, somme et moyenne des scores : exacts, à l'attribution près d'une
+ *       suite entière à l'instant de son premier événement (décalage au plus {@code max-run-ms}) ;</li>
+ *   <li>score de chaque événement, donc maximum, minimum et quantiles : écart au plus
+ *       {@code score-tolerance} (plus la résolution de l'esquisse pour les quantiles) ;</li>
+ *   <li>compte au-dessus du seuil de frustration : seuls les événements à moins de
+ *       {@code score-tolerance} du seuil peuvent changer de côté.</li>
+ * </ul>
+ * Les événements reçus ne sont pas modifiés : une suite est écrite sous forme de copie.
+ */
+@Component
+public class EventCompactor {
+
+    private final boolean enabled;
+    private final double tolerance;
+    private final long maxRunMillis;
+
+    public EventCompactor(
+            @Value("${app.ingest.compaction.enabled:true}") boolean enabled,
+            @Value("${app.ingest.compaction.score-tolerance:0.02}") double tolerance,
+            @Value("${app.ingest.compaction.max-run-ms:2000}") long maxRunMillis
+    ) {
+        this.enabled = enabled;
+        this.tolerance = tolerance;
+        this.maxRunMillis = maxRunMillis;
+    }
+
+    /**
+     * @return les lignes à écrire : le lot lui-même si rien n'est compacté
+     */
+    public List<EmotionEvent> compact(List<EmotionEvent> events) {
+        if (!enabled || events.size() < 2) {
+            return events;
+        }
+        List<EmotionEvent> rows = new ArrayList<>(events.size());
+        Run run = null;
+        for (EmotionEvent event : events) {
+            if (run != null && run.accepts(event)) {
+                run.add(event);
+                continue;
+            }
+            if (run != null) {
+                rows.add(run.toRow());
+            }
+            run = new Run(event);
+        }
+        rows.add(run.toRow());
+        return rows.size() == events.size() ? events : rows;
+    }
+
+    private final class Run {
+
+        private final EmotionEvent first;
+        private final long startMillis;
+        private long lastMillis;
+        private Long lastSeq;
+        private double min;
+        private double max;
+        private double sum;
+        private int count = 1;
+
+        Run(EmotionEvent first) {
+            this.first = first;
+            this.startMillis = first.getTimestamp().toInstant().toEpochMilli();
+            this.lastMillis = startMillis;
+            this.lastSeq = first.getSeq();
+            this.min = first.getFrustrationScore();
+            this.max = min;
+            this.sum = min;
+        }
+
+        boolean accepts(EmotionEvent event) {
+            long millis = event.getTimestamp().toInstant().toEpochMilli();
+            double score = event.getFrustrationScore();
+            return first.getSessionId().equals(event.getSessionId())
+                    && first.isFaceDetected() == event.isFaceDetected()
+                    && Objects.equals(first.getMetaJson(), event.getMetaJson())
+                    && follows(event.getSeq())
+                    && millis >= lastMillis
+                    && millis - startMillis <= maxRunMillis
+                    && Math.max(max, score) - Math.min(min, score) <= tolerance;
+        }
+
+        private boolean follows(Long seq) {
+            return lastSeq == null ? seq == null : seq != null && seq == lastSeq + 1;
+        }
+
+        void add(EmotionEvent event) {
+            double score = event.getFrustrationScore();
+            lastMillis = event.getTimestamp().toInstant().toEpochMilli();
+            lastSeq = event.getSeq();
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+            sum += score;
+            count++;
+        }
+
+        EmotionEvent toRow() {
+            if (count == 1) {
+                return first;
+            }
+            return first.toBuilder()
+                    .frustrationScore(sum / count)
+                    .repeatCount(count)
+                    .build();
+        }
+    }
+}
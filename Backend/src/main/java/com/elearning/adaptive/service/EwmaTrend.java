@@ -0,0 +1,60 @@
+package com.elearning.adaptive.service;
+
+/**
+ * Niveau et pente exponentiellement lissés d'une série de scores horodatés. Le lissage dépend
+ * du temps écoulé entre deux scores (constante de temps {@code tauMillis}), pas de leur nombre :
+ * une rafale d'images ne pèse pas plus qu'un flux régulier. Les scores arrivés en retard sont
+ * ignorés. Non synchronisé : l'appelant détient le verrou de l'état qui le contient.
+ */
+class EwmaTrend {
+
+    static final long NEVER = Long.MIN_VALUE / 4;
+
+    long lastMillis = NEVER;
+    double ewma;
+    double slope; // par seconde, lissée avec la même constante de temps
+
+    static double tauMillis(double halfLifeSeconds) {
+        return halfLifeSeconds * 1000 / Math.log(2);
+    }
+
+    /**
+     * @return false si le score est antérieur au dernier vu (ignoré)
+     */
+    boolean update(long epochMillis, double score, double tauMillis) {
+        if (lastMillis == NEVER) {
+            ewma = score;
+            lastMillis = epochMillis;
+            return true;
+        }
+        long dt = epochMillis - lastMillis;
+        if (dt < 0) {
+            return false;
+        }
+        // Deux scores dans la même milliseconde : traités comme espacés d'1 ms
+        double alpha = 1 - Math.exp(-Math.max(dt, 1) / tauMillis);
+        double previous = ewma;
+        ewma += alpha * (score - previous);
+        if (dt > 0) {
+            double instantSlope = (ewma - previous) * 1000 / dt;
+            slope += alpha * (instantSlope - slope);
+        }
+        lastMillis = epochMillis;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return lastMillis == NEVER;
+    }
+
+    /**
+     * Garde le lissage le plus récent des deux (transfert d'état entre nœuds).
+     */
+    void mergeLatest(long otherLastMillis, double otherEwma, double otherSlope) {
+        if (otherLastMillis > lastMillis) {
+            lastMillis = otherLastMillis;
+            ewma = otherEwma;
+            slope = otherSlope;
+        }
+    }
+}
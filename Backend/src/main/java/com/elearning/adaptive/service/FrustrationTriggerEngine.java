@@ -0,0 +1,332 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.entity.RecommendationTrigger;
+import com.elearning.adaptive.repository.RecommendationTriggerRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Moteur de règles incrémental : chaque événement ingéré met à jour l'état de sa session en O(1)
+ * et peut émettre un {@link RecommendationTrigger}.
+ * <ul>
+ *   <li>{@value #FRUSTRATION_HIGH} : moyenne lissée (EWMA) au-dessus de {@code enter-threshold}
+ *       pendant {@code sustain-seconds} ; réarmé seulement sous {@code exit-threshold}
+ *       (hystérésis, pas d'oscillation autour du seuil) ;</li>
+ *   <li>{@value #FRUSTRATION_RISING} : pente lissée de l'EWMA au-dessus de {@code slope-per-second}
+ *       alors que le niveau dépasse {@code slope-min-level} ; réarmé quand la pente retombe
+ *       sous la moitié du seuil.</li>
+ * </ul>
+ * Un même type n'est pas réémis pour une session avant {@code cooldown-seconds}.
+ * Le lissage dépend du temps écoulé entre événements (demi-vie {@code ewma-half-life-seconds}),
+ * pas de leur nombre. Les événements arrivés en retard sont ignorés.
+ * Les triggers sont écrits en base par un thread dédié, via une file bornée.
+ * En mode cluster, l'état (lissage, armement, cooldowns) suit la session d'un nœud à l'autre.
+ */
+@Slf4j
+@Component
+public class FrustrationTriggerEngine implements EmotionIngestListener, SessionEndListener,
+        SessionStateHolder<FrustrationTriggerEngine.TriggerSnapshot> {
+
+    public static final String FRUSTRATION_HIGH = "FRUSTRATION_HIGH";
+    public static final String FRUSTRATION_RISING = "FRUSTRATION_RISING";
+
+    private static final long NEVER = EwmaTrend.NEVER;
+
+    private final Map<String, SessionTriggerState> states = new ConcurrentHashMap<>();
+    private final RecommendationTriggerRepository repo;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor writer;
+    private final Counter highEmitted;
+    private final Counter risingEmitted;
+    private final Counter dropped;
+
+    private final boolean enabled;
+    private final double tauMillis;
+    private final double enterThreshold;
+    private final double exitThreshold;
+    private final long sustainMillis;
+    private final double slopePerSecond;
+    private final double slopeMinLevel;
+    private final long cooldownMillis;
+    private final long idleMillis;
+
+    public FrustrationTriggerEngine(
+            RecommendationTriggerRepository repo,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.triggers.enabled:true}") boolean enabled,
+            @Value("${app.triggers.ewma-half-life-seconds:5}") double halfLifeSeconds,
+            @Value("${app.triggers.high.enter-threshold:0.7}") double enterThreshold,
+            @Value("${app.triggers.high.exit-threshold:0.5}") double exitThreshold,
+            @Value("${app.triggers.high.sustain-seconds:10}") long sustainSeconds,
+            @Value("${app.triggers.rising.slope-per-second:0.03}") double slopePerSecond,
+            @Value("${app.triggers.rising.min-level:0.4}") double slopeMinLevel,
+            @Value("${app.triggers.cooldown-seconds:120}") long cooldownSeconds,
+            @Value("${app.triggers.idle-seconds:600}") long idleSeconds,
+            @Value("${app.triggers.writer-queue-capacity:10000}") int writerQueueCapacity
+    ) {
+        this.repo = repo;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.tauMillis = EwmaTrend.tauMillis(halfLifeSeconds);
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+        this.sustainMillis = sustainSeconds * 1000;
+        this.slopePerSecond = slopePerSecond;
+        this.slopeMinLevel = slopeMinLevel;
+        this.cooldownMillis = cooldownSeconds * 1000;
+        this.idleMillis = idleSeconds * 1000;
+
+        this.highEmitted = emittedCounter(meterRegistry, FRUSTRATION_HIGH);
+        this.risingEmitted = emittedCounter(meterRegistry, FRUSTRATION_RISING);
+        this.dropped = Counter.builder("emotion.triggers.dropped")
+                .description("Triggers non écrits (file d'écriture pleine)")
+                .register(meterRegistry);
+        Gauge.builder("emotion.triggers.sessions", states, Map::size)
+                .description("Sessions suivies par le moteur de triggers")
+                .register(meterRegistry);
+
+        // Les triggers sont indicatifs : en cas de saturation on les perd (comptés) plutôt
+        // que de ralentir l'ingestion
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writerQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "trigger-writer");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> dropped.increment());
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        if (enabled) {
+            evaluate(event.getSessionId(), event.getTimestamp().toInstant().toEpochMilli(),
+                    event.getFrustrationScore());
+        }
+    }
+
+    /**
+     * Applique les règles à un événement.
+     * @return nombre de triggers émis (0 dans l'immense majorité des cas)
+     */
+    public int evaluate(String sessionId, long epochMillis, double score) {
+        SessionTriggerState state = states.computeIfAbsent(sessionId, id -> new SessionTriggerState());
+        PendingTrigger high;
+        PendingTrigger rising;
+        synchronized (state) {
+            if (!state.update(epochMillis, score, tauMillis)) {
+                return 0;
+            }
+            high = checkHigh(sessionId, state, epochMillis, score);
+            rising = checkRising(sessionId, state, epochMillis, score);
+        }
+        int emitted = 0;
+        if (high != null) {
+            highEmitted.increment();
+            submit(high);
+            emitted++;
+        }
+        if (rising != null) {
+            risingEmitted.increment();
+            submit(rising);
+            emitted++;
+        }
+        return emitted;
+    }
+
+    /**
+     * Oublie l'état des sessions sans événement depuis {@code idle-seconds}.
+     */
+    @Scheduled(fixedDelayString = "${app.triggers.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        states.values().removeIf(s -> s.lastMillis() < oldest);
+    }
+
+    @Override
+    public void sessionEnded(String sessionId) {
+        states.remove(sessionId);
+    }
+
+    @Override
+    public String stateName() {
+        return "triggers";
+    }
+
+    @Override
+    public Class<TriggerSnapshot> snapshotType() {
+        return TriggerSnapshot.class;
+    }
+
+    @Override
+    public Map<String, TriggerSnapshot> export(Predicate<String> sessions) {
+        Map<String, TriggerSnapshot> exported = new HashMap<>();
+        states.forEach((id, state) -> {
+            if (sessions.test(id) && states.remove(id, state)) {
+                synchronized (state) {
+                    exported.put(id, state.snapshot());
+                }
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Garde le lissage le plus récent des deux états ; les cooldowns restent ceux du dernier
+     * trigger émis, quel que soit le nœud qui l'a émis.
+     */
+    @Override
+    public void restore(String sessionId, TriggerSnapshot snapshot) {
+        SessionTriggerState state = states.computeIfAbsent(sessionId, id -> new SessionTriggerState());
+        synchronized (state) {
+            state.merge(snapshot);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private PendingTrigger checkHigh(String sessionId, SessionTriggerState s, long now, double score) {
+        if (s.ewma >= enterThreshold) {
+            if (s.aboveSince == NEVER) {
+                s.aboveSince = now;
+            }
+            if (s.highArmed && now - s.aboveSince >= sustainMillis && now - s.lastHighAt >= cooldownMillis) {
+                s.highArmed = false;
+                s.lastHighAt = now;
+                return new PendingTrigger(sessionId, FRUSTRATION_HIGH, now, score, s.ewma, s.slope,
+                        now - s.aboveSince);
+            }
+        } else if (s.ewma < exitThreshold) {
+            s.aboveSince = NEVER;
+            s.highArmed = true;
+        }
+        return null;
+    }
+
+    private PendingTrigger checkRising(String sessionId, SessionTriggerState s, long now, double score) {
+        if (s.slope >= slopePerSecond && s.ewma >= slopeMinLevel) {
+            if (s.risingArmed && now - s.lastRisingAt >= cooldownMillis) {
+                s.risingArmed = false;
+                s.lastRisingAt = now;
+                return new PendingTrigger(sessionId, FRUSTRATION_RISING, now, score, s.ewma, s.slope, 0);
+            }
+        } else if (s.slope < slopePerSecond / 2) {
+            s.risingArmed = true;
+        }
+        return null;
+    }
+
+    private void submit(PendingTrigger pending) {
+        writer.execute(() -> {
+            try {
+                repo.save(RecommendationTrigger.builder()
+                        .sessionId(pending.sessionId())
+                        .createdAt(OffsetDateTime.ofInstant(Instant.ofEpochMilli(pending.epochMillis()), ZoneOffset.UTC))
+                        .type(pending.type())
+                        .detailsJson(details(pending))
+                        .build());
+            } catch (RuntimeException e) {
+                dropped.increment();
+                log.warn("Failed to save {} trigger for session {}", pending.type(), pending.sessionId(), e);
+            }
+        });
+    }
+
+    private String details(PendingTrigger pending) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("score", pending.score());
+        details.put("ewma", round(pending.ewma()));
+        details.put("slopePerSecond", round(pending.slope()));
+        if (FRUSTRATION_HIGH.equals(pending.type())) {
+            details.put("sustainedSeconds", pending.sustainedMillis() / 1000);
+            details.put("threshold", enterThreshold);
+        } else {
+            details.put("threshold", slopePerSecond);
+        }
+        try {
+            return objectMapper.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10_000) / 10_000.0;
+    }
+
+    private static Counter emittedCounter(MeterRegistry registry, String type) {
+        return Counter.builder("emotion.triggers.emitted")
+                .description("Triggers émis par le moteur de règles")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private record PendingTrigger(String sessionId, String type, long epochMillis, double score,
+                                  double ewma, double slope, long sustainedMillis) {
+    }
+
+    /**
+     * État d'une session, pour le transfert entre nœuds.
+     */
+    public record TriggerSnapshot(long lastMillis, double ewma, double slope, long aboveSince, boolean highArmed,
+                                  long lastHighAt, boolean risingArmed, long lastRisingAt) {
+    }
+
+    /**
+     * État d'une session : lissage ({@link EwmaTrend}) et armement, quelques champs primitifs
+     * mis à jour sous le verrou de l'objet.
+     */
+    static final class SessionTriggerState extends EwmaTrend {
+        long aboveSince = NEVER;
+        boolean highArmed = true;
+        long lastHighAt = NEVER;
+        boolean risingArmed = true;
+        long lastRisingAt = NEVER;
+
+        TriggerSnapshot snapshot() {
+            return new TriggerSnapshot(lastMillis, ewma, slope, aboveSince, highArmed, lastHighAt,
+                    risingArmed, lastRisingAt);
+        }
+
+        void merge(TriggerSnapshot other) {
+            if (other.lastMillis() > lastMillis) {
+                aboveSince = other.aboveSince();
+                highArmed = other.highArmed();
+                risingArmed = other.risingArmed();
+            }
+            mergeLatest(other.lastMillis(), other.ewma(), other.slope());
+            lastHighAt = Math.max(lastHighAt, other.lastHighAt());
+            lastRisingAt = Math.max(lastRisingAt, other.lastRisingAt());
+        }
+
+        synchronized long lastMillis() {
+            return lastMillis;
+        }
+    }
+}
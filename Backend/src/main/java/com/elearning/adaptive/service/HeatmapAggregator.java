@@ -0,0 +1,247 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.HeatmapDTO;
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.entity.HeatmapScope;
+import com.elearning.adaptive.repository.HeatmapRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Cartes de chaleur de frustration par leçon et par cours, en temps relatif
+ * (secondes depuis le début de chaque session, par tranches de {@code bucket-seconds}).
+ * <p>
+ * Chaque événement ingéré incrémente un accumulateur en mémoire ; les accroissements sont
+ * écrits en base toutes les {@code flush-interval-ms} par un upsert additif groupé. La lecture
+ * d'une carte ne dépend donc que du nombre de tranches, pas du nombre de sessions.
+ * {@code sessions} compte les sessions ayant au moins un événement dans la tranche ; après un
+ * redémarrage, une session en cours peut être recomptée dans la tranche où elle se trouvait.
+ * En mode cluster, les tranches déjà comptées suivent la session d'un nœud à l'autre, sans quoi
+ * le nouveau propriétaire la recompterait.
+ */
+@Slf4j
+@Component
+public class HeatmapAggregator implements EmotionIngestListener, SessionEndListener,
+        SessionStateHolder<HeatmapAggregator.CountedBuckets> {
+
+    private final HeatmapRepository repo;
+    private final SessionCache sessionCache;
+    private final int bucketSeconds;
+    private final long maxOffsetSeconds;
+
+    // Les écritures prennent le verrou partagé ; le flush prend le verrou exclusif le temps d'échanger la map
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<BucketKey, Delta> pending = new ConcurrentHashMap<>();
+    // Tranches déjà comptées par session en cours (pour session_count)
+    private final Cache<String, BitSet> sessionBuckets;
+
+    public HeatmapAggregator(
+            HeatmapRepository repo,
+            SessionCache sessionCache,
+            @Value("${app.heatmap.bucket-seconds:30}") int bucketSeconds,
+            @Value("${app.heatmap.max-offset-seconds:14400}") long maxOffsetSeconds
+    ) {
+        this.repo = repo;
+        this.sessionCache = sessionCache;
+        this.bucketSeconds = bucketSeconds;
+        this.maxOffsetSeconds = maxOffsetSeconds;
+        this.sessionBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    public int bucketSeconds() {
+        return bucketSeconds;
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        SessionInfo session = sessionCache.get(event.getSessionId()).orElse(null);
+        if (session == null || session.startedAt() == null || session.lessonId() == null) {
+            return;
+        }
+        long offset = Duration.between(session.startedAt(), event.getTimestamp()).toSeconds();
+        if (offset < 0 || offset >= maxOffsetSeconds) {
+            return; // horloge client incohérente ou session anormalement longue
+        }
+        int bucket = (int) (offset / bucketSeconds);
+        boolean newForSession = markBucket(session.id(), bucket);
+        double score = event.getFrustrationScore();
+
+        swapLock.readLock().lock();
+        try {
+            add(new BucketKey(HeatmapScope.LESSON, session.lessonId(), bucket * bucketSeconds), score, newForSession);
+            if (session.courseId() != null) {
+                add(new BucketKey(HeatmapScope.COURSE, session.courseId(), bucket * bucketSeconds), score, newForSession);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Les accroissements de la session restent dans l'accumulateur jusqu'au prochain flush ;
+     * seul son suivi des tranches comptées est libéré.
+     */
+    @Override
+    public void sessionEnded(String sessionId) {
+        sessionBuckets.invalidate(sessionId);
+    }
+
+    @Override
+    public String stateName() {
+        return "heatmap";
+    }
+
+    @Override
+    public Class<CountedBuckets> snapshotType() {
+        return CountedBuckets.class;
+    }
+
+    @Override
+    public Map<String, CountedBuckets> export(Predicate<String> sessions) {
+        Map<String, CountedBuckets> exported = new HashMap<>();
+        sessionBuckets.asMap().forEach((id, seen) -> {
+            if (sessions.test(id) && sessionBuckets.asMap().remove(id, seen)) {
+                synchronized (seen) {
+                    exported.put(id, new CountedBuckets(seen.toLongArray()));
+                }
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Union des tranches comptées sur les deux nœuds.
+     */
+    @Override
+    public void restore(String sessionId, CountedBuckets snapshot) {
+        if (snapshot.bits() == null) {
+            return;
+        }
+        BitSet seen = sessionBuckets.get(sessionId, id -> new BitSet());
+        synchronized (seen) {
+            seen.or(BitSet.valueOf(snapshot.bits()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public HeatmapDTO heatmap(HeatmapScope scope, long id) {
+        return new HeatmapDTO(scope.name(), id, bucketSeconds, repo.find(scope, id));
+    }
+
+    /**
+     * Écrit les accroissements accumulés depuis le dernier passage. En cas d'échec,
+     * ils sont réintégrés pour le passage suivant.
+     */
+    @Scheduled(fixedDelayString = "${app.heatmap.flush-interval-ms:5000}")
+    public void flush() {
+        Map<BucketKey, Delta> batch;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<HeatmapRepository.Increment> increments = new ArrayList<>(batch.size());
+        batch.forEach((k, d) -> increments.add(new HeatmapRepository.Increment(k.scope(), k.scopeId(),
+                k.offsetSeconds(), d.count, d.sessions, d.sum, d.max, d.high)));
+        try {
+            repo.add(increments);
+        } catch (RuntimeException e) {
+            log.warn("Heatmap flush of {} buckets failed, retrying on next run", increments.size(), e);
+            swapLock.readLock().lock();
+            try {
+                batch.forEach((k, d) -> pending.merge(k, d, Delta::merge));
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void add(BucketKey key, double score, boolean newForSession) {
+        pending.compute(key, (k, d) -> {
+            Delta delta = d == null ? new Delta() : d;
+            delta.count++;
+            delta.sum += score;
+            delta.max = Math.max(delta.max, score);
+            if (score > SessionStats.HIGH_FRUSTRATION_THRESHOLD) {
+                delta.high++;
+            }
+            if (newForSession) {
+                delta.sessions++;
+            }
+            return delta;
+        });
+    }
+
+    private boolean markBucket(String sessionId, int bucket) {
+        BitSet seen = sessionBuckets.get(sessionId, id -> new BitSet());
+        synchronized (seen) {
+            if (seen.get(bucket)) {
+                return false;
+            }
+            seen.set(bucket);
+            return true;
+        }
+    }
+
+    /**
+     * Tranches déjà comptées pour une session ({@link BitSet#toLongArray}).
+     */
+    public record CountedBuckets(long[] bits) {
+    }
+
+    private record BucketKey(HeatmapScope scope, long scopeId, int offsetSeconds) {
+    }
+
+    /**
+     * Accroissements d'une tranche, modifiés uniquement dans {@code ConcurrentHashMap.compute}.
+     */
+    private static final class Delta {
+        long count;
+        long sessions;
+        double sum;
+        double max;
+        long high;
+
+        Delta merge(Delta other) {
+            count += other.count;
+            sessions += other.sessions;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+            high += other.high;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.SessionStatusRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Clôture des sessions abandonnées (client disparu sans appeler {@code /end}) : une session sans
+ * événement depuis {@code timeout-seconds} (ou jamais alimentée depuis {@code start-timeout-seconds})
+ * passe ENDED, avec pour heure de fin sa dernière activité vue par ce nœud.
+ * <p>
+ * Coût par événement constant : une lecture de map et l'écriture de l'instant de dernière
+ * activité. Les échéances vivent dans une roue temporelle ({@code tick-ms} par case, dimensionnée
+ * sur le plus long délai) : chaque session y est examinée une fois par délai, et réarmée à sa
+ * nouvelle échéance si elle a été active entre-temps. Aucun parcours de table périodique : les
+ * sessions actives ne sont relues qu'au démarrage (échéance comptée depuis le démarrage).
+ * <p>
+ * Les sessions expirées sont terminées par lots de {@code batch-size} (une requête par lot), puis
+ * retirées du cache et signalées aux {@link SessionEndListener} qui libèrent leur état en mémoire.
+ * En mode cluster, seul le propriétaire d'une session la termine ; le suivi suit la session.
+ * Hors cluster, chaque instance suit toutes les sessions actives (relues au démarrage) : la clôture
+ * épargne celles qui ont reçu en base un événement plus récent que l'activité vue ici, réarmées
+ * depuis ce dernier événement.
+ */
+@Slf4j
+@Component
+public class IdleSessionReaper implements EmotionIngestListener, SessionEndListener,
+        SessionStateHolder<IdleSessionReaper.IdleSnapshot> {
+
+    // Nouvel essai après un échec d'écriture en base
+    private static final long RETRY_MILLIS = 30_000;
+
+    private final Map<String, Tracked> sessions = new ConcurrentHashMap<>();
+    private final SessionStatusRepository statusRepo;
+    private final SessionCache sessionCache;
+    // Résolus à l'usage : ce composant est lui-même un listener
+    private final ObjectProvider<SessionEndListener> endListeners;
+    private final Counter ended;
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final long startTimeoutMillis;
+    private final int batchSize;
+    private final TimerWheel<Tracked> wheel;
+    private volatile Predicate<String> localSessions = id -> true;
+
+    public IdleSessionReaper(
+            SessionStatusRepository statusRepo,
+            SessionCache sessionCache,
+            ObjectProvider<SessionEndListener> endListeners,
+            MeterRegistry meterRegistry,
+            @Value("${app.sessions.idle.enabled:true}") boolean enabled,
+            @Value("${app.sessions.idle.timeout-seconds:900}") long timeoutSeconds,
+            @Value("${app.sessions.idle.start-timeout-seconds:600}") long startTimeoutSeconds,
+            @Value("${app.sessions.idle.tick-ms:1000}") long tickMillis,
+            @Value("${app.sessions.idle.batch-size:500}") int batchSize
+    ) {
+        this.statusRepo = statusRepo;
+        this.sessionCache = sessionCache;
+        this.endListeners = endListeners;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutSeconds * 1000;
+        this.startTimeoutMillis = startTimeoutSeconds * 1000;
+        this.batchSize = batchSize;
+        long horizon = Math.max(RETRY_MILLIS, Math.max(timeoutMillis, startTimeoutMillis));
+        this.wheel = new TimerWheel<>(tickMillis, horizon, System.currentTimeMillis());
+
+        this.ended = Counter.builder("sessions.idle.ended")
+                .description("Sessions terminées pour inactivité")
+                .register(meterRegistry);
+        Gauge.builder("sessions.idle.tracked", sessions, Map::size)
+                .description("Sessions suivies pour la clôture sur inactivité")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        if (enabled) {
+            touch(event.getSessionId(), System.currentTimeMillis(), true);
+        }
+    }
+
+    /**
+     * Session ouverte : suivie même si elle n'envoie jamais d'événement.
+     */
+    public void register(String sessionId) {
+        if (enabled) {
+            touch(sessionId, System.currentTimeMillis(), false);
+        }
+    }
+
+    void touch(String sessionId, long nowMillis, boolean streaming) {
+        Tracked tracked = sessions.get(sessionId);
+        if (tracked == null && (tracked = track(new Tracked(sessionId, nowMillis, streaming))) == null) {
+            return;
+        }
+        // Écritures concurrentes : l'une peut en écraser une plus récente de quelques ms, sans effet
+        tracked.lastSeenMillis = nowMillis;
+        if (streaming && !tracked.streaming) {
+            tracked.streaming = true;
+        }
+    }
+
+    // Nouvelle session suivie, ou celle déjà présente (null si created l'a été)
+    private Tracked track(Tracked created) {
+        Tracked existing = sessions.putIfAbsent(created.sessionId, created);
+        if (existing == null) {
+            synchronized (wheel) {
+                wheel.schedule(created, deadline(created));
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Session terminée (ici ou via {@code /end}) : plus suivie. Sa case dans la roue est
+     * ignorée à l'échéance.
+     */
+    @Override
+    public void sessionEnded(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Relit les sessions actives au démarrage : celles dont le client a disparu pendant l'arrêt
+     * seront terminées à l'échéance.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void trackActiveSessions() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            statusRepo.forEachActiveId(id -> touch(id, now, false));
+            log.info("Tracking {} active session(s) for idle timeout", sessions.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not load active sessions; only sessions seen from now on will time out", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sessions.idle.tick-ms:1000}")
+    public void tick() {
+        if (enabled) {
+            reap(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Termine les sessions dont l'échéance est passée.
+     * @return nombre de sessions terminées
+     */
+    int reap(long nowMillis) {
+        List<Tracked> expired = new ArrayList<>();
+        synchronized (wheel) {
+            for (Tracked tracked : wheel.advance(nowMillis)) {
+                if (sessions.get(tracked.sessionId) != tracked) {
+                    continue; // terminée ou transférée entre-temps
+                }
+                long deadline = deadline(tracked);
+                if (deadline > nowMillis) {
+                    wheel.schedule(tracked, deadline); // active depuis : réarmée
+                } else if (!localSessions.test(tracked.sessionId)) {
+                    wheel.schedule(tracked, nowMillis + timeoutMillis); // transférée au prochain tour
+                } else if (sessions.remove(tracked.sessionId, tracked)) {
+                    expired.add(tracked);
+                }
+            }
+        }
+        int count = 0;
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            count += end(expired.subList(from, Math.min(expired.size(), from + batchSize)), nowMillis);
+        }
+        if (count > 0) {
+            log.info("Ended {} idle session(s)", count);
+        }
+        return count;
+    }
+
+    private int end(List<Tracked> batch, long nowMillis) {
+        List<String> ids = new ArrayList<>(batch.size());
+        List<Long> endedAt = new ArrayList<>(batch.size());
+        for (Tracked tracked : batch) {
+            ids.add(tracked.sessionId);
+            endedAt.add(tracked.lastSeenMillis);
+        }
+        List<String> endedIds;
+        try {
+            endedIds = statusRepo.endActive(ids, endedAt);
+        } catch (DataAccessException e) {
+            log.warn("Could not end {} idle session(s), retrying later: {}", batch.size(), e.toString());
+            synchronized (wheel) {
+                for (Tracked tracked : batch) {
+                    if (sessions.putIfAbsent(tracked.sessionId, tracked) == null) {
+                        wheel.schedule(tracked, nowMillis + RETRY_MILLIS);
+                    }
+                }
+            }
+            return 0;
+        }
+        if (endedIds.size() < batch.size()) {
+            rearmActiveElsewhere(batch, endedIds, nowMillis);
+        }
+        // L'UPDATE groupé ne passe pas par les listeners JPA
+        for (String id : endedIds) {
+            sessionCache.invalidate(id);
+            endListeners.forEach(listener -> listener.sessionEnded(id));
+        }
+        ended.increment(endedIds.size());
+        return endedIds.size();
+    }
+
+    /**
+     * Sessions non terminées parce qu'alimentées via une autre instance (hors cluster, ou avant
+     * transfert) : réarmées depuis leur dernier événement en base. Celles déjà closes sont oubliées.
+     */
+    private void rearmActiveElsewhere(List<Tracked> batch, List<String> endedIds, long nowMillis) {
+        Set<String> ended = new HashSet<>(endedIds);
+        List<Tracked> kept = batch.stream().filter(t -> !ended.contains(t.sessionId)).toList();
+        Map<String, Long> lastEvents = new HashMap<>();
+        try {
+            lastEvents = statusRepo.lastEventMillis(kept.stream().map(t -> t.sessionId).toList());
+        } catch (DataAccessException e) {
+            // Encore active ailleurs au moment de l'UPDATE : revue après un délai complet
+            for (Tracked tracked : kept) {
+                lastEvents.put(tracked.sessionId, nowMillis);
+            }
+        }
+        synchronized (wheel) {
+            for (Tracked tracked : kept) {
+                Long lastEvent = lastEvents.get(tracked.sessionId);
+                if (lastEvent == null) {
+                    continue;
+                }
+                tracked.lastSeenMillis = Math.max(tracked.lastSeenMillis, lastEvent);
+                tracked.streaming = true;
+                if (sessions.putIfAbsent(tracked.sessionId, tracked) == null) {
+                    wheel.schedule(tracked, deadline(tracked));
+                }
+            }
+        }
+        log.debug("Kept {} session(s) still active on another instance", kept.size());
+    }
+
+    private long deadline(Tracked tracked) {
+        return tracked.lastSeenMillis + (tracked.streaming ? timeoutMillis : startTimeoutMillis);
+    }
+
+    @Override
+    public String stateName() {
+        return "idle";
+    }
+
+    @Override
+    public Class<IdleSnapshot> snapshotType() {
+        return IdleSnapshot.class;
+    }
+
+    @Override
+    public Map<String, IdleSnapshot> export(Predicate<String> sessionIds) {
+        Map<String, IdleSnapshot> exported = new HashMap<>();
+        sessions.forEach((id, tracked) -> {
+            if (sessionIds.test(id) && sessions.remove(id, tracked)) {
+                exported.put(id, new IdleSnapshot(tracked.lastSeenMillis, tracked.streaming));
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Garde l'activité la plus récente des deux nœuds.
+     */
+    @Override
+    public void restore(String sessionId, IdleSnapshot snapshot) {
+        Tracked existing = track(new Tracked(sessionId, snapshot.lastSeenMillis(), snapshot.streaming()));
+        if (existing != null) {
+            existing.lastSeenMillis = Math.max(existing.lastSeenMillis, snapshot.lastSeenMillis());
+            existing.streaming |= snapshot.streaming();
+        }
+    }
+
+    @Override
+    public void ownershipChanged(Predicate<String> local) {
+        this.localSessions = local;
+    }
+
+    public record IdleSnapshot(long lastSeenMillis, boolean streaming) {
+    }
+
+    private static final class Tracked {
+        final String sessionId;
+        volatile long lastSeenMillis;
+        volatile boolean streaming; // au moins un événement reçu
+
+        Tracked(String sessionId, long lastSeenMillis, boolean streaming) {
+            this.sessionId = sessionId;
+            this.lastSeenMillis = lastSeenMillis;
+            this.streaming = streaming;
+        }
+    }
+
+    /**
+     * Roue temporelle à un niveau : la case {@code t % n} contient les éléments d'échéance
+     * {@code t} (en ticks). Avec {@code n} couvrant l'horizon, une case ne mélange jamais deux tours ;
+     * une échéance plus lointaine est rangée au bout de la roue et revue à ce moment.
+     * Insertion et avance en O(1) par élément. Non synchronisée.
+     */
+    static final class TimerWheel<T> {
+
+        private final long tickMillis;
+        private final List<List<T>> slots;
+        private long cursor; // prochain tick à traiter
+
+        TimerWheel(long tickMillis, long horizonMillis, long nowMillis) {
+            this.tickMillis = tickMillis;
+            int size = (int) (horizonMillis / tickMillis) + 2;
+            this.slots = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                slots.add(new ArrayList<>());
+            }
+            this.cursor = nowMillis / tickMillis;
+        }
+
+        void schedule(T item, long deadlineMillis) {
+            long tick = Math.ceilDiv(deadlineMillis, tickMillis);
+            tick = Math.clamp(tick, cursor, cursor + slots.size() - 1);
+            slots.get((int) (tick % slots.size())).add(item);
+        }
+
+        /**
+         * Retire et renvoie les éléments dont l'échéance est atteinte.
+         */
+        List<T> advance(long nowMillis) {
+            long now = nowMillis / tickMillis;
+            List<T> due = new ArrayList<>();
+            // Retard de plus d'un tour : chaque case n'est vidée qu'une fois
+            for (long t = Math.max(cursor, now - slots.size() + 1); t <= now; t++) {
+                List<T> slot = slots.get((int) (t % slots.size()));
+                due.addAll(slot);
+                slot.clear();
+            }
+            cursor = Math.max(cursor, now + 1);
+            return due;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.elearning.adaptive.service;
+
+/**
+ * Motifs de rejet d'un événement émotionnel à l'ingestion.
+ */
+public enum IngestRejection {
+    UNKNOWN_SESSION("unknown_session"),
+    SESSION_NOT_ACTIVE("session_not_active"),
+    BAD_TIMESTAMP("bad_timestamp"),
+    CLOCK_SKEW("clock_skew"),
+    INVALID_SCORE("invalid_score"),
+    INVALID_SEQUENCE("invalid_seq"),
+    MISSING_EVENT("missing_event"); // élément null dans un lot
+
+    private final String code;
+
+    IngestRejection(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+}
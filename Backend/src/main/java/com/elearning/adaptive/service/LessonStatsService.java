@@ -0,0 +1,83 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.LessonStats;
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+import com.elearning.adaptive.repository.LessonRepository;
+import com.elearning.adaptive.repository.SessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Statistiques d'une classe en cours : sessions actives d'une leçon (les plus récentes, au plus
+ * {@code max-sessions}). Les fenêtres en mémoire sont fusionnées par addition de leurs
+ * esquisses ; les sessions qu'elles ne couvrent pas (autre nœud, fenêtre plus ancienne que la
+ * couverture) sont agrégées en une seule requête SQL, dans la même forme.
+ */
+@Service
+public class LessonStatsService {
+
+    private final SessionRepository sessionRepo;
+    private final LessonRepository lessonRepo;
+    private final SessionWindowAggregator windowAggregator;
+    private final EmotionRollupRepository rollups;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxSessions;
+    private final long maxWindowSeconds;
+
+    public LessonStatsService(
+            SessionRepository sessionRepo,
+            LessonRepository lessonRepo,
+            SessionWindowAggregator windowAggregator,
+            EmotionRollupRepository rollups,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.stats.lesson.max-sessions:500}") int maxSessions,
+            @Value("${app.retention.raw-horizon-days:30}") int rawHorizonDays
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.lessonRepo = lessonRepo;
+        this.windowAggregator = windowAggregator;
+        this.rollups = rollups;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxSessions = maxSessions;
+        this.maxWindowSeconds = rawHorizonDays * 86_400L;
+    }
+
+    /**
+     * Deux courtes transactions en lecture seule : la liste des sessions, puis l'agrégation SQL
+     * des seules sessions non couvertes en mémoire. La fusion des fenêtres en mémoire se fait
+     * hors transaction, sans connexion.
+     */
+    public LessonStats getLessonStats(Long lessonId, int windowSeconds) {
+        if (windowSeconds < 1 || windowSeconds > maxWindowSeconds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "windowSeconds must be between 1 and " + maxWindowSeconds);
+        }
+        List<String> sessionIds = readOnlyTx.execute(status -> {
+            if (!lessonRepo.existsById(lessonId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lesson not found");
+            }
+            return sessionRepo.findActiveIdsByLesson(lessonId, Limit.of(maxSessions));
+        });
+        StatsAccumulator acc = new StatsAccumulator(windowAggregator.sketchBins());
+        List<String> fromDatabase = sessionIds.stream()
+                .filter(id -> !windowAggregator.accumulate(id, windowSeconds, acc))
+                .toList();
+        if (!fromDatabase.isEmpty()) {
+            OffsetDateTime since = OffsetDateTime.now().minusSeconds(windowSeconds);
+            readOnlyTx.executeWithoutResult(status -> {
+                acc.add(rollups.rawAggregate(fromDatabase, since));
+                acc.addHistogram(rollups.rawHistogram(fromDatabase, since, windowAggregator.sketchBins()));
+            });
+        }
+        return acc.toLessonStats(lessonId, sessionIds.size());
+    }
+}
@@ -0,0 +1,340 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.repository.SessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Diffusion en direct (SSE) des statistiques de sessions vers les tableaux de bord enseignants.
+ * <p>
+ * Un tick ({@code app.live.tick-ms}) calcule une seule fois les stats de chaque (session, fenêtre)
+ * suivie, quel que soit le nombre d'abonnés, puis remet à chaque abonné les sessions qui ont changé
+ * depuis le tick précédent, en un seul message. Le tick fixe donc le débit maximal. Il tourne sur
+ * un thread dédié : le repli SQL des stats ne retarde pas les jobs planifiés (agrégats,
+ * rétention), ni eux le tick.
+ * <p>
+ * Chaque abonné n'a qu'une case « à envoyer » : l'envoi (bloquant si le client lit lentement)
+ * se fait hors du tick, sur un thread virtuel par abonné. Tant qu'un envoi est en cours, les
+ * mises à jour suivantes remplacent celles de la case, session par session : un client lent reçoit
+ * moins souvent l'état le plus récent, sans file qui grossit. Un envoi bloqué plus de
+ * {@code send-timeout-ms} ferme l'abonnement.
+ */
+@Slf4j
+@Service
+public class LiveStatsHub {
+
+    private final EmotionService emotionService;
+    private final SessionRepository sessionRepo;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int maxSessions;
+    private final int maxWindowSeconds;
+    private final long lessonRefreshNanos;
+    private final long heartbeatNanos;
+    private final long sendTimeoutNanos;
+    private final long retryAfterSeconds;
+    private final long tickMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter dropped;
+    private ScheduledExecutorService ticker;
+    // État du tick (thread live-stats-tick uniquement)
+    private final Map<Long, LessonMembers> lessons = new HashMap<>();
+    private Map<String, SessionStats> previous = Map.of();
+
+    public LiveStatsHub(
+            EmotionService emotionService,
+            SessionRepository sessionRepo,
+            MeterRegistry meterRegistry,
+            @Value("${app.live.timeout-ms:1800000}") long timeoutMs,
+            @Value("${app.live.max-subscribers:500}") int maxSubscribers,
+            @Value("${app.live.max-sessions:200}") int maxSessions,
+            @Value("${app.live.max-window-seconds:3600}") int maxWindowSeconds,
+            @Value("${app.live.lesson-refresh-ms:10000}") long lessonRefreshMs,
+            @Value("${app.live.heartbeat-ms:15000}") long heartbeatMs,
+            @Value("${app.live.send-timeout-ms:30000}") long sendTimeoutMs,
+            @Value("${app.live.retry-after-seconds:5}") long retryAfterSeconds,
+            @Value("${app.live.tick-ms:1000}") long tickMillis
+    ) {
+        this.emotionService = emotionService;
+        this.sessionRepo = sessionRepo;
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.maxSessions = maxSessions;
+        this.maxWindowSeconds = maxWindowSeconds;
+        this.lessonRefreshNanos = TimeUnit.MILLISECONDS.toNanos(lessonRefreshMs);
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.tickMillis = tickMillis;
+
+        Gauge.builder("live.subscribers", subscribers, Set::size)
+                .description("Abonnements SSE aux statistiques en direct")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("live.stats.dropped")
+                .description("Mises à jour remplacées avant envoi (client lent)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abonnement à un ensemble fixe de sessions.
+     */
+    public SseEmitter subscribeSessions(Collection<String> sessionIds, int windowSeconds) {
+        Set<String> ids = new LinkedHashSet<>(sessionIds);
+        if (ids.isEmpty() || ids.size() > maxSessions) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "sessionIds must contain between 1 and " + maxSessions + " sessions");
+        }
+        return subscribe(ids, null, windowSeconds);
+    }
+
+    /**
+     * Abonnement aux sessions actives d'une leçon (les {@code max-sessions} plus récentes),
+     * réévaluées toutes les {@code lesson-refresh-ms}.
+     */
+    public SseEmitter subscribeLesson(long lessonId, int windowSeconds) {
+        return subscribe(null, lessonId, windowSeconds);
+    }
+
+    private SseEmitter subscribe(Set<String> sessionIds, Long lessonId, int windowSeconds) {
+        if (windowSeconds < 1 || windowSeconds > maxWindowSeconds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "windowSeconds must be between 1 and " + maxWindowSeconds);
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new BackpressureException("Too many live subscribers", retryAfterSeconds);
+        }
+        SseEmitter emitter = newEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, sessionIds, lessonId, windowSeconds);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    @PostConstruct
+    void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-stats-tick");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // Une exception sortie du tick annulerait les suivants
+                log.warn("Live stats tick failed", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void tick() {
+        if (subscribers.isEmpty()) {
+            lessons.clear();
+            previous = Map.of();
+            return;
+        }
+        long now = System.nanoTime();
+        refreshLessons(now);
+
+        Map<String, SessionStats> current = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stuckSince(now) > sendTimeoutNanos) {
+                log.debug("Closing live stats subscriber stuck on a send");
+                close(subscriber);
+                continue;
+            }
+            Map<String, SessionStats> update = new LinkedHashMap<>();
+            for (String sessionId : sessionsOf(subscriber)) {
+                String key = sessionId + "/" + subscriber.windowSeconds;
+                SessionStats stats = current.computeIfAbsent(key, k -> compute(sessionId, subscriber.windowSeconds));
+                if (stats == null) {
+                    continue;
+                }
+                // Nouvelle session pour cet abonné, ou stats modifiées depuis le tick précédent
+                if (subscriber.known.add(sessionId) || !stats.equals(previous.get(key))) {
+                    update.put(sessionId, stats);
+                }
+            }
+            if (!update.isEmpty()) {
+                subscriber.offer(update, now);
+            } else if (now - subscriber.lastOfferNanos > heartbeatNanos) {
+                subscriber.offer(null, now); // détecte les clients partis
+            }
+        }
+        previous = current;
+    }
+
+    private SessionStats compute(String sessionId, int windowSeconds) {
+        try {
+            return emotionService.getSessionStats(sessionId, windowSeconds);
+        } catch (RuntimeException e) {
+            log.debug("Live stats unavailable for session {}: {}", sessionId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Collection<String> sessionsOf(Subscriber subscriber) {
+        if (subscriber.sessionIds != null) {
+            return subscriber.sessionIds;
+        }
+        LessonMembers members = lessons.get(subscriber.lessonId);
+        return members == null ? List.of() : members.sessionIds;
+    }
+
+    // Une requête par leçon suivie et par période de rafraîchissement, pas par abonné
+    private void refreshLessons(long now) {
+        Set<Long> wanted = new HashSet<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lessonId != null) {
+                wanted.add(subscriber.lessonId);
+            }
+        }
+        lessons.keySet().retainAll(wanted);
+        for (Long lessonId : wanted) {
+            LessonMembers members = lessons.get(lessonId);
+            if (members == null || now - members.loadedAtNanos > lessonRefreshNanos) {
+                try {
+                    lessons.put(lessonId, new LessonMembers(sessionRepo.findActiveIdsByLesson(lessonId, Limit.of(maxSessions)), now));
+                } catch (RuntimeException e) {
+                    log.debug("Could not refresh live sessions of lesson {}: {}", lessonId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private record LessonMembers(List<String> sessionIds, long loadedAtNanos) {
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> sessionIds; // null : sessions actives de lessonId
+        final Long lessonId;
+        final int windowSeconds;
+        // Sessions déjà envoyées au moins une fois (thread du tick)
+        final Set<String> known = new HashSet<>();
+        long lastOfferNanos = System.nanoTime();
+
+        // Case unique à envoyer, protégée par this
+        private Map<String, SessionStats> pending;
+        private boolean ping;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+
+        Subscriber(SseEmitter emitter, Set<String> sessionIds, Long lessonId, int windowSeconds) {
+            this.emitter = emitter;
+            this.sessionIds = sessionIds;
+            this.lessonId = lessonId;
+            this.windowSeconds = windowSeconds;
+        }
+
+        /**
+         * Dépose une mise à jour (ou un ping si null) ; fusionnée avec celle en attente, le cas échéant.
+         */
+        void offer(Map<String, SessionStats> update, long now) {
+            lastOfferNanos = now;
+            synchronized (this) {
+                if (update == null) {
+                    ping = true;
+                } else if (pending == null) {
+                    pending = update;
+                } else {
+                    for (Map.Entry<String, SessionStats> entry : update.entrySet()) {
+                        if (pending.put(entry.getKey(), entry.getValue()) != null) {
+                            dropped.increment();
+                        }
+                    }
+                }
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        long stuckSince(long now) {
+            long started = sendStartedNanos;
+            return started == 0 ? 0 : now - started;
+        }
+
+        private void drain() {
+            while (true) {
+                Map<String, SessionStats> update;
+                boolean pingOnly;
+                synchronized (this) {
+                    update = pending;
+                    pingOnly = ping;
+                    pending = null;
+                    ping = false;
+                    if (update == null && !pingOnly) {
+                        sending.set(false);
+                        return;
+                    }
+                }
+                sendStartedNanos = System.nanoTime();
+                try {
+                    if (update != null) {
+                        emitter.send(SseEmitter.event().name("stats").data(List.copyOf(update.values())));
+                    } else {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client parti ou abonnement déjà terminé
+                    subscribers.remove(this);
+                    sending.set(false);
+                    return;
+                } finally {
+                    sendStartedNanos = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.AuthTokensDTO;
+import com.elearning.adaptive.entity.RefreshToken;
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.RefreshTokenRepository;
+import com.elearning.adaptive.security.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Émission et rotation des refresh tokens. Un rafraîchissement ne coûte qu'un hachage SHA-256
+ * et quelques requêtes indexées, contre un BCrypt complet pour un nouveau login.
+ * <p>
+ * Un token déjà consommé qui est présenté à nouveau indique une copie (vol ou rejeu) :
+ * toute sa famille est alors révoquée.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository repo;
+    private final JwtUtil jwtUtil;
+
+    @Value("${app.jwt.refresh-expiration-days:30}")
+    private long refreshExpirationDays;
+
+    /**
+     * Émet un access token et un refresh token d'une nouvelle famille (login).
+     */
+    @Transactional
+    public AuthTokensDTO issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Échange un refresh token valide contre une nouvelle paire ; l'ancien est révoqué.
+     * La révocation d'une famille compromise est conservée malgré le 401.
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public AuthTokensDTO refresh(String rawToken) {
+        RefreshToken current = repo.findWithUserByTokenHash(hash(rawToken))
+                .orElseThrow(RefreshTokenService::invalid);
+        OffsetDateTime now = OffsetDateTime.now();
+        if (current.getExpiresAt().isBefore(now)) {
+            throw invalid();
+        }
+        if (current.getRevokedAt() != null || repo.revokeIfActive(current.getId(), now) == 0) {
+            int revoked = repo.revokeFamily(current.getFamilyId(), now);
+            log.warn("Refresh token reuse for user {}, {} tokens of its family revoked",
+                    current.getUser().getId(), revoked);
+            throw invalid();
+        }
+        User user = current.getUser();
+        if (!user.isActive()) {
+            throw invalid();
+        }
+        return issue(user, current.getFamilyId());
+    }
+
+    /**
+     * Déconnexion de l'appareil : révoque la famille du token présenté.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        repo.findWithUserByTokenHash(hash(rawToken))
+                .ifPresent(t -> repo.revokeFamily(t.getFamilyId(), OffsetDateTime.now()));
+    }
+
+    /**
+     * Déconnexion de tous les appareils d'un utilisateur.
+     */
+    @Transactional
+    public int revokeAll(Long userId) {
+        return repo.revokeAllForUser(userId, OffsetDateTime.now());
+    }
+
+    /**
+     * Purge des tokens expirés (conservés un jour pour la détection de rejeu tardif).
+     */
+    @Scheduled(cron = "${app.jwt.refresh-purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = repo.deleteExpiredBefore(OffsetDateTime.now().minusDays(1));
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private AuthTokensDTO issue(User user, String familyId) {
+        byte[] random = new byte[32];
+        RANDOM.nextBytes(random);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        OffsetDateTime now = OffsetDateTime.now();
+        repo.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .user(user)
+                .familyId(familyId)
+                .createdAt(now)
+                .expiresAt(now.plusDays(refreshExpirationDays))
+                .build());
+
+        String accessToken = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
+        return new AuthTokensDTO(accessToken, rawToken, jwtUtil.getExpirationMs() / 1000);
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(rawToken).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+    }
+}
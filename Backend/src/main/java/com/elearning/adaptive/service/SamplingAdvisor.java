@@ -0,0 +1,196 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.ConnectionAdmission;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cadence d'échantillonnage conseillée à chaque client webcam ({@code nextIntervalMs} des réponses
+ * d'ingestion et des acquittements WebSocket) : intervalle entre deux images, de
+ * {@code min-interval-ms} à {@code max-interval-ms}.
+ * <ul>
+ *   <li>signal : pente lissée du score (bruit image par image filtré) ; cadence maximale à partir
+ *       de {@code volatile-slope-per-second}, interpolation géométrique en dessous ;</li>
+ *   <li>visage : absent la majeure partie de la dernière demi-vie, au moins
+ *       {@code face-absent-interval-ms} ;</li>
+ *   <li>charge : pression la plus forte entre file write-behind, attente de connexions et durée
+ *       récente des transactions d'ingestion ({@code latency-ceiling-ms}) ; au-delà de la moitié,
+ *       l'intervalle est allongé jusqu'à {@code max-load-factor} fois.</li>
+ * </ul>
+ * {@code max-interval-ms} borne le retard de détection d'un changement de niveau : la première
+ * image après le changement relance la cadence. Le conseil porte sur les envois déjà traités ;
+ * une session inconnue (nouvelle, ou passée sur un autre nœud) reçoit la cadence maximale.
+ */
+@Component
+public class SamplingAdvisor implements EmotionIngestListener, SessionEndListener {
+
+    // Sous cette pression, la charge ne ralentit pas les clients
+    private static final double PRESSURE_KNEE = 0.5;
+
+    private final Map<String, SamplingState> states = new ConcurrentHashMap<>();
+    private final EmotionWriteBehindQueue writeBehind;
+    private final ConnectionAdmission admission;
+    private final EmotionMetrics metrics;
+    private final DistributionSummary intervals;
+
+    private final boolean enabled;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final long faceAbsentIntervalMs;
+    private final double tauMillis;
+    private final double volatileSlope;
+    private final double latencyCeilingMs;
+    private final double maxLoadFactor;
+    private final long idleMillis;
+
+    public SamplingAdvisor(
+            EmotionWriteBehindQueue writeBehind,
+            ConnectionAdmission admission,
+            EmotionMetrics metrics,
+            MeterRegistry meterRegistry,
+            @Value("${app.sampling.enabled:true}") boolean enabled,
+            @Value("${app.sampling.min-interval-ms:100}") long minIntervalMs,
+            @Value("${app.sampling.max-interval-ms:2000}") long maxIntervalMs,
+            @Value("${app.sampling.face-absent-interval-ms:1000}") long faceAbsentIntervalMs,
+            @Value("${app.sampling.half-life-seconds:5}") double halfLifeSeconds,
+            @Value("${app.sampling.volatile-slope-per-second:0.01}") double volatileSlope,
+            @Value("${app.sampling.load.latency-ceiling-ms:200}") double latencyCeilingMs,
+            @Value("${app.sampling.load.max-load-factor:4}") double maxLoadFactor,
+            @Value("${app.sampling.idle-seconds:600}") long idleSeconds
+    ) {
+        this.writeBehind = writeBehind;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.faceAbsentIntervalMs = faceAbsentIntervalMs;
+        this.tauMillis = EwmaTrend.tauMillis(halfLifeSeconds);
+        this.volatileSlope = volatileSlope;
+        this.latencyCeilingMs = latencyCeilingMs;
+        this.maxLoadFactor = maxLoadFactor;
+        this.idleMillis = idleSeconds * 1000;
+
+        this.intervals = DistributionSummary.builder("emotion.sampling.interval")
+                .description("Intervalle d'échantillonnage conseillé aux clients")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("emotion.sampling.pressure", this, SamplingAdvisor::pressure)
+                .description("Charge du serveur prise en compte pour la cadence (0 : aucune, 1 : saturé)")
+                .register(meterRegistry);
+        Gauge.builder("emotion.sampling.sessions", states, Map::size)
+                .description("Sessions suivies pour la cadence d'échantillonnage")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        if (!enabled) {
+            return;
+        }
+        SamplingState state = states.computeIfAbsent(event.getSessionId(), id -> new SamplingState());
+        synchronized (state) {
+            state.update(event.getTimestamp().toInstant().toEpochMilli(), event.isFaceDetected(),
+                    event.getFrustrationScore(), tauMillis);
+        }
+    }
+
+    /**
+     * @return intervalle conseillé entre deux images, ou null si la cadence n'est pas pilotée
+     */
+    public Long nextIntervalMs(String sessionId) {
+        if (!enabled || sessionId == null) {
+            return null;
+        }
+        SamplingState state = states.get(sessionId);
+        double interval = minIntervalMs;
+        if (state != null) {
+            synchronized (state) {
+                interval = signalInterval(state);
+            }
+        }
+        double load = Math.clamp((pressure() - PRESSURE_KNEE) / (1 - PRESSURE_KNEE), 0.0, 1.0);
+        interval = Math.min(interval * (1 + (maxLoadFactor - 1) * load), Math.max(interval, maxIntervalMs));
+        long advised = Math.round(interval);
+        intervals.record(advised);
+        return advised;
+    }
+
+    private double signalInterval(SamplingState state) {
+        double interval = minIntervalMs;
+        // Pente fiable seulement après une constante de temps d'observation : cadence maximale avant
+        if (!state.isEmpty() && state.lastMillis - state.firstMillis >= tauMillis) {
+            double activity = Math.min(1.0, Math.abs(state.slope) / volatileSlope);
+            interval = maxIntervalMs * Math.pow((double) minIntervalMs / maxIntervalMs, activity);
+        }
+        if (state.presence < 0.5) {
+            interval = Math.max(interval, faceAbsentIntervalMs);
+        }
+        return interval;
+    }
+
+    /**
+     * Pression la plus forte entre la file d'écriture différée, l'attente de connexions et la
+     * durée récente des transactions d'ingestion.
+     */
+    double pressure() {
+        double queue = writeBehind.isEnabled() ? (double) writeBehind.depth() / writeBehind.capacity() : 0;
+        double latency = metrics.recentTransactionMillis() / latencyCeilingMs;
+        return Math.max(queue, Math.max(admission.pressure(), latency));
+    }
+
+    @Override
+    public void sessionEnded(String sessionId) {
+        states.remove(sessionId);
+    }
+
+    /**
+     * Oublie les sessions sans événement depuis {@code idle-seconds}.
+     */
+    @Scheduled(fixedDelayString = "${app.sampling.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        states.values().removeIf(s -> s.seenMillis() < oldest);
+    }
+
+    /**
+     * Pente lissée des scores avec visage, et présence lissée du visage (même constante de temps).
+     * Indicatif : non transféré entre nœuds, reconstitué en quelques secondes.
+     */
+    static final class SamplingState extends EwmaTrend {
+        double presence = 1;
+        long seenMillis = NEVER;
+        long firstMillis = NEVER;
+
+        void update(long epochMillis, boolean faceDetected, double score, double tauMillis) {
+            if (seenMillis != NEVER) {
+                long dt = epochMillis - seenMillis;
+                if (dt < 0) {
+                    return;
+                }
+                double alpha = 1 - Math.exp(-Math.max(dt, 1) / tauMillis);
+                presence += alpha * ((faceDetected ? 1 : 0) - presence);
+            }
+            seenMillis = epochMillis;
+            // Sans visage, le score n'a pas de sens : la pente reste celle du dernier visage vu
+            if (faceDetected) {
+                if (isEmpty()) {
+                    firstMillis = epochMillis;
+                }
+                super.update(epochMillis, score, tauMillis);
+            }
+        }
+
+        synchronized long seenMillis() {
+            return seenMillis;
+        }
+    }
+}
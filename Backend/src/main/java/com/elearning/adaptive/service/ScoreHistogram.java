@@ -0,0 +1,76 @@
+package com.elearning.adaptive.service;
+
+/**
+ * Esquisse de quantiles des scores de frustration : histogramme à pas fixe sur [0, 1].
+ * <p>
+ * Taille constante ({@code bins} compteurs) quel que soit le nombre d'événements, et fusion
+ * exacte par addition : des tranches de temps, des sessions ou des nœuds se combinent sans
+ * perte. Les scores étant bornés, l'erreur sur un quantile est d'au plus une largeur de classe
+ * ({@code 1 / bins}) quelle que soit la distribution (interpolation linéaire dans la classe).
+ */
+public final class ScoreHistogram {
+
+    private final long[] counts;
+    private long total;
+
+    public ScoreHistogram(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("bins must be positive");
+        }
+        this.counts = new long[bins];
+    }
+
+    /**
+     * Classe d'un score ; 1.0 tombe dans la dernière.
+     */
+    public static int bin(double score, int bins) {
+        return Math.max(0, Math.min(bins - 1, (int) (score * bins)));
+    }
+
+    public int bins() {
+        return counts.length;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public void add(double score) {
+        add(bin(score, counts.length), 1);
+    }
+
+    public void add(int bin, long count) {
+        counts[bin] += count;
+        total += count;
+    }
+
+    public void merge(ScoreHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge histograms of " + other.counts.length
+                    + " and " + counts.length + " bins");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Quantile {@code q} (0 à 1) des scores ajoutés, ou null si l'histogramme est vide.
+     */
+    public Double quantile(double q) {
+        if (total == 0) {
+            return null;
+        }
+        double rank = Math.max(0.0, Math.min(1.0, q)) * total;
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long c = counts[i];
+            if (c > 0 && cumulative + c >= rank) {
+                return (i + (rank - cumulative) / c) / counts.length;
+            }
+            cumulative += c;
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,231 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionEventRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Détection des renvois à l'ingestion, par numéro de séquence client ({@code seq}, croissant par
+ * session) : pour chaque session, le plus grand numéro reçu et un anneau de {@code window-size}
+ * bits des numéros reçus juste en dessous (arrivées dans le désordre). Pas de lecture en base par
+ * événement : la fenêtre d'une session est chargée une fois (dernières lignes numérotées), à la
+ * première ingestion numérotée vue par ce nœud, puis tenue en mémoire.
+ * <p>
+ * Un numéro n'est marqué reçu qu'après commit (écouteur d'ingestion) : un lot annulé peut être
+ * renvoyé. En write-behind, il l'est dès la mise en file ; un lot perdu à l'écriture est oublié
+ * ({@link #forget}) pour que le client puisse le renvoyer. Deux envois simultanés du même numéro, ou un numéro plus ancien que la fenêtre,
+ * passent ce filtre : l'index unique de {@code emotion_events} (session, seq, horodatage) écarte
+ * alors la ligne à l'insertion, sans la compter. En mode cluster, la fenêtre suit la session d'un
+ * nœud à l'autre.
+ */
+@Component
+public class SequenceTracker implements EmotionIngestListener, SessionEndListener,
+        SessionStateHolder<SequenceTracker.SequenceSnapshot> {
+
+    private final Map<String, SequenceWindow> windows = new ConcurrentHashMap<>();
+    private final EmotionEventRepository repo;
+    private final int windowBits;
+    private final long idleMillis;
+
+    public SequenceTracker(
+            EmotionEventRepository repo,
+            @Value("${app.ingest.dedup.window-size:1024}") int windowSize,
+            @Value("${app.ingest.dedup.idle-seconds:600}") long idleSeconds
+    ) {
+        this.repo = repo;
+        // Multiple de 64 : l'anneau est un tableau de long
+        this.windowBits = Math.max(64, (windowSize + 63) / 64 * 64);
+        this.idleMillis = idleSeconds * 1000;
+    }
+
+    /**
+     * @return true si {@code seq} a déjà été reçu pour cette session (dans la fenêtre)
+     */
+    public boolean isDuplicate(String sessionId, long seq) {
+        SequenceWindow window = windows.get(sessionId);
+        if (window == null) {
+            window = load(sessionId);
+        }
+        synchronized (window) {
+            return window.contains(seq);
+        }
+    }
+
+    // Après redémarrage, éviction ou session nouvelle : numéros déjà écrits en base
+    private SequenceWindow load(String sessionId) {
+        SequenceWindow loaded = new SequenceWindow(windowBits);
+        for (EmotionEventRepository.SequenceRange row : repo.findLatestSequences(sessionId, Limit.of(windowBits))) {
+            for (long s = row.getSeq() + row.getRepeatCount() - 1; s >= row.getSeq(); s--) {
+                loaded.add(s);
+            }
+        }
+        SequenceWindow existing = windows.putIfAbsent(sessionId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        if (event.getSeq() == null) {
+            return;
+        }
+        SequenceWindow window = windows.computeIfAbsent(event.getSessionId(), id -> new SequenceWindow(windowBits));
+        synchronized (window) {
+            window.add(event.getSeq());
+        }
+    }
+
+    /**
+     * Retire de la fenêtre les numéros d'une ligne jamais écrite ({@code seq} .. {@code seq + count - 1}).
+     */
+    public void forget(String sessionId, long seq, int count) {
+        SequenceWindow window = windows.get(sessionId);
+        if (window == null) {
+            return;
+        }
+        synchronized (window) {
+            for (long s = seq; s < seq + count; s++) {
+                window.remove(s);
+            }
+        }
+    }
+
+    @Override
+    public void sessionEnded(String sessionId) {
+        windows.remove(sessionId);
+    }
+
+    /**
+     * Oublie les sessions sans numéro reçu depuis {@code idle-seconds}.
+     */
+    @Scheduled(fixedDelayString = "${app.ingest.dedup.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        windows.values().removeIf(w -> w.touchedAt() < oldest);
+    }
+
+    @Override
+    public String stateName() {
+        return "sequences";
+    }
+
+    @Override
+    public Class<SequenceSnapshot> snapshotType() {
+        return SequenceSnapshot.class;
+    }
+
+    @Override
+    public Map<String, SequenceSnapshot> export(Predicate<String> sessions) {
+        Map<String, SequenceSnapshot> exported = new HashMap<>();
+        windows.forEach((id, window) -> {
+            if (sessions.test(id) && windows.remove(id, window)) {
+                synchronized (window) {
+                    exported.put(id, window.snapshot());
+                }
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Union des numéros reçus sur les deux nœuds ; une fenêtre de taille différente est ignorée.
+     */
+    @Override
+    public void restore(String sessionId, SequenceSnapshot snapshot) {
+        if (snapshot.bits() == null || snapshot.bits().length * 64 != windowBits) {
+            return;
+        }
+        SequenceWindow window = windows.computeIfAbsent(sessionId, id -> new SequenceWindow(windowBits));
+        synchronized (window) {
+            window.merge(snapshot);
+        }
+    }
+
+    /**
+     * Plus grand numéro reçu ({@code high}) et anneau de bits : le numéro {@code s} occupe le bit
+     * {@code s mod taille}, valable tant que {@code high - s < taille}.
+     */
+    static final class SequenceWindow {
+
+        private static final long NONE = -1;
+
+        private final long[] bits;
+        private final int mask;
+        private long high = NONE;
+        private long touchedAt = System.currentTimeMillis();
+
+        SequenceWindow(int size) {
+            this.bits = new long[size / 64];
+            this.mask = size - 1;
+        }
+
+        boolean contains(long seq) {
+            if (high == NONE || seq > high || high - seq > mask) {
+                return false;
+            }
+            int bit = (int) (seq & mask);
+            return (bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        void add(long seq) {
+            touchedAt = System.currentTimeMillis();
+            if (high != NONE && high - seq > mask) {
+                return; // hors fenêtre : laissé à la contrainte en base
+            }
+            if (high == NONE || seq - high > mask) {
+                Arrays.fill(bits, 0);
+                high = seq;
+            } else {
+                // Les positions des numéros sautés (high, seq) ne sont plus valables
+                for (long s = high + 1; s < seq; s++) {
+                    int bit = (int) (s & mask);
+                    bits[bit >>> 6] &= ~(1L << bit);
+                }
+                high = Math.max(high, seq);
+            }
+            int bit = (int) (seq & mask);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+
+        void remove(long seq) {
+            if (contains(seq)) {
+                int bit = (int) (seq & mask);
+                bits[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+
+        SequenceSnapshot snapshot() {
+            return new SequenceSnapshot(high, bits.clone());
+        }
+
+        void merge(SequenceSnapshot other) {
+            if (other.high() == NONE) {
+                return;
+            }
+            SequenceWindow received = new SequenceWindow(bits.length * 64);
+            received.high = other.high();
+            System.arraycopy(other.bits(), 0, received.bits, 0, bits.length);
+            long top = Math.max(high, other.high());
+            for (long s = Math.max(0, top - mask); s <= top; s++) {
+                if (received.contains(s)) {
+                    add(s);
+                }
+            }
+        }
+
+        synchronized long touchedAt() {
+            return touchedAt;
+        }
+    }
+
+    public record SequenceSnapshot(long high, long[] bits) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.repository.SessionRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache borné (taille + TTL) des faits de session utiles à l'ingestion.
+ * Un événement pour une session connue ne déclenche aucune lecture en base.
+ * Les sessions inconnues ne sont pas mises en cache.
+ */
+@Component
+public class SessionCache {
+
+    private final SessionRepository sessionRepo;
+    private final AsyncCache<String, SessionInfo> cache;
+
+    public SessionCache(
+            SessionRepository sessionRepo,
+            MeterRegistry meterRegistry,
+            @Value("${app.session-cache.max-size:100000}") long maxSize,
+            @Value("${app.session-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        // Métriques hits / misses / evictions : cache.gets, cache.evictions... (cache=session-info)
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "session-info");
+    }
+
+    public Optional<SessionInfo> get(String sessionId) {
+        if (sessionId == null) {
+            return Optional.empty();
+        }
+        // Chargement hors verrou de la map, sur le thread appelant (voir CoalescingLoads)
+        return Optional.ofNullable(CoalescingLoads.get(cache, sessionId,
+                id -> sessionRepo.findInfoByIds(List.of(id)).stream().findFirst().orElse(null)));
+    }
+
+    /**
+     * Résout un lot de sessions : une seule requête pour toutes celles absentes du cache.
+     */
+    public Map<String, SessionInfo> getAll(Collection<String> sessionIds) {
+        return CoalescingLoads.getAll(cache, sessionIds, missing -> sessionRepo.findInfoByIds(missing).stream()
+                .collect(Collectors.toMap(SessionInfo::id, Function.identity())));
+    }
+
+    public void invalidate(String sessionId) {
+        cache.synchronous().invalidate(sessionId);
+    }
+}
@@ -0,0 +1,46 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.Session;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Listener JPA de {@link Session} : toute modification persistée (ex. {@link Session#endSession()})
+ * retire la session du {@link SessionCache}, après le commit. Au flush, la base montre encore
+ * l'ancien état aux autres transactions : une ingestion qui rechargerait la session entre le flush
+ * et le commit remettrait en cache l'état ACTIVE pour toute la durée du TTL.
+ */
+@Component
+public class SessionCacheInvalidator {
+
+    // Résolu à l'usage : le cache dépend du repository, lui-même construit avec ce listener
+    private final ObjectProvider<SessionCache> sessionCache;
+
+    public SessionCacheInvalidator(ObjectProvider<SessionCache> sessionCache) {
+        this.sessionCache = sessionCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onSessionChanged(Session session) {
+        String sessionId = session.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(sessionId);
+                }
+            });
+        } else {
+            invalidate(sessionId);
+        }
+    }
+
+    private void invalidate(String sessionId) {
+        sessionCache.ifAvailable(cache -> cache.invalidate(sessionId));
+    }
+}
@@ -0,0 +1,11 @@
+package com.elearning.adaptive.service;
+
+/**
+ * Composant notifié de la clôture d'une session (par l'étudiant, un enseignant, ou pour
+ * inactivité), après commit : l'état en mémoire de la session peut être libéré.
+ * Les implémentations doivent rester en O(1) et ne pas faire d'I/O bloquante.
+ */
+public interface SessionEndListener {
+
+    void sessionEnded(String sessionId);
+}
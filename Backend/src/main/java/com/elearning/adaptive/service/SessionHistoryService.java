@@ -0,0 +1,95 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionHistoryItem;
+import com.elearning.adaptive.dto.SessionHistoryPage;
+import com.elearning.adaptive.repository.SessionRepository;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Historique des sessions d'un étudiant ou d'une leçon, paginé par clé (startedAt, id).
+ * <p>
+ * Une page lit {@code limit + 1} lignes : la ligne en trop indique qu'il reste une page et
+ * n'est pas renvoyée. Le curseur {@code next} reprend la clé de la dernière ligne ; contrairement
+ * à un OFFSET, le coût d'une page ne dépend pas de sa position.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SessionHistoryService {
+
+    private final SessionRepository sessionRepo;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public SessionHistoryService(
+            SessionRepository sessionRepo,
+            @Value("${app.history.default-limit:50}") int defaultLimit,
+            @Value("${app.history.max-limit:200}") int maxLimit
+    ) {
+        this.sessionRepo = sessionRepo;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sessions d'un étudiant (l'étudiant lui-même, enseignant ou administrateur).
+     */
+    public SessionHistoryPage studentHistory(Long studentId, Integer limit,
+                                             OffsetDateTime afterStartedAt, String afterId) {
+        AuthenticatedUser user = AuthenticatedUser.current()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed"));
+        if (!user.isStaff() && !user.id().equals(studentId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "History belongs to another student");
+        }
+        Limit fetch = fetchLimit(limit);
+        List<SessionHistoryItem> rows = hasCursor(afterStartedAt, afterId)
+                ? sessionRepo.findHistoryByStudentAfter(studentId, afterStartedAt, afterId, fetch)
+                : sessionRepo.findHistoryByStudent(studentId, fetch);
+        return page(rows, fetch.max() - 1);
+    }
+
+    /**
+     * Sessions d'une leçon (accès TEACHER / ADMIN, voir SecurityConfig).
+     */
+    public SessionHistoryPage lessonHistory(Long lessonId, Integer limit,
+                                            OffsetDateTime afterStartedAt, String afterId) {
+        Limit fetch = fetchLimit(limit);
+        List<SessionHistoryItem> rows = hasCursor(afterStartedAt, afterId)
+                ? sessionRepo.findHistoryByLessonAfter(lessonId, afterStartedAt, afterId, fetch)
+                : sessionRepo.findHistoryByLesson(lessonId, fetch);
+        return page(rows, fetch.max() - 1);
+    }
+
+    private Limit fetchLimit(Integer limit) {
+        int size = limit == null ? defaultLimit : limit;
+        if (size < 1 || size > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxLimit);
+        }
+        return Limit.of(size + 1);
+    }
+
+    private static boolean hasCursor(OffsetDateTime afterStartedAt, String afterId) {
+        if ((afterStartedAt == null) != (afterId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterStartedAt and afterId go together");
+        }
+        return afterStartedAt != null;
+    }
+
+    private static SessionHistoryPage page(List<SessionHistoryItem> rows, int size) {
+        if (rows.size() <= size) {
+            return new SessionHistoryPage(rows, null);
+        }
+        List<SessionHistoryItem> items = rows.subList(0, size);
+        SessionHistoryItem last = items.get(size - 1);
+        return new SessionHistoryPage(List.copyOf(items),
+                new SessionHistoryPage.Cursor(last.startedAt(), last.sessionId()));
+    }
+}
@@ -0,0 +1,102 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionDTO;
+import com.elearning.adaptive.entity.Lesson;
+import com.elearning.adaptive.entity.Session;
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.LessonRepository;
+import com.elearning.adaptive.repository.SessionRepository;
+import com.elearning.adaptive.repository.UserRepository;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ouverture et clôture des sessions de suivi d'un étudiant sur une leçon.
+ */
+@Service
+@RequiredArgsConstructor
+public class SessionService {
+
+    private final SessionRepository sessionRepo;
+    private final LessonRepository lessonRepo;
+    private final UserRepository userRepo;
+    private final IdleSessionReaper idleSessions;
+    private final List<SessionEndListener> endListeners;
+
+    /**
+     * Ouvre une session ACTIVE pour l'utilisateur courant.
+     */
+    @Transactional
+    public SessionDTO start(Long lessonId) {
+        if (lessonId == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lessonId is required");
+        }
+        AuthenticatedUser user = currentUser();
+        if (!lessonRepo.existsById(lessonId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lesson not found");
+        }
+        // Références sans lecture : seules les clés étrangères sont écrites
+        User student = userRepo.getReferenceById(user.id());
+        Lesson lesson = lessonRepo.getReferenceById(lessonId);
+        Session session = sessionRepo.save(Session.builder()
+                .id(UUID.randomUUID().toString())
+                .student(student)
+                .lesson(lesson)
+                .startedAt(OffsetDateTime.now())
+                .status("ACTIVE")
+                .build());
+        idleSessions.register(session.getId());
+        return new SessionDTO(session.getId(), user.id(), lessonId, session.getStatus(),
+                session.getStartedAt(), null);
+    }
+
+    /**
+     * Termine une session (propriétaire, enseignant ou administrateur). Sans effet si elle
+     * est déjà terminée ; l'ingestion la refuse ensuite (cache invalidé par SessionCacheInvalidator)
+     * et son état en mémoire est libéré après commit.
+     */
+    @Transactional
+    public SessionDTO end(String sessionId) {
+        AuthenticatedUser user = currentUser();
+        Session session = sessionRepo.findById(sessionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found"));
+        Long studentId = session.getStudent().getId();
+        if (!user.isStaff() && !user.id().equals(studentId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Session belongs to another student");
+        }
+        if ("ACTIVE".equals(session.getStatus())) {
+            session.endSession();
+            afterCommit(() -> endListeners.forEach(listener -> listener.sessionEnded(sessionId)));
+        }
+        return new SessionDTO(session.getId(), studentId, session.getLesson().getId(), session.getStatus(),
+                session.getStartedAt(), session.getEndedAt());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static AuthenticatedUser currentUser() {
+        return AuthenticatedUser.current()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.elearning.adaptive.service;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Composant qui tient un état en mémoire par session (fenêtres de stats, moteur de triggers...).
+ * En mode cluster, l'état d'une session vit sur le nœud qui la possède : quand la propriété change,
+ * l'état est retiré de l'ancien nœud ({@link #export}) et fusionné sur le nouveau ({@link #restore}).
+ * Les snapshots voyagent en JSON : {@code S} doit être sérialisable par Jackson.
+ *
+ * @param <S> instantané de l'état d'une session
+ */
+public interface SessionStateHolder<S> {
+
+    /**
+     * Clé de cet état dans le message de transfert ; identique sur tous les nœuds.
+     */
+    String stateName();
+
+    Class<S> snapshotType();
+
+    /**
+     * Retire et renvoie l'état des sessions acceptées par {@code sessions}.
+     */
+    Map<String, S> export(Predicate<String> sessions);
+
+    /**
+     * Fusionne l'état reçu avec celui éventuellement déjà présent (événements reçus entre-temps).
+     */
+    void restore(String sessionId, S snapshot);
+
+    /**
+     * La propriété des sessions a changé : seules celles acceptées par {@code local} sont
+     * désormais servies par ce nœud.
+     */
+    default void ownershipChanged(Predicate<String> local) {
+    }
+}
@@ -0,0 +1,440 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.entity.EmotionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Agrégats glissants de frustration par session, tenus en mémoire à l'ingestion.
+ * <p>
+ * Chaque session possède des buffers circulaires de types primitifs découpés en tranches
+ * de temps ({@code bucket-seconds}) couvrant {@code horizon-seconds}. Une requête de stats
+ * parcourt au plus un tour de buffer : O(buckets), sans accès base.
+ * La fenêtre est alignée sur les tranches (précision : une tranche).
+ * <p>
+ * Les quantiles viennent d'une esquisse par tranche plus large ({@code sketch.slice-seconds}) :
+ * un {@link ScoreHistogram} de {@code sketch.bins} classes, fusionné sur la fenêtre à la
+ * requête. Mémoire fixe par session, quel que soit le débit d'images ; la fenêtre des quantiles
+ * est alignée sur ces tranches. Le niveau et la pente lissés ({@link EwmaTrend}) sont tenus au fil
+ * de l'eau.
+ * <p>
+ * En mode cluster, seules les sessions possédées par ce nœud sont servies depuis la mémoire ;
+ * leurs fenêtres suivent la session lors d'un changement de propriétaire.
+ */
+@Component
+public class SessionWindowAggregator implements EmotionIngestListener, SessionEndListener,
+        SessionStateHolder<SessionWindowAggregator.WindowSnapshot> {
+
+    private final Map<String, SessionWindow> windows = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final Layout layout;
+    // Avant cet instant, les événements des sessions sans fenêtre n'ont pas été vus par ce nœud
+    // (démarrage du processus, ou dernier changement de propriété des sessions)
+    private volatile long coveredSinceEpochSecond;
+    private volatile Predicate<String> localSessions = id -> true;
+
+    /**
+     * Découpage commun à toutes les fenêtres.
+     */
+    record Layout(long bucketSeconds, int bucketCount, long sliceSeconds, int sliceCount, int bins,
+                  double tauMillis) {
+    }
+
+    public SessionWindowAggregator(
+            @Value("${app.stats.window.horizon-seconds:300}") int horizonSeconds,
+            @Value("${app.stats.window.bucket-seconds:1}") int bucketSeconds,
+            @Value("${app.stats.sketch.slice-seconds:10}") int sliceSeconds,
+            @Value("${app.stats.sketch.bins:50}") int bins,
+            @Value("${app.stats.trend.half-life-seconds:30}") double trendHalfLifeSeconds
+    ) {
+        this.clock = Clock.systemUTC();
+        this.layout = new Layout(bucketSeconds, Math.max(1, horizonSeconds / bucketSeconds),
+                // + 1 : tranche partielle au début de la fenêtre
+                sliceSeconds, horizonSeconds / sliceSeconds + 1, bins,
+                EwmaTrend.tauMillis(trendHalfLifeSeconds));
+        this.coveredSinceEpochSecond = clock.instant().getEpochSecond();
+    }
+
+    @Override
+    public void onEvent(EmotionEvent event) {
+        windows.computeIfAbsent(event.getSessionId(), id -> new SessionWindow(layout, coveredSinceEpochSecond))
+                .add(event.getTimestamp().toInstant().toEpochMilli(), event.getFrustrationScore(),
+                        event.isFaceDetected());
+    }
+
+    /**
+     * Statistiques d'une session sur les {@code windowSeconds} dernières secondes.
+     * @return null si la fenêtre dépasse l'horizon en mémoire, remonte avant le début de la
+     *         couverture de la session ou si la session appartient à un autre nœud : l'appelant
+     *         doit alors interroger la base.
+     */
+    public SessionStats stats(String sessionId, int windowSeconds) {
+        StatsAccumulator acc = new StatsAccumulator(layout.bins());
+        SessionWindow window = accumulateWindow(sessionId, windowSeconds, acc);
+        if (window == null) {
+            return coveredEmpty(sessionId, windowSeconds) ? SessionStats.empty(sessionId) : null;
+        }
+        return acc.toSessionStats(sessionId, window.trend(nowSecond() - windowSeconds));
+    }
+
+    /**
+     * Ajoute la fenêtre d'une session à {@code acc} (fusion de sessions : stats de leçon).
+     * @return false si la fenêtre ne peut pas être servie depuis la mémoire (voir {@link #stats})
+     */
+    public boolean accumulate(String sessionId, int windowSeconds, StatsAccumulator acc) {
+        return accumulateWindow(sessionId, windowSeconds, acc) != null || coveredEmpty(sessionId, windowSeconds);
+    }
+
+    /**
+     * Classes des esquisses de quantiles (les esquisses fusionnées doivent en avoir autant).
+     */
+    public int sketchBins() {
+        return layout.bins();
+    }
+
+    /**
+     * Constante de temps du lissage, pour le recalcul depuis la base.
+     */
+    public double trendTauMillis() {
+        return layout.tauMillis();
+    }
+
+    // Fenêtre ajoutée à acc, ou null si absente ou non servable
+    private SessionWindow accumulateWindow(String sessionId, int windowSeconds, StatsAccumulator acc) {
+        long sinceSecond = nowSecond() - windowSeconds;
+        if (windowSeconds > layout.bucketCount() * layout.bucketSeconds() || !localSessions.test(sessionId)) {
+            return null;
+        }
+        SessionWindow window = windows.get(sessionId);
+        if (window == null || sinceSecond < window.coveredSince()) {
+            return null;
+        }
+        window.accumulate(acc, sinceSecond);
+        return window;
+    }
+
+    // Session locale sans fenêtre, dont la fenêtre est couverte : aucun événement
+    private boolean coveredEmpty(String sessionId, int windowSeconds) {
+        return windowSeconds <= layout.bucketCount() * layout.bucketSeconds()
+                && localSessions.test(sessionId)
+                && !windows.containsKey(sessionId)
+                && nowSecond() - windowSeconds >= coveredSinceEpochSecond;
+    }
+
+    private long nowSecond() {
+        return clock.instant().getEpochSecond();
+    }
+
+    /**
+     * Nombre de sessions suivies (événements reçus dans l'horizon, au balayage près).
+     */
+    public int sessionCount() {
+        return windows.size();
+    }
+
+    /**
+     * Libère les sessions sans événement depuis plus longtemps que l'horizon.
+     */
+    @Scheduled(fixedDelayString = "${app.stats.window.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long oldestUseful = nowSecond() / layout.bucketSeconds() - layout.bucketCount();
+        windows.values().removeIf(w -> w.lastBucket() < oldestUseful);
+    }
+
+    /**
+     * Fenêtre libérée dès qu'elle ne contient plus d'événement de l'horizon (toujours le cas
+     * d'une session terminée pour inactivité) ; sinon elle sert encore les stats récentes
+     * jusqu'au balayage.
+     */
+    @Override
+    public void sessionEnded(String sessionId) {
+        long oldestUseful = nowSecond() / layout.bucketSeconds() - layout.bucketCount();
+        windows.computeIfPresent(sessionId, (id, w) -> w.lastBucket() < oldestUseful ? null : w);
+    }
+
+    @Override
+    public String stateName() {
+        return "windows";
+    }
+
+    @Override
+    public Class<WindowSnapshot> snapshotType() {
+        return WindowSnapshot.class;
+    }
+
+    @Override
+    public Map<String, WindowSnapshot> export(Predicate<String> sessions) {
+        Map<String, WindowSnapshot> exported = new HashMap<>();
+        windows.forEach((id, window) -> {
+            if (sessions.test(id) && windows.remove(id, window)) {
+                exported.put(id, window.snapshot());
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Fusion par tranche : les événements reçus ici pendant le transfert s'ajoutent à ceux de
+     * l'ancien propriétaire ; la couverture est la plus ancienne des deux (flux disjoints).
+     * Un instantané d'un autre découpage (déploiement en cours) est ignoré.
+     */
+    @Override
+    public void restore(String sessionId, WindowSnapshot snapshot) {
+        if (snapshot.bucketSeconds() != layout.bucketSeconds() || snapshot.sliceSeconds() != layout.sliceSeconds()
+                || snapshot.bins() != layout.bins()) {
+            return;
+        }
+        windows.compute(sessionId, (id, window) -> {
+            SessionWindow merged = window != null ? window : new SessionWindow(layout, snapshot.coveredSince());
+            merged.merge(snapshot);
+            return merged;
+        });
+    }
+
+    /**
+     * Les sessions sans fenêtre qui arrivent sur ce nœud n'y ont pas d'historique : leur
+     * couverture démarre maintenant (repli base au-delà).
+     */
+    @Override
+    public void ownershipChanged(Predicate<String> local) {
+        this.coveredSinceEpochSecond = nowSecond();
+        this.localSessions = local;
+    }
+
+    /**
+     * Tranches vivantes d'une fenêtre, pour le transfert entre nœuds ({@code sliceBins} :
+     * {@code bins} compteurs par tranche de {@code sliceKeys}, à la suite).
+     */
+    public record WindowSnapshot(long bucketSeconds, long coveredSince, long[] buckets, int[] counts,
+                                 double[] sums, double[] maxes, int[] highCounts, int[] faceCounts,
+                                 long sliceSeconds, int bins, long[] sliceKeys, int[] sliceBins,
+                                 long trendLastMillis, double trendEwma, double trendSlope) {
+    }
+
+    /**
+     * Buffers circulaires d'une session : la case {@code b % n} contient la tranche {@code b}
+     * si {@code keys[b % n] == b}, sinon elle est périmée. Même principe pour les esquisses
+     * ({@code sliceKeys}), dont chaque case occupe {@code bins} compteurs de {@code sliceBins}.
+     */
+    static final class SessionWindow {
+        private final Layout layout;
+        private final long[] keys;
+        private final int[] counts;
+        private final double[] sums;
+        private final double[] maxes;
+        private final int[] highCounts;
+        private final int[] faceCounts;
+        private long lastBucket = Long.MIN_VALUE;
+        private final long[] sliceKeys;
+        private final int[] sliceBins;
+        private long lastSlice = Long.MIN_VALUE;
+        private final EwmaTrend trend = new EwmaTrend();
+        private long coveredSince;
+
+        SessionWindow(Layout layout, long coveredSince) {
+            this.layout = layout;
+            this.coveredSince = coveredSince;
+            int size = layout.bucketCount();
+            keys = new long[size];
+            Arrays.fill(keys, Long.MIN_VALUE);
+            counts = new int[size];
+            sums = new double[size];
+            maxes = new double[size];
+            highCounts = new int[size];
+            faceCounts = new int[size];
+            sliceKeys = new long[layout.sliceCount()];
+            Arrays.fill(sliceKeys, Long.MIN_VALUE);
+            sliceBins = new int[layout.sliceCount() * layout.bins()];
+        }
+
+        synchronized void add(long epochMillis, double score, boolean faceDetected) {
+            trend.update(epochMillis, score, layout.tauMillis());
+            long second = Math.floorDiv(epochMillis, 1000L);
+            int slot = slot(second / layout.bucketSeconds());
+            if (slot < 0) {
+                return;
+            }
+            counts[slot]++;
+            sums[slot] += score;
+            if (score > maxes[slot]) {
+                maxes[slot] = score;
+            }
+            if (score > SessionStats.HIGH_FRUSTRATION_THRESHOLD) {
+                highCounts[slot]++;
+            }
+            if (faceDetected) {
+                faceCounts[slot]++;
+            }
+            int slice = sliceSlot(second / layout.sliceSeconds());
+            if (slice >= 0) {
+                sliceBins[slice * layout.bins() + ScoreHistogram.bin(score, layout.bins())]++;
+            }
+        }
+
+        synchronized void accumulate(StatsAccumulator acc, long sinceSecond) {
+            long fromBucket = sinceSecond / layout.bucketSeconds();
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] >= fromBucket) {
+                    acc.count += counts[i];
+                    acc.highCount += highCounts[i];
+                    acc.faceCount += faceCounts[i];
+                    acc.sum += sums[i];
+                    if (maxes[i] > acc.max) {
+                        acc.max = maxes[i];
+                    }
+                }
+            }
+            long fromSlice = sinceSecond / layout.sliceSeconds();
+            int bins = layout.bins();
+            for (int j = 0; j < sliceKeys.length; j++) {
+                if (sliceKeys[j] >= fromSlice) {
+                    for (int b = 0; b < bins; b++) {
+                        int n = sliceBins[j * bins + b];
+                        if (n > 0) {
+                            acc.histogram.add(b, n);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lissage courant, ou null si le dernier événement précède la fenêtre.
+         */
+        synchronized EwmaTrend trend(long sinceSecond) {
+            if (trend.isEmpty() || trend.lastMillis < sinceSecond * 1000) {
+                return null;
+            }
+            EwmaTrend copy = new EwmaTrend();
+            copy.mergeLatest(trend.lastMillis, trend.ewma, trend.slope);
+            return copy;
+        }
+
+        synchronized void merge(WindowSnapshot snapshot) {
+            coveredSince = Math.min(coveredSince, snapshot.coveredSince());
+            for (int i = 0; i < snapshot.buckets().length; i++) {
+                int slot = slot(snapshot.buckets()[i]);
+                if (slot < 0) {
+                    continue;
+                }
+                counts[slot] += snapshot.counts()[i];
+                sums[slot] += snapshot.sums()[i];
+                maxes[slot] = Math.max(maxes[slot], snapshot.maxes()[i]);
+                highCounts[slot] += snapshot.highCounts()[i];
+                faceCounts[slot] += snapshot.faceCounts()[i];
+            }
+            int bins = layout.bins();
+            for (int j = 0; j < snapshot.sliceKeys().length; j++) {
+                int slice = sliceSlot(snapshot.sliceKeys()[j]);
+                if (slice < 0) {
+                    continue;
+                }
+                for (int b = 0; b < bins; b++) {
+                    sliceBins[slice * bins + b] += snapshot.sliceBins()[j * bins + b];
+                }
+            }
+            trend.mergeLatest(snapshot.trendLastMillis(), snapshot.trendEwma(), snapshot.trendSlope());
+        }
+
+        // Case de la tranche, réinitialisée si elle contenait une tranche périmée ; -1 si la
+        // tranche est plus ancienne que l'horizon
+        private int slot(long bucket) {
+            if (lastBucket != Long.MIN_VALUE && bucket <= lastBucket - keys.length) {
+                return -1;
+            }
+            int slot = (int) Math.floorMod(bucket, (long) keys.length);
+            if (keys[slot] != bucket) {
+                keys[slot] = bucket;
+                counts[slot] = 0;
+                sums[slot] = 0.0;
+                maxes[slot] = 0.0;
+                highCounts[slot] = 0;
+                faceCounts[slot] = 0;
+            }
+            if (bucket > lastBucket) {
+                lastBucket = bucket;
+            }
+            return slot;
+        }
+
+        private int sliceSlot(long slice) {
+            if (lastSlice != Long.MIN_VALUE && slice <= lastSlice - sliceKeys.length) {
+                return -1;
+            }
+            int slot = (int) Math.floorMod(slice, (long) sliceKeys.length);
+            if (sliceKeys[slot] != slice) {
+                sliceKeys[slot] = slice;
+                Arrays.fill(sliceBins, slot * layout.bins(), (slot + 1) * layout.bins(), 0);
+            }
+            if (slice > lastSlice) {
+                lastSlice = slice;
+            }
+            return slot;
+        }
+
+        synchronized WindowSnapshot snapshot() {
+            int live = 0;
+            for (long key : keys) {
+                if (key != Long.MIN_VALUE && key > lastBucket - keys.length) {
+                    live++;
+                }
+            }
+            long[] buckets = new long[live];
+            int[] liveCounts = new int[live];
+            double[] liveSums = new double[live];
+            double[] liveMaxes = new double[live];
+            int[] liveHigh = new int[live];
+            int[] liveFace = new int[live];
+            int j = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != Long.MIN_VALUE && keys[i] > lastBucket - keys.length) {
+                    buckets[j] = keys[i];
+                    liveCounts[j] = counts[i];
+                    liveSums[j] = sums[i];
+                    liveMaxes[j] = maxes[i];
+                    liveHigh[j] = highCounts[i];
+                    liveFace[j] = faceCounts[i];
+                    j++;
+                }
+            }
+
+            int bins = layout.bins();
+            int liveSlices = 0;
+            for (long key : sliceKeys) {
+                if (key != Long.MIN_VALUE && key > lastSlice - sliceKeys.length) {
+                    liveSlices++;
+                }
+            }
+            long[] slices = new long[liveSlices];
+            int[] slicesBins = new int[liveSlices * bins];
+            int k = 0;
+            for (int i = 0; i < sliceKeys.length; i++) {
+                if (sliceKeys[i] != Long.MIN_VALUE && sliceKeys[i] > lastSlice - sliceKeys.length) {
+                    slices[k] = sliceKeys[i];
+                    System.arraycopy(sliceBins, i * bins, slicesBins, k * bins, bins);
+                    k++;
+                }
+            }
+            return new WindowSnapshot(layout.bucketSeconds(), coveredSince, buckets, liveCounts, liveSums,
+                    liveMaxes, liveHigh, liveFace, layout.sliceSeconds(), bins, slices, slicesBins,
+                    trend.lastMillis, trend.ewma, trend.slope);
+        }
+
+        synchronized long coveredSince() {
+            return coveredSince;
+        }
+
+        synchronized long lastBucket() {
+            return lastBucket;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.LessonStats;
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+
+/**
+ * Sommes fusionnables d'une fenêtre (une session, ou toutes les sessions d'une leçon) :
+ * compteurs et esquisse de quantiles. Les fenêtres en mémoire et les agrégats SQL s'y ajoutent
+ * indifféremment.
+ */
+public final class StatsAccumulator {
+
+    long count;
+    double sum;
+    double max;
+    long highCount;
+    long faceCount;
+    final ScoreHistogram histogram;
+    // Faux si une partie des événements comptés n'a pas d'esquisse (agrégats par minute)
+    private boolean quantiles = true;
+
+    public StatsAccumulator(int bins) {
+        this.histogram = new ScoreHistogram(bins);
+    }
+
+    public void add(EmotionRollupRepository.Aggregate aggregate) {
+        count += aggregate.count();
+        sum += aggregate.sum();
+        max = Math.max(max, aggregate.max());
+        highCount += aggregate.highCount();
+        faceCount += aggregate.faceCount();
+    }
+
+    /**
+     * Ajoute une esquisse calculée en base ({@code counts[i]} : événements de la classe i).
+     */
+    public void addHistogram(long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                histogram.add(i, counts[i]);
+            }
+        }
+    }
+
+    public void withoutQuantiles() {
+        this.quantiles = false;
+    }
+
+    public SessionStats toSessionStats(String sessionId, EwmaTrend trend) {
+        boolean hasTrend = trend != null && !trend.isEmpty();
+        return new SessionStats(sessionId, average(), max, highCount, (int) count,
+                quantile(0.5), quantile(0.9), quantile(0.99),
+                hasTrend ? trend.ewma : null, hasTrend ? trend.slope : null, faceRatio());
+    }
+
+    public LessonStats toLessonStats(long lessonId, int sessions) {
+        return new LessonStats(lessonId, sessions, count, average(), max, highCount,
+                quantile(0.5), quantile(0.9), quantile(0.99), faceRatio());
+    }
+
+    private double average() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    // Interpolé dans sa classe, un quantile peut dépasser le maximum observé : borné par celui-ci
+    private Double quantile(double q) {
+        Double value = quantiles ? histogram.quantile(q) : null;
+        return value == null ? null : Math.min(value, max);
+    }
+
+    private Double faceRatio() {
+        return count == 0 ? null : (double) faceCount / count;
+    }
+}
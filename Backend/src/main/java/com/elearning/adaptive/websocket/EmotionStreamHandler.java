@@ -0,0 +1,248 @@
+package com.elearning.adaptive.websocket;
+
+import com.elearning.adaptive.codec.EmotionFrameCodec;
+import com.elearning.adaptive.dto.BatchIngestResult;
+import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import com.elearning.adaptive.service.BackpressureException;
+import com.elearning.adaptive.service.EmotionService;
+import com.elearning.adaptive.service.IngestRejection;
+import com.elearning.adaptive.service.SamplingAdvisor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flux d'ingestion WebSocket d'une session : le client envoie en continu des événements
+ * (un objet JSON ou un tableau par message texte, ou un lot {@link EmotionFrameCodec} par message
+ * binaire) qui suivent le même pipeline que l'API REST.
+ * <p>
+ * Messages serveur :
+ * <ul>
+ *   <li>{@code ack} : événements acceptés / rejetés / renvois écartés depuis le dernier acquittement,
+ *       tous les {@code ack-every} événements ou toutes les {@code ack-interval-ms} (y compris
+ *       quand le client se tait, pour les derniers comptes), et intervalle conseillé entre deux
+ *       images ({@code nextIntervalMs}, si piloté) ;</li>
+ *   <li>{@code pause} : serveur saturé, le dernier message est refusé et doit être renvoyé
+ *       après {@code retryAfterMs} ;</li>
+ *   <li>{@code error} : message illisible, ignoré.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmotionStreamHandler extends AbstractWebSocketHandler {
+
+    private static final TypeReference<List<EmotionEventDTO>> EVENT_LIST = new TypeReference<>() {};
+
+    // Connexions ouvertes, pour les acquittements dus sans nouveau message
+    private final Map<String, WebSocketSession> openSessions = new ConcurrentHashMap<>();
+
+    private final EmotionService emotionService;
+    private final SamplingAdvisor samplingAdvisor;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.websocket.ack-every:100}")
+    private int ackEvery;
+
+    @Value("${app.websocket.ack-interval-ms:1000}")
+    private long ackIntervalMs;
+
+    @Value("${app.websocket.max-message-bytes:524288}")
+    private int maxMessageBytes;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Un message peut porter un lot d'événements : 8 Ko par défaut dans Tomcat
+        session.setTextMessageSizeLimit(maxMessageBytes);
+        session.setBinaryMessageSizeLimit(maxMessageBytes);
+        session.getAttributes().put(StreamState.class.getName(), new StreamState());
+        openSessions.put(session.getId(), session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        openSessions.remove(session.getId());
+    }
+
+    /**
+     * Acquitte les comptes en attente des connexions restées muettes depuis {@code ack-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.ack-interval-ms:1000}")
+    public void flushPendingAcks() {
+        long now = System.currentTimeMillis();
+        for (WebSocketSession session : openSessions.values()) {
+            StreamState state = state(session);
+            state.lock.lock();
+            try {
+                if (state.pending() > 0 && now - state.lastAckAt >= ackIntervalMs) {
+                    sendAck(session, state);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not flush ack to WebSocket session {}: {}", session.getId(), e.toString());
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        String sessionId = (String) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_SESSION_ID);
+        List<EmotionEventDTO> events;
+        try {
+            events = parse(message.getPayload()).stream()
+                    .map(e -> e == null ? null : e.withSessionId(sessionId))
+                    .toList();
+        } catch (JsonProcessingException e) {
+            send(session, Map.of("type", "error", "message", "Invalid event payload"));
+            return;
+        }
+        ingest(session, events);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+        String sessionId = (String) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_SESSION_ID);
+        byte[] payload = new byte[message.getPayloadLength()];
+        message.getPayload().get(payload);
+        List<EmotionEventDTO> events;
+        try {
+            events = EmotionFrameCodec.decode(payload).stream()
+                    .map(e -> e.withSessionId(sessionId))
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            send(session, Map.of("type", "error", "message", "Invalid event payload"));
+            return;
+        }
+        ingest(session, events);
+    }
+
+    /**
+     * Passe les événements au service d'ingestion avec l'identité établie au handshake.
+     */
+    void ingest(WebSocketSession session, List<EmotionEventDTO> events) throws IOException {
+        StreamState state = state(session);
+        AuthenticatedUser user = (AuthenticatedUser) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER);
+
+        BatchIngestResult result;
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                user, null, List.of(new SimpleGrantedAuthority("ROLE_" + user.role()))));
+        try {
+            result = emotionService.recordEmotions(events);
+        } catch (RuntimeException e) {
+            BackpressureException backpressure = BackpressureException.findIn(e);
+            if (backpressure != null) {
+                send(session, Map.of("type", "pause", "retryAfterMs", backpressure.getRetryAfterSeconds() * 1000));
+                return;
+            }
+            if (e instanceof ResponseStatusException rse) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason(String.valueOf(rse.getReason())));
+                return;
+            }
+            throw e;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        state.lock.lock();
+        try {
+            state.accepted += result.getAccepted();
+            state.rejected += result.getRejected();
+            state.duplicates += result.getDuplicates();
+            if (result.getRejectedByReason().containsKey(IngestRejection.SESSION_NOT_ACTIVE.code())) {
+                sendAck(session, state);
+                session.close(CloseStatus.NORMAL.withReason("Session not active"));
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (state.pending() >= ackEvery || now - state.lastAckAt >= ackIntervalMs) {
+                sendAck(session, state);
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void sendAck(WebSocketSession session, StreamState state) throws IOException {
+        Map<String, Object> ack = new LinkedHashMap<>();
+        ack.put("type", "ack");
+        ack.put("accepted", state.accepted);
+        ack.put("rejected", state.rejected);
+        ack.put("duplicates", state.duplicates);
+        Long nextIntervalMs = samplingAdvisor.nextIntervalMs(
+                (String) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_SESSION_ID));
+        if (nextIntervalMs != null) {
+            ack.put("nextIntervalMs", nextIntervalMs);
+        }
+        send(session, ack);
+        state.accepted = 0;
+        state.rejected = 0;
+        state.duplicates = 0;
+        state.lastAckAt = System.currentTimeMillis();
+    }
+
+    private List<EmotionEventDTO> parse(String payload) throws JsonProcessingException {
+        String trimmed = payload.stripLeading();
+        if (trimmed.startsWith("[")) {
+            return objectMapper.readValue(trimmed, EVENT_LIST);
+        }
+        // Message "null" : compté comme rejeté par le service, comme un élément null d'un tableau
+        return Collections.singletonList(objectMapper.readValue(trimmed, EmotionEventDTO.class));
+    }
+
+    // Envois sérialisés par connexion : le flush planifié peut croiser le traitement d'un message
+    private void send(WebSocketSession session, Map<String, Object> body) throws IOException {
+        StreamState state = state(session);
+        state.lock.lock();
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(body)));
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private static StreamState state(WebSocketSession session) {
+        return (StreamState) session.getAttributes().get(StreamState.class.getName());
+    }
+
+    /**
+     * Compteurs d'une connexion, modifiés sous son verrou (traitement des messages et flush planifié).
+     * Pas de {@code synchronized} : un envoi bloquant y épinglerait le thread virtuel.
+     */
+    static final class StreamState {
+        final ReentrantLock lock = new ReentrantLock();
+        int accepted;
+        int rejected;
+        int duplicates;
+        long lastAckAt = System.currentTimeMillis();
+
+        int pending() {
+            return accepted + rejected + duplicates;
+        }
+    }
+}
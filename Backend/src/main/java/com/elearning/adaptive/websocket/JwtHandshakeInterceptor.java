@@ -0,0 +1,91 @@
+package com.elearning.adaptive.websocket;
+
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import com.elearning.adaptive.security.TokenAuthenticator;
+import com.elearning.adaptive.service.SessionCache;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriTemplate;
+
+import java.util.Map;
+
+/**
+ * Authentifie une seule fois, au handshake, la connexion WebSocket d'ingestion :
+ * JWT (en-tête Authorization ou paramètre access_token), puis session existante,
+ * active et appartenant à l'étudiant.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    static final String ATTR_USER = "user";
+    static final String ATTR_SESSION_ID = "sessionId";
+
+    private static final UriTemplate PATH = new UriTemplate("/ws/sessions/{sessionId}/emotions");
+
+    private final TokenAuthenticator tokenAuthenticator;
+    private final SessionCache sessionCache;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = extractToken(request);
+        if (token == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        AuthenticatedUser user;
+        try {
+            user = tokenAuthenticator.authenticate(token).orElse(null);
+        } catch (JwtException e) {
+            user = null;
+        }
+        if (user == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        Map<String, String> vars = PATH.match(request.getURI().getPath());
+        SessionInfo session = sessionCache.get(vars.get("sessionId")).orElse(null);
+        if (session == null) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+        if (!user.isAdmin() && !user.id().equals(session.studentId())) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+        if (!session.isActive()) {
+            response.setStatusCode(HttpStatus.CONFLICT);
+            return false;
+        }
+
+        attributes.put(ATTR_USER, user);
+        attributes.put(ATTR_SESSION_ID, session.id());
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String extractToken(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7);
+        }
+        // Les navigateurs ne permettent pas d'en-têtes personnalisés sur un WebSocket
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("access_token");
+    }
+}
@@ -0,0 +1,34 @@
+package com.elearning.adaptive.websocket;
+
+import com.elearning.adaptive.cluster.ClusterHandshakeInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final EmotionStreamHandler emotionStreamHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+    // Mode cluster uniquement (app.cluster.enabled)
+    private final ObjectProvider<ClusterHandshakeInterceptor> clusterHandshakeInterceptor;
+
+    @Value("${app.websocket.allowed-origins:*}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // L'authentification se fait par JWT au handshake, pas par cookie : l'origine n'est pas un critère de sécurité
+        var registration = registry.addHandler(emotionStreamHandler, "/ws/sessions/{sessionId}/emotions");
+        // Mauvais nœud : refusé avant la vérification du JWT et de la session
+        clusterHandshakeInterceptor.ifAvailable(registration::addInterceptors);
+        registration.addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns(allowedOrigins);
+    }
+}
@@ -0,0 +1,9 @@
+-- Compaction à l'ingestion (app.ingest.compaction) : une ligne peut représenter une suite
+-- d'événements quasi identiques ; repeat_count en est le nombre et frustration_score la moyenne.
+-- Les agrégations SQL pondèrent par repeat_count. Valeur par défaut constante : pas de réécriture
+-- de la table (ni des partitions existantes).
+ALTER TABLE emotion_events
+    ADD COLUMN IF NOT EXISTS repeat_count integer NOT NULL DEFAULT 1;
+
+ALTER TABLE emotion_events
+    ADD CONSTRAINT emotion_events_repeat_count_positive CHECK (repeat_count >= 1);
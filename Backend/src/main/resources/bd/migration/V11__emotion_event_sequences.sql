@@ -0,0 +1,10 @@
+-- Numéro de séquence client (optionnel) : les renvois sont écartés en mémoire à l'ingestion
+-- (SequenceTracker) ; cet index unique est le filet de sécurité après un redémarrage ou un
+-- changement de nœud. Les INSERT de EmotionEvent ignorent le conflit (ON CONFLICT DO NOTHING).
+-- La clé de partition (timestamp) doit faire partie de l'index : un renvoi porte le même horodatage.
+ALTER TABLE emotion_events
+    ADD COLUMN IF NOT EXISTS seq bigint;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_emotion_events_session_seq
+    ON emotion_events (session_id, seq, timestamp)
+    WHERE seq IS NOT NULL;
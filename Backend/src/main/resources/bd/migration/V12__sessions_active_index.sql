@@ -0,0 +1,3 @@
+-- Sessions en cours seulement : rechargées au démarrage par IdleSessionReaper et comptées par la
+-- jauge sessions.active, sans parcourir l'historique des sessions terminées.
+CREATE INDEX IF NOT EXISTS idx_sessions_active ON sessions (id) WHERE status = 'ACTIVE';
@@ -0,0 +1,10 @@
+-- created_at NULL marquait les comptes de l'ancien builder, réactivés par V4. La colonne devient
+-- obligatoire (avec une valeur par défaut pour les insertions hors application) : aucune ligne
+-- ne peut plus ressembler à un compte en attente de ce rattrapage.
+UPDATE users
+SET created_at = now()
+WHERE created_at IS NULL;
+
+ALTER TABLE users
+    ALTER COLUMN created_at SET DEFAULT now(),
+    ALTER COLUMN created_at SET NOT NULL;
@@ -1,41 +1,59 @@
+-- Schéma de départ, identique à celui que ddl-auto: update créait avant l'introduction de Flyway.
+-- Une base existante sans historique Flyway est marquée à cette version (baseline-on-migrate)
+-- et reçoit les migrations suivantes ; une base vide part d'ici.
 CREATE TABLE users (
-                       id serial primary key,
-                       full_name varchar(255),
-                       email varchar(255) unique not null,
-                       password_hash varchar(255) not null,
-                       role varchar(50),
-                       active boolean default true,
-                       created_at timestamptz default now()
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    active boolean NOT NULL,
+    created_at timestamptz,
+    email varchar(255) NOT NULL,
+    full_name varchar(255) NOT NULL,
+    password_hash varchar(255) NOT NULL,
+    role varchar(255) CHECK (role IN ('STUDENT', 'TEACHER', 'ADMIN')),
+    CONSTRAINT uk6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email)
 );
 
 CREATE TABLE courses (
-                         id serial primary key,
-                         title varchar(255),
-                         description text
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at timestamptz NOT NULL,
+    description varchar(2000),
+    title varchar(255) NOT NULL
 );
 
 CREATE TABLE lessons (
-                         id serial primary key,
-                         title varchar(255),
-                         course_id int references courses(id),
-                         order_index int
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at timestamptz NOT NULL,
+    order_index integer,
+    title varchar(255) NOT NULL,
+    course_id bigint NOT NULL,
+    CONSTRAINT fk17ucc7gjfjddsyi0gvstkqeat FOREIGN KEY (course_id) REFERENCES courses (id)
 );
 
 CREATE TABLE sessions (
-                          id varchar(64) primary key,
-                          student_id int references users(id),
-                          lesson_id int references lessons(id),
-                          started_at timestamptz default now(),
-                          ended_at timestamptz,
-                          status varchar(50)
+    id varchar(36) PRIMARY KEY,
+    ended_at timestamptz,
+    started_at timestamptz NOT NULL,
+    status varchar(20) NOT NULL,
+    lesson_id bigint NOT NULL,
+    student_id bigint NOT NULL,
+    CONSTRAINT fk9sxwc3ijhkvspln98fj4irycq FOREIGN KEY (lesson_id) REFERENCES lessons (id),
+    CONSTRAINT fkoei39pxwtklgd321j50qh4s FOREIGN KEY (student_id) REFERENCES users (id)
 );
 
 CREATE TABLE emotion_events (
-                                id serial primary key,
-                                session_id varchar(64) not null,
-                                timestamp timestamptz,
-                                frustration_score numeric,
-                                face_detected boolean,
-                                meta_json text
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    face_detected boolean NOT NULL,
+    frustration_score double precision NOT NULL,
+    meta_json text,
+    session_id varchar(255) NOT NULL,
+    timestamp timestamptz NOT NULL,
+    CONSTRAINT fkgqiig8j5fen0gfrowtbw38yfs FOREIGN KEY (session_id) REFERENCES sessions (id)
+);
+CREATE INDEX idx_session_time ON emotion_events (session_id, timestamp);
+
+CREATE TABLE recommendation_triggers (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at timestamptz NOT NULL,
+    details_json text,
+    session_id varchar(255) NOT NULL,
+    type varchar(255) NOT NULL
 );
-CREATE INDEX idx_session_time ON emotion_events(session_id, timestamp);
@@ -0,0 +1,12 @@
+-- Passage de emotion_events.id d'une colonne identity à une séquence pré-allouée (pas de 50),
+-- pour permettre les INSERT groupés (JDBC batch) côté Hibernate.
+CREATE SEQUENCE IF NOT EXISTS emotion_events_seq INCREMENT BY 50;
+
+-- Hibernate (optimiseur pooled) utilise la valeur retournée comme borne haute du bloc :
+-- on se place 50 au-dessus du max existant pour éviter toute collision.
+SELECT setval('emotion_events_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM emotion_events), false);
+
+-- Supprime aussi la séquence interne de l'identity ; DROP DEFAULT couvre une ancienne colonne serial
+ALTER TABLE emotion_events ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE emotion_events ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS emotion_events_id_seq;
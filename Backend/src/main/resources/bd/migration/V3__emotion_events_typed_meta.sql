@@ -0,0 +1,66 @@
+-- Métadonnées connues de meta_json (vecteur d'émotions, boîte englobante) en colonnes typées ;
+-- meta_json ne garde plus que les clés inconnues.
+ALTER TABLE emotion_events
+    ADD COLUMN IF NOT EXISTS emotion_vector real[],
+    ADD COLUMN IF NOT EXISTS bbox_x real,
+    ADD COLUMN IF NOT EXISTS bbox_y real,
+    ADD COLUMN IF NOT EXISTS bbox_w real,
+    ADD COLUMN IF NOT EXISTS bbox_h real;
+
+ALTER TABLE emotion_events
+    ADD CONSTRAINT emotion_events_vector_length
+    CHECK (emotion_vector IS NULL OR cardinality(emotion_vector) = 7);
+
+-- Conversion tolérante : JSON invalide ou valeurs non numériques => NULL (la ligne reste en meta_json)
+CREATE FUNCTION pg_temp.try_jsonb(t text) RETURNS jsonb LANGUAGE plpgsql IMMUTABLE AS $$
+BEGIN
+    RETURN t::jsonb;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION pg_temp.to_reals(j jsonb, len int) RETURNS real[] LANGUAGE plpgsql IMMUTABLE AS $$
+DECLARE
+    result real[];
+BEGIN
+    IF jsonb_typeof(j) = 'object' THEN
+        j := jsonb_build_array(j -> 'x', j -> 'y', j -> 'w', j -> 'h');
+    END IF;
+    IF jsonb_typeof(j) IS DISTINCT FROM 'array' OR jsonb_array_length(j) <> len THEN
+        RETURN NULL;
+    END IF;
+    result := ARRAY(SELECT (v #>> '{}')::real
+                    FROM jsonb_array_elements(j) WITH ORDINALITY AS t(v, i) ORDER BY i);
+    IF array_position(result, NULL) IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+    RETURN result;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END $$;
+
+-- Reprise des lignes existantes. Sur une grosse table, exécuter par plages d'id
+-- (ajouter "AND id BETWEEN ..." dans src) pour limiter la durée des verrous.
+WITH src AS (
+    SELECT id, pg_temp.try_jsonb(meta_json) AS m
+    FROM emotion_events
+    WHERE emotion_vector IS NULL AND bbox_x IS NULL
+      AND (meta_json LIKE '%"emotions"%' OR meta_json LIKE '%"bbox"%')
+), typed AS (
+    SELECT id, m,
+           pg_temp.to_reals(m -> 'emotions', 7) AS vec,
+           pg_temp.to_reals(m -> 'bbox', 4) AS box
+    FROM src
+    WHERE jsonb_typeof(m) = 'object'
+)
+UPDATE emotion_events e
+SET emotion_vector = t.vec,
+    bbox_x = t.box[1],
+    bbox_y = t.box[2],
+    bbox_w = t.box[3],
+    bbox_h = t.box[4],
+    meta_json = NULLIF((t.m - CASE WHEN t.vec IS NOT NULL THEN 'emotions' ELSE '' END
+                            - CASE WHEN t.box IS NOT NULL THEN 'bbox' ELSE '' END)::text, '{}')
+FROM typed t
+WHERE e.id = t.id
+  AND (t.vec IS NOT NULL OR t.box IS NOT NULL);
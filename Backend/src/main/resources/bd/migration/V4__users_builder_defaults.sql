@@ -0,0 +1,8 @@
+-- Les comptes créés par l'inscription (User.builder()) avaient active = false et
+-- created_at = NULL : les valeurs initiales des champs étaient ignorées par le builder.
+-- created_at NULL identifie ces lignes ; elles sont réactivées avant que l'authentification
+-- ne tienne compte de active.
+UPDATE users
+SET active = true,
+    created_at = now()
+WHERE created_at IS NULL;
@@ -0,0 +1,63 @@
+-- Agrégats par session et par minute, conservés au-delà de l'horizon des données brutes
+CREATE TABLE IF NOT EXISTS emotion_minute_rollups (
+    session_id varchar(64) not null,
+    minute timestamptz not null,
+    event_count int not null,
+    score_sum double precision not null,
+    score_min double precision not null,
+    score_max double precision not null,
+    high_count int not null,
+    face_count int not null,
+    primary key (session_id, minute)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name varchar(64) primary key,
+    rolled_until timestamptz not null
+);
+
+-- Partitionnement journalier (UTC) de emotion_events : la purge supprime des partitions entières.
+-- La table existante devient la partition des données antérieures ; les partitions
+-- suivantes sont créées par l'application (EmotionRetentionJob).
+ALTER TABLE emotion_events RENAME TO emotion_events_legacy;
+ALTER INDEX idx_session_time RENAME TO idx_session_time_legacy;
+ALTER INDEX IF EXISTS idx_emotion_events_time RENAME TO idx_emotion_events_time_legacy;
+-- Remplacée par la clé (id, timestamp) de la table partitionnée
+DO $$
+DECLARE
+    pk text;
+BEGIN
+    SELECT conname INTO pk FROM pg_constraint
+    WHERE conrelid = 'emotion_events_legacy'::regclass AND contype = 'p';
+    IF pk IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE emotion_events_legacy DROP CONSTRAINT %I', pk);
+    END IF;
+END $$;
+
+CREATE TABLE emotion_events (LIKE emotion_events_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (timestamp);
+-- La clé de partition doit faire partie de la clé primaire
+ALTER TABLE emotion_events ALTER COLUMN timestamp SET NOT NULL;
+ALTER TABLE emotion_events ADD PRIMARY KEY (id, timestamp);
+CREATE INDEX idx_session_time ON emotion_events (session_id, timestamp);
+-- BRIN : index minuscule, adapté aux insertions dans l'ordre du temps (rollup, purge)
+CREATE INDEX idx_emotion_events_time ON emotion_events USING brin (timestamp);
+
+-- Un événement sans horodatage ne peut être rangé dans aucune partition (ni servir aux stats)
+DELETE FROM emotion_events_legacy WHERE timestamp IS NULL;
+ALTER TABLE emotion_events_legacy ALTER COLUMN timestamp SET NOT NULL;
+
+-- Borne haute : demain (UTC), ou au-delà si des horodatages clients sont dans le futur
+DO $$
+DECLARE
+    upper_bound timestamptz;
+BEGIN
+    SELECT (date_trunc('day', greatest(now(), max(timestamp)) AT TIME ZONE 'UTC') + interval '1 day') AT TIME ZONE 'UTC'
+    INTO upper_bound
+    FROM emotion_events_legacy;
+    EXECUTE format('ALTER TABLE emotion_events ATTACH PARTITION emotion_events_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   upper_bound);
+END $$;
+
+-- Filet de sécurité si une partition journalière manque
+CREATE TABLE emotion_events_default PARTITION OF emotion_events DEFAULT;
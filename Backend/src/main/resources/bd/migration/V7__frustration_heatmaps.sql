@@ -0,0 +1,30 @@
+-- Cartes de chaleur par leçon / cours en temps relatif au début de session (tranches de 30 s)
+CREATE TABLE IF NOT EXISTS frustration_heatmap_buckets (
+    scope varchar(10) not null,        -- LESSON, COURSE
+    scope_id bigint not null,
+    offset_seconds int not null,
+    event_count bigint not null,
+    session_count bigint not null,
+    score_sum double precision not null,
+    score_max double precision not null,
+    high_count bigint not null,
+    primary key (scope, scope_id, offset_seconds)
+);
+
+-- Reprise de l'historique brut encore présent (app.heatmap.bucket-seconds = 30, seuil haut 0.7)
+INSERT INTO frustration_heatmap_buckets
+    (scope, scope_id, offset_seconds, event_count, session_count, score_sum, score_max, high_count)
+SELECT scope, scope_id, offset_seconds, count(*), count(DISTINCT session_id),
+       sum(frustration_score), max(frustration_score), count(*) FILTER (WHERE frustration_score > 0.7)
+FROM (
+    SELECT e.session_id, e.frustration_score, l.id AS lesson_id, l.course_id,
+           (floor(extract(epoch FROM e.timestamp - s.started_at) / 30) * 30)::int AS offset_seconds
+    FROM emotion_events e
+    JOIN sessions s ON s.id = e.session_id
+    JOIN lessons l ON l.id = s.lesson_id
+    WHERE e.timestamp >= s.started_at AND e.timestamp < s.started_at + interval '4 hours'
+) ev
+CROSS JOIN LATERAL (VALUES ('LESSON', ev.lesson_id), ('COURSE', ev.course_id)) AS sc(scope, scope_id)
+WHERE scope_id IS NOT NULL
+GROUP BY scope, scope_id, offset_seconds
+ON CONFLICT DO NOTHING;
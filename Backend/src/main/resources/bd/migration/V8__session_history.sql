@@ -0,0 +1,20 @@
+-- Historique paginé par clé (started_at, id) par étudiant et par leçon
+CREATE INDEX IF NOT EXISTS idx_sessions_student_started ON sessions (student_id, started_at, id);
+CREATE INDEX IF NOT EXISTS idx_sessions_lesson_started ON sessions (lesson_id, started_at, id);
+
+-- Totaux par session, tenus à jour par le job de rollup à partir de emotion_minute_rollups
+CREATE TABLE IF NOT EXISTS session_summaries (
+    session_id varchar(64) primary key,
+    event_count bigint not null,
+    score_sum double precision not null,
+    high_count bigint not null,
+    first_minute timestamptz,
+    last_minute timestamptz
+);
+
+-- Reprise des agrégats déjà calculés
+INSERT INTO session_summaries (session_id, event_count, score_sum, high_count, first_minute, last_minute)
+SELECT session_id, sum(event_count), sum(score_sum), sum(high_count), min(minute), max(minute)
+FROM emotion_minute_rollups
+GROUP BY session_id
+ON CONFLICT (session_id) DO NOTHING;
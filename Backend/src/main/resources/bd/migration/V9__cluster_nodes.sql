@@ -0,0 +1,8 @@
+-- Registre des nœuds du cluster (app.cluster.enabled) : chaque nœud y renouvelle son battement ;
+-- les nœuds sans battement depuis app.cluster.node-ttl-ms sont hors de l'anneau
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    node_id      VARCHAR(100) PRIMARY KEY,
+    url          VARCHAR(500) NOT NULL,
+    started_at   TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    heartbeat_at TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
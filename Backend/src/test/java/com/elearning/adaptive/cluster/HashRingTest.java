@@ -0,0 +1,87 @@
+package com.elearning.adaptive.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Propriétés de l'anneau dont dépend le transfert d'état : même résultat sur tous les nœuds,
+ * répartition équilibrée et déplacement minimal des sessions.
+ */
+class HashRingTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final List<String> SESSIONS = IntStream.range(0, 30_000)
+            .mapToObj(i -> new UUID(i * 0x9E3779B97F4A7C15L, i).toString())
+            .toList();
+
+    @Test
+    void ownerDependsOnlyOnTheSetOfNodes() {
+        HashRing a = new HashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        HashRing b = new HashRing(List.of("node-c", "node-a", "node-b"), VIRTUAL_NODES);
+
+        assertThat(SESSIONS).allSatisfy(id -> assertThat(b.ownerOf(id)).isEqualTo(a.ownerOf(id)));
+        // Valeur figée : des nœuds de versions ou de JVM différentes doivent calculer le même anneau
+        assertThat(HashRing.hash("sess-1")).isEqualTo(0x44872c6795d98711L);
+    }
+
+    @Test
+    void sessionsAreSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), VIRTUAL_NODES);
+
+        Map<String, Integer> counts = owners(ring);
+
+        assertThat(counts).hasSize(4);
+        double expected = SESSIONS.size() / 4.0;
+        assertThat(counts.values()).allSatisfy(n -> assertThat(n).isBetween(
+                (int) (expected * 0.75), (int) (expected * 1.25)));
+    }
+
+    @Test
+    void joiningNodeOnlyTakesSessionsForItself() {
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        HashRing after = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), VIRTUAL_NODES);
+
+        long moved = SESSIONS.stream().filter(id -> !before.ownerOf(id).equals(after.ownerOf(id)))
+                .peek(id -> assertThat(after.ownerOf(id)).isEqualTo("node-d"))
+                .count();
+
+        assertThat((double) moved / SESSIONS.size()).isBetween(0.15, 0.35);
+    }
+
+    @Test
+    void leavingNodeOnlyGivesAwayItsOwnSessions() {
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        HashRing after = new HashRing(List.of("node-a", "node-c"), VIRTUAL_NODES);
+
+        assertThat(SESSIONS).allSatisfy(id -> {
+            if (!before.ownerOf(id).equals("node-b")) {
+                assertThat(after.ownerOf(id)).isEqualTo(before.ownerOf(id));
+            } else {
+                assertThat(after.ownerOf(id)).isIn("node-a", "node-c");
+            }
+        });
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        HashRing ring = new HashRing(List.of("solo"), VIRTUAL_NODES);
+
+        assertThat(owners(ring)).containsOnlyKeys("solo");
+        assertThatThrownBy(() -> new HashRing(List.of(), VIRTUAL_NODES))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Integer> owners(HashRing ring) {
+        Map<String, Integer> counts = new HashMap<>();
+        SESSIONS.forEach(id -> counts.merge(ring.ownerOf(id), 1, Integer::sum));
+        return counts;
+    }
+}
@@ -0,0 +1,141 @@
+package com.elearning.adaptive.codec;
+
+import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Compatibilité aller-retour entre le format binaire et la forme JSON des événements.
+ */
+class EmotionFrameCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void roundTripMatchesJsonForm() throws Exception {
+        String json = """
+                [
+                  {"timestamp": "2025-11-30T13:00:00Z", "frustrationScore": 0.25, "faceDetected": true,
+                   "metaJson": "{\\"emotions\\":[0.1,0.2,0.3,0.1,0.1,0.1,0.1],\\"bbox\\":[10,20,64,64],\\"model\\":\\"fer-v2\\"}"},
+                  {"timestamp": "2025-11-30T14:00:00.120+01:00", "frustrationScore": 0.9, "faceDetected": true,
+                   "metaJson": "{\\"bbox\\":{\\"x\\":1.5,\\"y\\":2,\\"w\\":30,\\"h\\":40}}"},
+                  {"timestamp": "2025-11-30T12:59:59.500Z", "frustrationScore": 0.0, "faceDetected": false},
+                  {"timestamp": "2025-11-30T13:00:01Z", "frustrationScore": 1.0, "faceDetected": false,
+                   "metaJson": "not json at all"}
+                ]
+                """;
+        List<EmotionEventDTO> fromJson = objectMapper.readValue(json, new TypeReference<>() {});
+
+        List<EmotionEventDTO> decoded = EmotionFrameCodec.decode(EmotionFrameCodec.encode(fromJson));
+
+        assertThat(decoded).hasSameSizeAs(fromJson);
+        for (int i = 0; i < fromJson.size(); i++) {
+            EmotionEventDTO expected = fromJson.get(i);
+            EmotionEventDTO actual = decoded.get(i);
+            assertThat(Instant.ofEpochMilli(actual.timestampMillis()))
+                    .isEqualTo(OffsetDateTime.parse(expected.timestamp()).toInstant());
+            assertThat(actual.frustrationScore()).isEqualTo((float) expected.frustrationScore());
+            assertThat(actual.faceDetected()).isEqualTo(expected.faceDetected());
+
+            EmotionMetaJson.Parts parts = EmotionMetaJson.split(expected.metaJson());
+            assertThat(actual.emotions()).isEqualTo(parts.emotions());
+            assertThat(actual.bbox()).isEqualTo(parts.bbox());
+            assertSameMeta(actual.metaJson(), parts.extraJson());
+            // Même metaJson reconstitué que celui écrit en base depuis la forme JSON
+            assertSameMeta(EmotionMetaJson.merge(actual.emotions(), actual.bbox(), actual.metaJson()),
+                    EmotionMetaJson.merge(parts.emotions(), parts.bbox(), parts.extraJson()));
+        }
+    }
+
+    @Test
+    void typedFieldsAndMillisRoundTrip() {
+        EmotionEventDTO event = new EmotionEventDTO(null, null, 0.5, true, "{\"k\":1}",
+                1_764_507_600_123L, new float[]{0.5f, 0.25f}, new float[]{1f, 2f, 3f, 4f});
+
+        EmotionEventDTO decoded = EmotionFrameCodec.decode(EmotionFrameCodec.encode(List.of(event))).get(0);
+
+        assertThat(decoded.timestampMillis()).isEqualTo(event.timestampMillis());
+        assertThat(decoded.emotions()).containsExactly(0.5f, 0.25f);
+        assertThat(decoded.bbox()).containsExactly(1f, 2f, 3f, 4f);
+        assertThat(decoded.metaJson()).isEqualTo("{\"k\":1}");
+        assertThat(decoded.sessionId()).isNull();
+    }
+
+    @Test
+    void sequenceNumbersRoundTripIncludingGapsAndAbsence() {
+        List<EmotionEventDTO> events = List.of(
+                new EmotionEventDTO(null, null, 0.1, true, null, 1_000L, null, null, 41L),
+                new EmotionEventDTO(null, null, 0.2, true, null, 1_100L, null, null, 40L),
+                new EmotionEventDTO(null, null, 0.3, true, null, 1_200L, null, null, null),
+                new EmotionEventDTO(null, null, 0.4, true, null, 1_300L, null, null, 5_000_000_000L));
+
+        List<EmotionEventDTO> decoded = EmotionFrameCodec.decode(EmotionFrameCodec.encode(events));
+
+        assertThat(decoded).extracting(EmotionEventDTO::seq).containsExactly(41L, 40L, null, 5_000_000_000L);
+    }
+
+    @Test
+    void emptyBatchRoundTrip() {
+        assertThat(EmotionFrameCodec.decode(EmotionFrameCodec.encode(List.of()))).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        byte[] valid = EmotionFrameCodec.encode(realisticEvents(3, new Random(1)));
+
+        assertThatThrownBy(() -> EmotionFrameCodec.decode(Arrays.copyOf(valid, valid.length - 5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EmotionFrameCodec.decode("{\"json\":true}".getBytes()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EmotionFrameCodec.decode(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void binaryIsMuchSmallerThanJson() throws Exception {
+        List<EmotionEventDTO> events = realisticEvents(500, new Random(42));
+        byte[] json = objectMapper.writeValueAsBytes(events);
+        byte[] binary = EmotionFrameCodec.encode(events);
+
+        // Environ 19 % du JSON pour ce jeu ; tailles et débits détaillés : IngestDecodingBenchmark
+        assertThat((double) binary.length / json.length).isLessThan(0.25);
+    }
+
+    private void assertSameMeta(String actual, String expected) throws Exception {
+        if (expected == null || !expected.startsWith("{")) {
+            assertThat(actual).isEqualTo(expected);
+        } else {
+            assertThat(objectMapper.readTree(actual)).isEqualTo(objectMapper.readTree(expected));
+        }
+    }
+
+    /**
+     * Frames webcam à 5 fps avec vecteur de 7 émotions et boîte du visage dans metaJson.
+     */
+    private static List<EmotionEventDTO> realisticEvents(int count, Random random) {
+        List<EmotionEventDTO> events = new ArrayList<>(count);
+        OffsetDateTime start = OffsetDateTime.parse("2025-11-30T13:00:00Z");
+        for (int i = 0; i < count; i++) {
+            StringBuilder meta = new StringBuilder("{\"emotions\":[");
+            for (int j = 0; j < 7; j++) {
+                meta.append(j == 0 ? "" : ",").append(Math.round(random.nextDouble() * 1000) / 1000.0);
+            }
+            meta.append("],\"bbox\":[").append(random.nextInt(200)).append(',').append(random.nextInt(200))
+                    .append(",120,140]}");
+            events.add(new EmotionEventDTO(null, start.plusNanos(i * 200_000_000L).toString(),
+                    random.nextDouble(), random.nextInt(10) > 0, meta.toString()));
+        }
+        return events;
+    }
+}
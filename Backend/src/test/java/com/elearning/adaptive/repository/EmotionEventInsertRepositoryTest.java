@@ -0,0 +1,43 @@
+package com.elearning.adaptive.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Allocation des IDs par blocs de la séquence (convention pooled : valeur = borne haute du bloc).
+ */
+class EmotionEventInsertRepositoryTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final EmotionEventInsertRepository repo = new EmotionEventInsertRepository(jdbc);
+
+    @Test
+    void idsAreTakenBlockByBlockAndTheRemainderIsReused() {
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(50L), List.of(250L));
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(3))).thenReturn(List.of(100L, 150L, 200L));
+
+        assertThat(repo.allocateIds(30)).isEqualTo(range(1, 30));
+        // Reste du bloc 1..50, puis trois blocs pour les 110 suivants
+        assertThat(repo.allocateIds(130)).isEqualTo(range(31, 160));
+        assertThat(repo.allocateIds(40)).isEqualTo(range(161, 200));
+        assertThat(repo.allocateIds(1)).containsExactly(201L);
+
+        verify(jdbc, times(2)).queryForList(anyString(), eq(Long.class), eq(1));
+        verify(jdbc, times(1)).queryForList(anyString(), eq(Long.class), eq(3));
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.elearning.adaptive.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routage des connexions : lecture seule vers le réplica à jour, le reste vers le primaire,
+ * et repli sur le primaire quand le réplica est en retard ou injoignable.
+ */
+class ReplicaDataSourceTest {
+
+    private static final long MAX_LAG_MS = 5_000;
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replicaPool = mock(DataSource.class);
+    private final ReplicaDataSource replica =
+            new ReplicaDataSource(replicaPool, primary, MAX_LAG_MS, "SELECT 0", new SimpleMeterRegistry());
+    private final LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        when(replicaPool.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        routing.setReadOnlyDataSource(replica);
+        // Sinon lus sur une première connexion du primaire
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    @Test
+    void readOnlyConnectionsGoToTheReplicaOthersToThePrimary() throws SQLException {
+        replica.update(200L);
+
+        query(true);
+        verify(replicaPool).getConnection();
+        verify(primary, never()).getConnection();
+
+        query(false);
+        verify(primary).getConnection();
+        verify(replicaPool).getConnection();
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() throws SQLException {
+        replica.update(MAX_LAG_MS + 1);
+        query(true);
+        verify(replicaPool, never()).getConnection();
+        verify(primary).getConnection();
+
+        replica.update(MAX_LAG_MS);
+        query(true);
+        verify(replicaPool).getConnection();
+    }
+
+    @Test
+    void unreachableReplicaFallsBackUntilTheNextCheck() throws SQLException {
+        replica.update(0L);
+        when(replicaPool.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        query(true);
+        query(true);
+        // Une seule tentative : la suivante va directement au primaire
+        verify(replicaPool, times(1)).getConnection();
+        verify(primary, times(2)).getConnection();
+
+        replica.update(null);
+        query(true);
+        verify(replicaPool, times(1)).getConnection();
+    }
+
+    @Test
+    void unknownLagSendsReadsToThePrimary() throws SQLException {
+        replica.update(0L);
+        // Récepteur WAL arrêté : la requête de retard renvoie NULL
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.wasNull()).thenReturn(true);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery("SELECT 0")).thenReturn(rs);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(replicaPool.getConnection()).thenReturn(connection);
+
+        replica.check();
+
+        assertThat(replica.isUsable()).isFalse();
+        query(true);
+        verify(primary).getConnection();
+    }
+
+    @Test
+    void replicaIsUnusedBeforeTheFirstCheck() throws SQLException {
+        query(true);
+
+        verify(replicaPool, never()).getConnection();
+        verify(primary).getConnection();
+    }
+
+    // Comme une transaction : drapeau posé avant la première requête, qui obtient la connexion physique
+    private void query(boolean readOnly) throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            connection.setReadOnly(readOnly);
+            connection.createStatement();
+        }
+    }
+}
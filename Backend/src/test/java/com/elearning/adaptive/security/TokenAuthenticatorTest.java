@@ -0,0 +1,96 @@
+package com.elearning.adaptive.security;
+
+import com.elearning.adaptive.entity.Role;
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.UserRepository;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mode stateless : tokens vérifiés gardés jusqu'à leur {@code exp}, compte désactivé refusé
+ * après au plus {@code staleness-seconds}, tokens sans rôle ou sans expiration rejetés.
+ */
+class TokenAuthenticatorTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret!";
+    private static final long EXPIRATION_MS = 1_500;
+    private static final long STALENESS_SECONDS = 1;
+
+    private final UserRepository userRepo = mock(UserRepository.class);
+    private final User user = User.builder().id(7L).email("u@x.io").role(Role.STUDENT).active(true).build();
+    private JwtUtil jwtUtil;
+    private TokenAuthenticator authenticator;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JwtUtil());
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMs", EXPIRATION_MS);
+        jwtUtil.init();
+        when(userRepo.findByEmail("u@x.io")).thenAnswer(inv -> Optional.of(user));
+        authenticator = new TokenAuthenticator(jwtUtil, userRepo, new SimpleMeterRegistry(), "stateless",
+                100, 100, STALENESS_SECONDS);
+    }
+
+    @Test
+    void verifiedTokenIsCachedUntilItsExpiration() throws InterruptedException {
+        String token = jwtUtil.generateToken("u@x.io", "STUDENT");
+
+        assertThat(authenticator.authenticate(token)).hasValueSatisfying(u -> {
+            assertThat(u.id()).isEqualTo(7L);
+            assertThat(u.role()).isEqualTo("STUDENT");
+        });
+        assertThat(authenticator.authenticate(token)).isPresent();
+        verify(jwtUtil, times(1)).validateAndGetClaims(anyString());
+
+        // Passé exp, le cache ne couvre plus le token : revérifié, donc refusé
+        Thread.sleep(EXPIRATION_MS + 200);
+        assertThatThrownBy(() -> authenticator.authenticate(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void deactivatedAccountIsRefusedWithinTheStalenessDelay() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtUtil, "expirationMs", 60_000L);
+        String token = jwtUtil.generateToken("u@x.io", "STUDENT");
+        assertThat(authenticator.authenticate(token)).isPresent();
+
+        user.setActive(false);
+        Thread.sleep(STALENESS_SECONDS * 1000 + 200);
+
+        assertThat(authenticator.authenticate(token)).isEmpty();
+    }
+
+    @Test
+    void tokensWithoutRoleOrExpirationAreRejected() {
+        var key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        String withoutRole = Jwts.builder().setSubject("u@x.io")
+                .setExpiration(Date.from(Instant.now().plusSeconds(60)))
+                .signWith(key, SignatureAlgorithm.HS256).compact();
+        String withoutExpiration = Jwts.builder().setSubject("u@x.io").claim("role", "STUDENT")
+                .signWith(key, SignatureAlgorithm.HS256).compact();
+
+        assertThatThrownBy(() -> authenticator.authenticate(withoutRole)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> authenticator.authenticate(withoutExpiration)).isInstanceOf(JwtException.class);
+    }
+}
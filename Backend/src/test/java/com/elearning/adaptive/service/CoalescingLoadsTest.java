@@ -0,0 +1,135 @@
+package com.elearning.adaptive.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Un seul chargement par clé pour des appelants concurrents, chargement groupé limité aux clés
+ * non déjà en cours, erreur transmise aux appelants en attente, et valeur non conservée quand
+ * une invalidation survient pendant le chargement.
+ */
+class CoalescingLoadsTest {
+
+    private final AsyncCache<String, String> cache = Caffeine.newBuilder().buildAsync();
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    // Chargement compté, bloqué jusqu'à release
+    private String blockingLoad(String key) {
+        loads.incrementAndGet();
+        loading.countDown();
+        await(release);
+        return "v-" + key;
+    }
+
+    @Test
+    void concurrentCallersShareASingleLoad() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> CoalescingLoads.get(cache, "k", this::blockingLoad)));
+        }
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100); // laisse les autres appelants rejoindre le chargement en cours
+
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v-k");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(CoalescingLoads.get(cache, "k", this::blockingLoad)).isEqualTo("v-k");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void getAllLoadsOnlyTheKeysNotAlreadyInFlight() throws Exception {
+        Future<String> single = callers.submit(() -> CoalescingLoads.get(cache, "a", this::blockingLoad));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+        Future<Map<String, String>> all = callers.submit(() ->
+                CoalescingLoads.getAll(cache, List.of("a", "b", "missing"), keys -> {
+                    batches.add(keys);
+                    return Map.of("b", "v-b");
+                }));
+        Thread.sleep(100);
+        assertThat(all).isNotDone(); // attend le chargement de "a" par l'autre appelant
+
+        release.countDown();
+        assertThat(all.get(5, TimeUnit.SECONDS)).containsOnly(Map.entry("a", "v-a"), Map.entry("b", "v-b"));
+        assertThat(single.get(5, TimeUnit.SECONDS)).isEqualTo("v-a");
+        assertThat(batches).singleElement().asList().containsExactlyInAnyOrder("b", "missing");
+        // Introuvable : pas mis en cache
+        assertThat(cache.getIfPresent("missing")).isNull();
+    }
+
+    @Test
+    void loadFailureReachesTheWaitersAndIsNotCached() throws Exception {
+        Future<String> owner = callers.submit(() -> CoalescingLoads.get(cache, "k", key -> {
+            blockingLoad(key);
+            throw new IllegalStateException("database down");
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> waiter = callers.submit(() -> CoalescingLoads.get(cache, "k", this::blockingLoad));
+        Thread.sleep(100);
+
+        release.countDown();
+        for (Future<String> result : List.of(owner, waiter)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(loads).hasValue(1);
+
+        assertThat(CoalescingLoads.get(cache, "k", this::blockingLoad)).isEqualTo("v-k");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidationDuringTheLoadDropsTheLoadedValue() {
+        String value = CoalescingLoads.get(cache, "k", key -> {
+            loads.incrementAndGet();
+            // Écriture concurrente : la valeur lue est peut-être déjà périmée
+            cache.synchronous().invalidate(key);
+            return "stale";
+        });
+
+        assertThat(value).isEqualTo("stale");
+        assertThat(cache.getIfPresent("k")).isNull();
+        release.countDown();
+        assertThat(CoalescingLoads.get(cache, "k", this::blockingLoad)).isEqualTo("v-k");
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.BatchIngestResult;
+import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionEventInsertRepository;
+import com.elearning.adaptive.repository.EmotionEventRepository;
+import com.elearning.adaptive.repository.EmotionRollupRepository;
+import com.elearning.adaptive.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ingestion par lot : taille maximale, rejets comptés par motif (élément null compris), renvois
+ * comptés à part, qu'ils soient vus dans le lot, en mémoire ou écartés en base.
+ */
+class EmotionServiceImplTest {
+
+    private static final int MAX_BATCH = 10;
+
+    private final EmotionEventInsertRepository inserts = mock(EmotionEventInsertRepository.class);
+    private final SessionCache sessionCache = mock(SessionCache.class);
+    private final EmotionWriteBehindQueue writeBehind = mock(EmotionWriteBehindQueue.class);
+    private final SessionWindowAggregator windowAggregator = mock(SessionWindowAggregator.class);
+    private final SequenceTracker sequences = new SequenceTracker(mock(EmotionEventRepository.class), 1024, 600);
+    private final List<List<EmotionEvent>> written = new ArrayList<>();
+    private EmotionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EmotionServiceImpl(inserts, sessionCache, writeBehind, windowAggregator,
+                List.<EmotionIngestListener>of(sequences), mock(EmotionRollupRepository.class),
+                new EmotionMetrics(new SimpleMeterRegistry(), null, windowAggregator),
+                new EventCompactor(false, 0.02, 2_000), sequences, null);
+        ReflectionTestUtils.setField(service, "maxBatchSize", MAX_BATCH);
+        ReflectionTestUtils.setField(service, "rawHorizonDays", 30);
+        ReflectionTestUtils.setField(service, "maxAheadSeconds", 60L);
+        ReflectionTestUtils.setField(service, "maxAgeSeconds", 86_400L);
+
+        when(sessionCache.getAll(anyCollection())).thenReturn(Map.of(
+                "s", new SessionInfo("s", 1L, "ACTIVE", 1L, 1L, OffsetDateTime.now()),
+                "ended", new SessionInfo("ended", 1L, "ENDED", 1L, 1L, OffsetDateTime.now())));
+        when(inserts.insertSkippingReplays(any())).thenAnswer(inv -> {
+            written.add(new ArrayList<>(inv.<List<EmotionEvent>>getArgument(0)));
+            return List.of();
+        });
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(1L, "u@x.io", "STUDENT"), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void batchOverTheSizeLimitIsRefused() {
+        List<EmotionEventDTO> batch = new ArrayList<>();
+        for (int i = 0; i <= MAX_BATCH; i++) {
+            batch.add(event("s", 0.5, null));
+        }
+
+        assertThatThrownBy(() -> service.recordEmotions(batch))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        verify(inserts, never()).insertSkippingReplays(any());
+    }
+
+    @Test
+    void rejectionsAreCountedPerReason() {
+        String future = Instant.now().plusSeconds(3_600).toString();
+        List<EmotionEventDTO> batch = Arrays.asList(
+                event("s", 0.5, null),
+                event("unknown", 0.5, null),
+                event("ended", 0.5, null),
+                new EmotionEventDTO("s", "not a date", 0.5, true, null, null, null, null, null),
+                new EmotionEventDTO("s", future, 0.5, true, null, null, null, null, null),
+                event("s", 1.5, null),
+                event("s", 0.5, -1L),
+                null);
+
+        BatchIngestResult result = service.recordEmotions(batch);
+
+        assertThat(result.getAccepted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(7);
+        assertThat(result.getDuplicates()).isZero();
+        assertThat(result.getRejectedByReason()).containsOnly(
+                Map.entry(IngestRejection.UNKNOWN_SESSION.code(), 1),
+                Map.entry(IngestRejection.SESSION_NOT_ACTIVE.code(), 1),
+                Map.entry(IngestRejection.BAD_TIMESTAMP.code(), 1),
+                Map.entry(IngestRejection.CLOCK_SKEW.code(), 1),
+                Map.entry(IngestRejection.INVALID_SCORE.code(), 1),
+                Map.entry(IngestRejection.INVALID_SEQUENCE.code(), 1),
+                Map.entry(IngestRejection.MISSING_EVENT.code(), 1));
+        assertThat(written).singleElement().asList().hasSize(1);
+    }
+
+    @Test
+    void replaysAreCountedAsDuplicatesNotRejections() {
+        // Numéro répété dans le lot
+        BatchIngestResult first = service.recordEmotions(List.of(
+                event("s", 0.5, 1L), event("s", 0.5, 2L), event("s", 0.5, 2L)));
+        assertThat(first.getAccepted()).isEqualTo(2);
+        assertThat(first.getDuplicates()).isEqualTo(1);
+        assertThat(first.getRejected()).isZero();
+
+        // Numéro déjà reçu par un lot précédent
+        BatchIngestResult second = service.recordEmotions(List.of(event("s", 0.5, 2L), event("s", 0.5, 3L)));
+        assertThat(second.getAccepted()).isEqualTo(1);
+        assertThat(second.getDuplicates()).isEqualTo(1);
+
+        // Inconnu du filtre en mémoire mais déjà en base : écarté à l'insertion
+        doAnswer(inv -> inv.getArgument(0)).when(inserts).insertSkippingReplays(any());
+        BatchIngestResult third = service.recordEmotions(List.of(event("s", 0.5, 4L)));
+        assertThat(third.getAccepted()).isZero();
+        assertThat(third.getDuplicates()).isEqualTo(1);
+        assertThat(third.getRejected()).isZero();
+        assertThat(sequences.isDuplicate("s", 4)).isFalse();
+    }
+
+    @Test
+    void malformedTypedBboxIsKeptInTheOverflowJson() {
+        service.recordEmotions(List.of(
+                new EmotionEventDTO("s", Instant.now().toString(), 0.5, true, "{\"k\":1}", null, null,
+                        new float[]{0.1f, 0.2f, 0.3f}, null),
+                new EmotionEventDTO("s", Instant.now().toString(), 0.5, true, null, null, null,
+                        new float[]{0.1f, 0.2f, 0.3f, 0.4f}, null)));
+
+        List<EmotionEvent> rows = written.get(0);
+        assertThat(rows.get(0).getBboxX()).isNull();
+        assertThat(rows.get(0).getMetaJson()).isEqualTo("{\"k\":1,\"bbox\":[0.1,0.2,0.3]}");
+        assertThat(rows.get(1).getBboxW()).isEqualTo(0.3f);
+        assertThat(rows.get(1).getMetaJson()).isNull();
+    }
+
+    private static EmotionEventDTO event(String sessionId, double score, Long seq) {
+        return new EmotionEventDTO(sessionId, Instant.now().toString(), score, true, null, null, null, null, seq);
+    }
+}
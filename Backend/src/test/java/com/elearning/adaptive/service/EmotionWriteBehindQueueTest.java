@@ -0,0 +1,176 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionEventInsertRepository;
+import com.elearning.adaptive.repository.EmotionEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Contrat de la file write-behind : refus (503 + Retry-After) à capacité, places libérées après
+ * écriture comme après perte, lots par taille ou par délai, vidage à l'arrêt.
+ */
+class EmotionWriteBehindQueueTest {
+
+    private static final long RETRY_AFTER_SECONDS = 2;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SequenceTracker sequences = new SequenceTracker(mock(EmotionEventRepository.class), 128, 600);
+    private final InMemoryInserts inserts = new InMemoryInserts();
+    private EmotionWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        inserts.release.countDown();
+        queue.stop();
+    }
+
+    private EmotionWriteBehindQueue queue(int capacity, int batchSize, long lingerMs) {
+        queue = new EmotionWriteBehindQueue(inserts, sequences, mock(PlatformTransactionManager.class), registry);
+        ReflectionTestUtils.setField(queue, "mode", "write-behind");
+        ReflectionTestUtils.setField(queue, "capacity", capacity);
+        ReflectionTestUtils.setField(queue, "workerCount", 1);
+        ReflectionTestUtils.setField(queue, "batchSize", batchSize);
+        ReflectionTestUtils.setField(queue, "maxLingerMs", lingerMs);
+        ReflectionTestUtils.setField(queue, "retryAfterSeconds", RETRY_AFTER_SECONDS);
+        ReflectionTestUtils.setField(queue, "shutdownTimeoutSeconds", 5L);
+        queue.start();
+        return queue;
+    }
+
+    @Test
+    void fullQueueRefusesWholeBatchesUntilAFlushReleasesTheirSlots() throws InterruptedException {
+        inserts.blocked = true;
+        EmotionWriteBehindQueue queue = queue(10, 10, 50);
+
+        queue.enqueueAll(events(0, 10));
+        // Lot en vol : ses places restent prises tant qu'il n'est pas écrit
+        awaitUntil(() -> inserts.started.getCount() == 0);
+        assertThat(queue.depth()).isEqualTo(10);
+        assertThatThrownBy(() -> queue.enqueueAll(events(10, 1)))
+                .isInstanceOfSatisfying(BackpressureException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(RETRY_AFTER_SECONDS));
+
+        inserts.release.countDown();
+        awaitUntil(() -> queue.depth() == 0);
+        queue.enqueueAll(events(10, 10));
+        awaitUntil(() -> inserts.rows.size() == 20);
+    }
+
+    @Test
+    void droppedBatchReleasesItsSlotsAndItsSequenceNumbers() throws InterruptedException {
+        inserts.failing = true;
+        EmotionWriteBehindQueue queue = queue(5, 5, 50);
+        List<EmotionEvent> batch = events(0, 5);
+        batch.forEach(sequences::onEvent); // publiés à la mise en file
+
+        queue.enqueueAll(batch);
+
+        awaitUntil(() -> registry.get("emotion.writebehind.dropped").counter().count() == 5);
+        awaitUntil(() -> queue.depth() == 0);
+        assertThat(sequences.isDuplicate("s", 0)).isFalse();
+        assertThat(sequences.isDuplicate("s", 4)).isFalse();
+        queue.enqueueAll(events(0, 5));
+    }
+
+    @Test
+    void batchesAreCutAtTheBatchSizeAndTheRestAfterTheLinger() throws InterruptedException {
+        EmotionWriteBehindQueue queue = queue(100, 3, 200);
+
+        long start = System.nanoTime();
+        queue.enqueueAll(events(0, 7));
+
+        awaitUntil(() -> inserts.batchSizes.size() == 3);
+        assertThat(inserts.batchSizes).containsExactly(3, 3, 1);
+        // Le dernier lot, incomplet, attend la fin du délai
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+        // Places rendues juste après l'écriture du lot
+        awaitUntil(() -> queue.depth() == 0);
+    }
+
+    @Test
+    void stopDrainsTheQueueAndRefusesNewEvents() {
+        inserts.delayMillis = 20;
+        EmotionWriteBehindQueue queue = queue(100, 2, 50);
+        queue.enqueueAll(events(0, 10));
+
+        queue.stop();
+
+        assertThat(inserts.rows).hasSize(10);
+        assertThat(queue.depth()).isZero();
+        assertThatThrownBy(() -> queue.enqueueAll(events(10, 1))).isInstanceOf(BackpressureException.class);
+    }
+
+    private static List<EmotionEvent> events(long firstSeq, int count) {
+        List<EmotionEvent> events = new ArrayList<>(count);
+        for (long seq = firstSeq; seq < firstSeq + count; seq++) {
+            events.add(EmotionEvent.builder()
+                    .sessionId("s")
+                    .timestamp(OffsetDateTime.now())
+                    .frustrationScore(0.5)
+                    .seq(seq)
+                    .build());
+        }
+        return events;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Écritures en mémoire ; peut bloquer, ralentir ou échouer.
+     */
+    private static final class InMemoryInserts extends EmotionEventInsertRepository {
+
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final List<EmotionEvent> rows = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean blocked;
+        volatile boolean failing;
+        volatile long delayMillis;
+
+        InMemoryInserts() {
+            super(null);
+        }
+
+        @Override
+        public List<EmotionEvent> insertSkippingReplays(List<EmotionEvent> batch) {
+            started.countDown();
+            try {
+                if (blocked) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException("database down");
+            }
+            batchSizes.add(batch.size());
+            rows.addAll(batch);
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Bornes d'erreur documentées de la compaction : comptes et sommes exacts, score de chaque
+ * événement à la tolérance près, instant à la durée max d'une suite près.
+ */
+class EventCompactorTest {
+
+    private static final double TOLERANCE = 0.02;
+    private static final long MAX_RUN_MS = 2000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final EventCompactor compactor = new EventCompactor(true, TOLERANCE, MAX_RUN_MS);
+
+    @Test
+    void flatSignalCollapsesIntoFewRows() {
+        Random rnd = new Random(1);
+        List<EmotionEvent> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) { // 10 s à 10 images/s
+            events.add(event("s", T0 + i * 100L, 0.3 + rnd.nextDouble() * 0.01, true));
+        }
+        List<EmotionEvent> rows = compactor.compact(events);
+
+        assertThat(rows).hasSizeLessThanOrEqualTo(6);
+        assertThat(rows.stream().mapToInt(EmotionEvent::getRepeatCount).sum()).isEqualTo(100);
+    }
+
+    @Test
+    void retainedStatisticsStayWithinTheDocumentedBounds() {
+        Random rnd = new Random(42);
+        List<EmotionEvent> events = new ArrayList<>();
+        double level = 0.5;
+        boolean face = true;
+        for (int i = 0; i < 20_000; i++) {
+            level = Math.clamp(level + rnd.nextGaussian() * 0.005, 0.0, 1.0);
+            if (rnd.nextDouble() < 0.002) {
+                face = !face;
+            }
+            double score = face ? Math.clamp(level + rnd.nextGaussian() * 0.004, 0.0, 1.0) : 0.0;
+            events.add(event("s", T0 + i * 66L, score, face));
+        }
+        List<EmotionEvent> rows = compactor.compact(events);
+        assertThat(rows.size()).isLessThan(events.size() / 2);
+
+        double rawSum = 0;
+        double rawMax = 0;
+        long rawHigh = 0;
+        long nearThreshold = 0;
+        for (EmotionEvent e : events) {
+            rawSum += e.getFrustrationScore();
+            rawMax = Math.max(rawMax, e.getFrustrationScore());
+            rawHigh += e.getFrustrationScore() > 0.7 ? 1 : 0;
+            nearThreshold += Math.abs(e.getFrustrationScore() - 0.7) <= TOLERANCE ? 1 : 0;
+        }
+        long count = 0;
+        double sum = 0;
+        double max = 0;
+        long high = 0;
+        int next = 0;
+        for (EmotionEvent row : rows) {
+            count += row.getRepeatCount();
+            sum += row.getFrustrationScore() * row.getRepeatCount();
+            max = Math.max(max, row.getFrustrationScore());
+            high += row.getFrustrationScore() > 0.7 ? row.getRepeatCount() : 0;
+            long rowMillis = row.getTimestamp().toInstant().toEpochMilli();
+            // Les lignes couvrent les événements dans l'ordre : chacun à la tolérance et à max-run-ms près
+            for (int k = 0; k < row.getRepeatCount(); k++, next++) {
+                EmotionEvent e = events.get(next);
+                assertThat(e.isFaceDetected()).isEqualTo(row.isFaceDetected());
+                assertThat(e.getFrustrationScore()).isCloseTo(row.getFrustrationScore(), within(TOLERANCE));
+                assertThat(e.getTimestamp().toInstant().toEpochMilli() - rowMillis).isBetween(0L, MAX_RUN_MS);
+            }
+        }
+        assertThat(count).isEqualTo(events.size());
+        assertThat(sum).isCloseTo(rawSum, within(1e-6));
+        assertThat(max).isCloseTo(rawMax, within(TOLERANCE));
+        assertThat(Math.abs(high - rawHigh)).isLessThanOrEqualTo(nearThreshold);
+    }
+
+    @Test
+    void runsNeverSpanSessionsFaceChangesOrMetadata() {
+        List<EmotionEvent> events = List.of(
+                event("a", T0, 0.5, true),
+                event("b", T0 + 100, 0.5, true),
+                event("b", T0 + 200, 0.5, false),
+                event("b", T0 + 300, 0.5, false),
+                EmotionEvent.builder().sessionId("b").timestamp(at(T0 + 400)).frustrationScore(0.5)
+                        .metaJson("{\"k\":1}").build());
+        List<EmotionEvent> rows = compactor.compact(events);
+
+        assertThat(rows).extracting(EmotionEvent::getRepeatCount).containsExactly(1, 1, 2, 1);
+        // Les événements reçus (vus par les listeners) ne sont pas modifiés
+        assertThat(events).allMatch(e -> e.getRepeatCount() == 1);
+    }
+
+    @Test
+    void numberedRunsCoverConsecutiveSequencesOnly() {
+        List<EmotionEvent> events = new ArrayList<>();
+        for (long seq : new long[]{10, 11, 12, 14, 15}) {
+            events.add(event("s", T0 + seq * 100, 0.5, true).toBuilder().seq(seq).build());
+        }
+        events.add(event("s", T0 + 1600, 0.5, true));
+        List<EmotionEvent> rows = compactor.compact(events);
+
+        assertThat(rows).extracting(EmotionEvent::getSeq).containsExactly(10L, 14L, null);
+        assertThat(rows).extracting(EmotionEvent::getRepeatCount).containsExactly(3, 2, 1);
+    }
+
+    @Test
+    void disabledCompactorKeepsEveryEvent() {
+        List<EmotionEvent> events = List.of(event("s", T0, 0.5, true), event("s", T0 + 100, 0.5, true));
+
+        assertThat(new EventCompactor(false, TOLERANCE, MAX_RUN_MS).compact(events)).isSameAs(events);
+    }
+
+    private static EmotionEvent event(String sessionId, long epochMillis, double score, boolean face) {
+        return EmotionEvent.builder()
+                .sessionId(sessionId)
+                .timestamp(at(epochMillis))
+                .frustrationScore(score)
+                .faceDetected(face)
+                .build();
+    }
+
+    private static OffsetDateTime at(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,154 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.RecommendationTrigger;
+import com.elearning.adaptive.repository.RecommendationTriggerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Règles de déclenchement : maintien au-dessus du seuil, hystérésis de réarmement, cooldown,
+ * pente montante, et pertes comptées quand la file d'écriture est pleine.
+ */
+class FrustrationTriggerEngineTest {
+
+    private static final long SECOND = 1_000;
+    private static final long SUSTAIN_MS = 10 * SECOND;
+    private static final long COOLDOWN_MS = 120 * SECOND;
+    // Pente inatteignable : isole la règle de niveau
+    private static final double NO_RISING = 100;
+
+    private final RecommendationTriggerRepository repo = mock(RecommendationTriggerRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final long t0 = 1_700_000_000_000L;
+    private FrustrationTriggerEngine engine;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    private FrustrationTriggerEngine engine(double slopePerSecond, int queueCapacity) {
+        // Demi-vie 5 s, entrée 0.7, sortie 0.5, maintien 10 s, pente min. niveau 0.4, cooldown 120 s
+        engine = new FrustrationTriggerEngine(repo, new ObjectMapper(), registry, true, 5, 0.7, 0.5,
+                SUSTAIN_MS / 1000, slopePerSecond, 0.4, COOLDOWN_MS / 1000, 600, queueCapacity);
+        return engine;
+    }
+
+    @Test
+    void highFiresOnceAfterTheSustainPeriod() {
+        FrustrationTriggerEngine engine = engine(NO_RISING, 100);
+
+        List<Long> fired = feed(engine, "s", t0, t0 + 300 * SECOND, 0.9);
+
+        assertThat(fired).containsExactly(t0 + SUSTAIN_MS);
+        // Événement en retard : ignoré
+        assertThat(engine.evaluate("s", t0, 0.9)).isZero();
+
+        ArgumentCaptor<RecommendationTrigger> saved = ArgumentCaptor.forClass(RecommendationTrigger.class);
+        verify(repo, timeout(2_000)).save(saved.capture());
+        assertThat(saved.getValue().getType()).isEqualTo(FrustrationTriggerEngine.FRUSTRATION_HIGH);
+        assertThat(saved.getValue().getSessionId()).isEqualTo("s");
+        assertThat(saved.getValue().getDetailsJson()).contains("\"sustainedSeconds\":10");
+    }
+
+    @Test
+    void highRearmsOnlyBelowTheExitThreshold() {
+        FrustrationTriggerEngine engine = engine(NO_RISING, 100);
+        feed(engine, "s", t0, t0 + 20 * SECOND, 0.9);
+
+        // Entre les deux seuils : pas de réarmement, même une fois le cooldown écoulé
+        long t = t0 + 21 * SECOND;
+        assertThat(feed(engine, "s", t, t + 60 * SECOND, 0.6)).isEmpty();
+        t += 61 * SECOND;
+        assertThat(feed(engine, "s", t, t + 120 * SECOND, 0.9)).isEmpty();
+
+        // Sous le seuil de sortie : réarmé, le niveau suivant redéclenche
+        t += 121 * SECOND;
+        assertThat(feed(engine, "s", t, t + 60 * SECOND, 0.1)).isEmpty();
+        t += 61 * SECOND;
+        assertThat(feed(engine, "s", t, t + 60 * SECOND, 0.9)).hasSize(1);
+    }
+
+    @Test
+    void rearmedHighWaitsForTheCooldown() {
+        FrustrationTriggerEngine engine = engine(NO_RISING, 100);
+        assertThat(feed(engine, "s", t0, t0 + 10 * SECOND, 0.9)).containsExactly(t0 + SUSTAIN_MS);
+        feed(engine, "s", t0 + 11 * SECOND, t0 + 30 * SECOND, 0.0);
+
+        List<Long> fired = feed(engine, "s", t0 + 31 * SECOND, t0 + 300 * SECOND, 0.9);
+
+        assertThat(fired).containsExactly(t0 + SUSTAIN_MS + COOLDOWN_MS);
+    }
+
+    @Test
+    void risingFiresOnAJumpAndRearmsWhenTheSlopeFlattens() {
+        FrustrationTriggerEngine engine = engine(0.03, 100);
+        feed(engine, "s", t0, t0 + 30 * SECOND, 0.1);
+
+        // Saut de 0.1 à 0.9 : la pente lissée dépasse le seuil une fois le niveau au-dessus de 0.4
+        // (le niveau élevé déclenche ensuite FRUSTRATION_HIGH, non compté ici)
+        List<Long> fired = feed(engine, "s", t0 + 31 * SECOND, t0 + 90 * SECOND, 0.9);
+        assertThat(fired).startsWith(t0 + 34 * SECOND);
+        assertThat(risingEmitted()).isEqualTo(1);
+
+        // Retour au calme puis nouveau saut, cooldown écoulé : réarmé
+        feed(engine, "s", t0 + 91 * SECOND, t0 + 200 * SECOND, 0.1);
+        feed(engine, "s", t0 + 201 * SECOND, t0 + 260 * SECOND, 0.9);
+        assertThat(risingEmitted()).isEqualTo(2);
+    }
+
+    @Test
+    void triggersAreDroppedAndCountedWhenTheWriterQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repo.save(any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return inv.getArgument(0);
+        });
+        FrustrationTriggerEngine engine = engine(NO_RISING, 1);
+
+        // Une écriture en cours, une en file, la troisième est perdue sans bloquer l'appelant
+        for (String session : List.of("a", "b", "c")) {
+            engine.evaluate(session, t0, 0.9);
+            assertThat(engine.evaluate(session, t0 + SUSTAIN_MS, 0.9)).isEqualTo(1);
+        }
+        assertThat(registry.get("emotion.triggers.dropped").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        verify(repo, timeout(2_000).times(2)).save(any());
+        engine.shutdown();
+        verify(repo, times(2)).save(any());
+    }
+
+    private double risingEmitted() {
+        return registry.get("emotion.triggers.emitted").tag("type", FrustrationTriggerEngine.FRUSTRATION_RISING)
+                .counter().count();
+    }
+
+    // Un événement par seconde sur [from, to] ; horodatages des événements qui ont déclenché
+    private static List<Long> feed(FrustrationTriggerEngine engine, String sessionId, long from, long to,
+                                   double score) {
+        List<Long> fired = new ArrayList<>();
+        for (long t = from; t <= to; t += SECOND) {
+            if (engine.evaluate(sessionId, t, score) > 0) {
+                fired.add(t);
+            }
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,156 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionInfo;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.entity.HeatmapScope;
+import com.elearning.adaptive.repository.HeatmapRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Accumulation des cartes de chaleur : une session comptée une fois par tranche, accroissements
+ * réintégrés après un flush en échec, tranches comptées transférées avec la session (mode cluster).
+ */
+class HeatmapAggregatorTest {
+
+    private static final int BUCKET_SECONDS = 30;
+    private static final long LESSON = 1L;
+    private static final long COURSE = 9L;
+
+    private final OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC).minusHours(1);
+    private final SessionCache sessionCache = mock(SessionCache.class);
+    private final RecordingRepository repo = new RecordingRepository();
+    private HeatmapAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        when(sessionCache.get(anyString())).thenAnswer(inv -> Optional.of(
+                new SessionInfo(inv.getArgument(0), 1L, "ACTIVE", LESSON, COURSE, start)));
+        aggregator = aggregator();
+    }
+
+    private HeatmapAggregator aggregator() {
+        return new HeatmapAggregator(repo, sessionCache, BUCKET_SECONDS, 14_400);
+    }
+
+    @Test
+    void aSessionIsCountedOncePerBucket() {
+        aggregator.onEvent(event("a", 1, 0.2));
+        aggregator.onEvent(event("a", 10, 0.9));
+        aggregator.onEvent(event("b", 20, 0.4));
+        aggregator.onEvent(event("a", 40, 0.5));
+
+        aggregator.flush();
+
+        HeatmapRepository.Increment first = repo.find(HeatmapScope.LESSON, 0);
+        assertThat(first.events()).isEqualTo(3);
+        assertThat(first.sessions()).isEqualTo(2);
+        assertThat(first.scoreSum()).isCloseTo(1.5, offset(1e-9));
+        assertThat(first.scoreMax()).isEqualTo(0.9);
+        assertThat(first.highCount()).isEqualTo(1);
+        assertThat(repo.find(HeatmapScope.LESSON, BUCKET_SECONDS).sessions()).isEqualTo(1);
+        assertThat(repo.find(HeatmapScope.COURSE, 0).sessions()).isEqualTo(2);
+
+        // Tranche déjà comptée pour "a" au flush précédent
+        repo.rows.clear();
+        aggregator.onEvent(event("a", 5, 0.3));
+        aggregator.flush();
+        assertThat(repo.find(HeatmapScope.LESSON, 0).events()).isEqualTo(1);
+        assertThat(repo.find(HeatmapScope.LESSON, 0).sessions()).isZero();
+    }
+
+    @Test
+    void failedFlushIsMergedIntoTheNextOne() {
+        aggregator.onEvent(event("a", 1, 0.2));
+        aggregator.onEvent(event("b", 2, 0.75));
+        repo.failing = true;
+
+        aggregator.flush();
+        assertThat(repo.rows).isEmpty();
+
+        repo.failing = false;
+        aggregator.onEvent(event("a", 3, 0.8));
+        aggregator.flush();
+
+        HeatmapRepository.Increment merged = repo.find(HeatmapScope.LESSON, 0);
+        assertThat(merged.events()).isEqualTo(3);
+        assertThat(merged.sessions()).isEqualTo(2);
+        assertThat(merged.scoreMax()).isEqualTo(0.8);
+        assertThat(merged.highCount()).isEqualTo(2);
+
+        // Rien ne reste en attente une fois écrit
+        repo.rows.clear();
+        aggregator.flush();
+        assertThat(repo.rows).isEmpty();
+    }
+
+    @Test
+    void countedBucketsFollowTheSessionToItsNewOwner() {
+        aggregator.onEvent(event("a", 1, 0.2));
+        aggregator.onEvent(event("b", 1, 0.2));
+        HeatmapAggregator other = aggregator();
+
+        Map<String, HeatmapAggregator.CountedBuckets> exported = aggregator.export("a"::equals);
+        assertThat(exported).containsOnlyKeys("a");
+        // Événement reçu par le nouveau nœud avant la fin du transfert : tranche 1 déjà marquée
+        other.onEvent(event("a", 35, 0.2));
+        exported.forEach(other::restore);
+        other.onEvent(event("a", 2, 0.2));
+        other.onEvent(event("a", 36, 0.2));
+        other.flush();
+
+        assertThat(repo.find(HeatmapScope.LESSON, 0).events()).isEqualTo(1);
+        assertThat(repo.find(HeatmapScope.LESSON, 0).sessions()).isZero();
+        assertThat(repo.find(HeatmapScope.LESSON, BUCKET_SECONDS).sessions()).isEqualTo(1);
+        // "b" reste sur l'ancien nœud
+        assertThat(aggregator.export(id -> true)).containsOnlyKeys("b");
+    }
+
+    private EmotionEvent event(String sessionId, long offsetSeconds, double score) {
+        return EmotionEvent.builder()
+                .sessionId(sessionId)
+                .timestamp(start.plusSeconds(offsetSeconds))
+                .frustrationScore(score)
+                .build();
+    }
+
+    /**
+     * Accroissements reçus, gardés en mémoire ; peut échouer comme une base indisponible.
+     */
+    private static final class RecordingRepository extends HeatmapRepository {
+
+        final List<Increment> rows = new ArrayList<>();
+        volatile boolean failing;
+
+        RecordingRepository() {
+            super(null);
+        }
+
+        @Override
+        public void add(List<Increment> increments) {
+            if (failing) {
+                throw new IllegalStateException("database down");
+            }
+            rows.addAll(increments);
+        }
+
+        Increment find(HeatmapScope scope, int offsetSeconds) {
+            return rows.stream()
+                    .filter(r -> r.scope() == scope && r.offsetSeconds() == offsetSeconds)
+                    .findFirst().orElseThrow();
+        }
+    }
+}
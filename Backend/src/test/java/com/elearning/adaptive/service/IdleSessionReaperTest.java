@@ -0,0 +1,132 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.repository.SessionStatusRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Échéances de la roue temporelle, clôture groupée et reprise après échec d'écriture.
+ */
+class IdleSessionReaperTest {
+
+    private static final long TIMEOUT_MS = 60_000;
+    private static final long START_TIMEOUT_MS = 30_000;
+
+    private final SessionStatusRepository statusRepo = mock(SessionStatusRepository.class);
+    private final long t0 = System.currentTimeMillis();
+
+    @SuppressWarnings("unchecked")
+    private IdleSessionReaper reaper(int batchSize) {
+        when(statusRepo.endActive(anyList(), anyList())).thenAnswer(inv -> inv.getArgument(0));
+        return new IdleSessionReaper(statusRepo, mock(SessionCache.class), mock(ObjectProvider.class),
+                new SimpleMeterRegistry(), true, TIMEOUT_MS / 1000, START_TIMEOUT_MS / 1000, 1000, batchSize);
+    }
+
+    @Test
+    void silentSessionEndsAtItsLastActivityWhileActiveOneIsRearmed() {
+        IdleSessionReaper reaper = reaper(100);
+        reaper.touch("quiet", t0, true);
+        reaper.touch("busy", t0, true);
+        for (long t = t0; t <= t0 + 2 * TIMEOUT_MS; t += 5_000) {
+            reaper.touch("busy", t, true);
+            reaper.reap(t);
+        }
+
+        verify(statusRepo).endActive(List.of("quiet"), List.of(t0));
+        // busy, muette depuis deux délais ; quiet n'est pas terminée une seconde fois
+        assertThat(reaper.reap(t0 + 4 * TIMEOUT_MS)).isEqualTo(1);
+        verify(statusRepo).endActive(List.of("busy"), List.of(t0 + 2 * TIMEOUT_MS));
+    }
+
+    @Test
+    void sessionWithoutEventsUsesTheStartTimeout() {
+        IdleSessionReaper reaper = reaper(100);
+        reaper.register("opened");
+        long registered = System.currentTimeMillis();
+
+        assertThat(reaper.reap(registered + START_TIMEOUT_MS - 2_000)).isZero();
+        assertThat(reaper.reap(registered + START_TIMEOUT_MS + 2_000)).isEqualTo(1);
+    }
+
+    @Test
+    void endedSessionIsForgotten() {
+        IdleSessionReaper reaper = reaper(100);
+        reaper.touch("s", t0, true);
+        reaper.sessionEnded("s");
+
+        assertThat(reaper.reap(t0 + 2 * TIMEOUT_MS)).isZero();
+        verify(statusRepo, never()).endActive(anyList(), anyList());
+    }
+
+    @Test
+    void sessionStreamingToAnotherInstanceIsRearmedFromItsLastEvent() {
+        IdleSessionReaper reaper = reaper(100);
+        // Nouvel événement en base via une autre instance : l'UPDATE l'épargne
+        when(statusRepo.endActive(anyList(), anyList()))
+                .thenReturn(List.of())
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(statusRepo.lastEventMillis(List.of("s"))).thenReturn(Map.of("s", t0 + TIMEOUT_MS));
+        reaper.touch("s", t0, true);
+
+        assertThat(reaper.reap(t0 + TIMEOUT_MS + 1_000)).isZero();
+        assertThat(reaper.reap(t0 + 2 * TIMEOUT_MS - 1_000)).isZero();
+        assertThat(reaper.reap(t0 + 2 * TIMEOUT_MS + 1_000)).isEqualTo(1);
+        verify(statusRepo).endActive(List.of("s"), List.of(t0 + TIMEOUT_MS));
+    }
+
+    @Test
+    void manySessionsAreEndedInBatches() {
+        IdleSessionReaper reaper = reaper(500);
+        for (int i = 0; i < 200_000; i++) {
+            reaper.touch("s" + i, t0 + i % 1000, true);
+        }
+        for (int i = 0; i < 200_000; i += 2) { // la moitié reste active
+            reaper.touch("s" + i, t0 + TIMEOUT_MS / 2, true);
+        }
+
+        assertThat(reaper.reap(t0 + TIMEOUT_MS + 2_000)).isEqualTo(100_000);
+        verify(statusRepo, times(200)).endActive(anyList(), anyList());
+        assertThat(reaper.reap(t0 + TIMEOUT_MS * 3 / 2 + 2_000)).isEqualTo(100_000);
+    }
+
+    @Test
+    void failedUpdateIsRetried() {
+        IdleSessionReaper reaper = reaper(100);
+        when(statusRepo.endActive(anyList(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenAnswer(inv -> inv.getArgument(0));
+        reaper.touch("s", t0, true);
+
+        assertThat(reaper.reap(t0 + TIMEOUT_MS + 1_000)).isZero();
+        assertThat(reaper.reap(t0 + TIMEOUT_MS + 10_000)).isZero();
+        assertThat(reaper.reap(t0 + TIMEOUT_MS + 40_000)).isEqualTo(1);
+    }
+
+    @Test
+    void wheelReturnsEachItemOnceEvenAfterALongPause() {
+        IdleSessionReaper.TimerWheel<String> wheel = new IdleSessionReaper.TimerWheel<>(1000, 10_000, 0);
+        wheel.schedule("a", 3_000);
+        wheel.schedule("b", 9_500);
+        wheel.schedule("late", 500_000); // au-delà de l'horizon : revu au bout de la roue
+
+        assertThat(wheel.advance(2_999)).isEmpty();
+        assertThat(wheel.advance(3_000)).containsExactly("a");
+        List<String> due = new ArrayList<>(wheel.advance(100_000));
+        assertThat(due).containsExactlyInAnyOrder("b", "late");
+        assertThat(wheel.advance(200_000)).isEmpty();
+    }
+}
@@ -0,0 +1,152 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.repository.SessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Client lent : mises à jour fusionnées par session pendant un envoi bloqué (comptées dans
+ * {@code live.stats.dropped}), abonnement fermé après {@code send-timeout-ms}, tick sur son
+ * propre thread.
+ */
+class LiveStatsHubTest {
+
+    private static final int WINDOW = 60;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EmotionService emotionService = mock(EmotionService.class);
+    private final BlockingEmitter emitter = new BlockingEmitter();
+    private final List<String> tickThreads = new CopyOnWriteArrayList<>();
+    private volatile double level = 0.1;
+    private LiveStatsHub hub;
+
+    @AfterEach
+    void tearDown() {
+        emitter.release.countDown();
+        hub.shutdown();
+    }
+
+    private LiveStatsHub hub(long sendTimeoutMs, long tickMs) {
+        when(emotionService.getSessionStats(anyString(), anyInt())).thenAnswer(inv -> {
+            tickThreads.add(Thread.currentThread().getName());
+            return new SessionStats(inv.getArgument(0), level, level, 0, 1, null, null, null, null, null, null);
+        });
+        hub = new LiveStatsHub(emotionService, mock(SessionRepository.class), registry,
+                60_000, 10, 10, 3_600, 10_000, 60_000, sendTimeoutMs, 5, tickMs) {
+            @Override
+            SseEmitter newEmitter(long timeoutMs) {
+                return emitter;
+            }
+        };
+        return hub;
+    }
+
+    @Test
+    void updatesQueuedBehindABlockedSendAreCoalescedPerSession() throws Exception {
+        LiveStatsHub hub = hub(60_000, 1_000);
+        hub.subscribeSessions(List.of("s1", "s2"), WINDOW);
+
+        hub.tick();
+        awaitUntil(() -> emitter.sent.size() == 1);
+
+        // Deux ticks pendant l'envoi bloqué : le second remplace le premier, session par session
+        level = 0.2;
+        hub.tick();
+        level = 0.3;
+        hub.tick();
+        assertThat(registry.get("live.stats.dropped").counter().count()).isEqualTo(2);
+
+        emitter.release.countDown();
+        awaitUntil(() -> emitter.sent.size() == 2);
+        assertThat(emitter.sent.get(1)).extracting(SessionStats::getSessionId, SessionStats::getAverageFrustration)
+                .containsExactly(tuple("s1", 0.3), tuple("s2", 0.3));
+
+        // Rien de changé : rien à envoyer
+        hub.tick();
+        Thread.sleep(100);
+        assertThat(emitter.sent).hasSize(2);
+    }
+
+    @Test
+    void subscriberStuckOnASendIsClosedAfterTheSendTimeout() throws Exception {
+        LiveStatsHub hub = hub(100, 1_000);
+        hub.subscribeSessions(List.of("s1"), WINDOW);
+
+        hub.tick();
+        awaitUntil(() -> emitter.sent.size() == 1);
+        hub.tick();
+        assertThat(emitter.completed).isFalse();
+
+        Thread.sleep(200);
+        hub.tick();
+
+        assertThat(emitter.completed).isTrue();
+        assertThat(registry.get("live.subscribers").gauge().value()).isZero();
+    }
+
+    @Test
+    void tickRunsOnItsOwnThread() throws Exception {
+        LiveStatsHub hub = hub(60_000, 20);
+        hub.subscribeSessions(List.of("s1"), WINDOW);
+
+        hub.start();
+
+        awaitUntil(() -> !tickThreads.isEmpty());
+        assertThat(tickThreads).allMatch("live-stats-tick"::equals);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Client qui ne lit pas : le premier envoi bloque jusqu'à {@code release}.
+     */
+    private static final class BlockingEmitter extends SseEmitter {
+
+        final List<List<SessionStats>> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean completed;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void send(SseEventBuilder builder) throws IOException {
+            builder.build().stream()
+                    .filter(d -> d.getData() instanceof List)
+                    .forEach(d -> sent.add((List<SessionStats>) d.getData()));
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+}
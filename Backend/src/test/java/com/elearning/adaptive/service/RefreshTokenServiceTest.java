@@ -0,0 +1,128 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.AuthTokensDTO;
+import com.elearning.adaptive.entity.RefreshToken;
+import com.elearning.adaptive.entity.Role;
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.RefreshTokenRepository;
+import com.elearning.adaptive.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rotation des refresh tokens et révocation de la famille quand un token consommé est rejoué.
+ * Le dépôt est simulé en mémoire avec la sémantique des requêtes conditionnelles.
+ */
+class RefreshTokenServiceTest {
+
+    private final RefreshTokenRepository repo = mock(RefreshTokenRepository.class);
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final RefreshTokenService service = new RefreshTokenService(repo, jwtUtil);
+    private final List<RefreshToken> stored = new ArrayList<>();
+    private final User user = User.builder().id(7L).email("u@x.io").role(Role.STUDENT).active(true).build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "refreshExpirationDays", 30L);
+        when(jwtUtil.generateToken(anyString(), anyString())).thenReturn("access");
+        when(jwtUtil.getExpirationMs()).thenReturn(900_000L);
+        when(repo.save(any(RefreshToken.class))).thenAnswer(inv -> {
+            RefreshToken token = inv.getArgument(0);
+            token.setId((long) stored.size() + 1);
+            stored.add(token);
+            return token;
+        });
+        when(repo.findWithUserByTokenHash(anyString())).thenAnswer(inv -> stored.stream()
+                .filter(t -> t.getTokenHash().equals(inv.getArgument(0)))
+                .findFirst());
+        when(repo.revokeIfActive(anyLong(), any())).thenAnswer(inv -> revoke(
+                stored.stream().filter(t -> t.getId().equals(inv.getArgument(0))).toList(), inv.getArgument(1)));
+        when(repo.revokeFamily(anyString(), any())).thenAnswer(inv -> revoke(
+                stored.stream().filter(t -> t.getFamilyId().equals(inv.getArgument(0))).toList(), inv.getArgument(1)));
+    }
+
+    @Test
+    void refreshRotatesWithinTheSameFamily() {
+        AuthTokensDTO login = service.issue(user);
+        AuthTokensDTO refreshed = service.refresh(login.refreshToken());
+
+        assertThat(refreshed.refreshToken()).isNotEqualTo(login.refreshToken());
+        assertThat(refreshed.token()).isEqualTo("access");
+        assertThat(stored).hasSize(2);
+        assertThat(stored.get(0).getRevokedAt()).isNotNull();
+        assertThat(stored.get(1).getRevokedAt()).isNull();
+        assertThat(stored.get(1).getFamilyId()).isEqualTo(stored.get(0).getFamilyId());
+        // Seule l'empreinte est conservée
+        assertThat(stored).noneMatch(t -> t.getTokenHash().equals(refreshed.refreshToken()));
+    }
+
+    @Test
+    void reusedTokenRevokesTheWholeFamily() {
+        AuthTokensDTO login = service.issue(user);
+        AuthTokensDTO refreshed = service.refresh(login.refreshToken());
+        AuthTokensDTO otherDevice = service.issue(user);
+
+        assertUnauthorized(() -> service.refresh(login.refreshToken()));
+
+        // Le successeur légitime est révoqué avec le token rejoué ; l'autre famille est intacte
+        assertUnauthorized(() -> service.refresh(refreshed.refreshToken()));
+        assertThat(service.refresh(otherDevice.refreshToken()).refreshToken()).isNotNull();
+    }
+
+    @Test
+    void concurrentConsumptionIsTreatedAsReuse() {
+        AuthTokensDTO login = service.issue(user);
+        // Un autre appel a révoqué le token entre la lecture et la mise à jour conditionnelle
+        when(repo.revokeIfActive(anyLong(), any())).thenReturn(0);
+
+        assertUnauthorized(() -> service.refresh(login.refreshToken()));
+        assertThat(stored).allMatch(t -> t.getRevokedAt() != null);
+        assertThat(stored).hasSize(1);
+    }
+
+    @Test
+    void expiredUnknownOrDeactivatedTokensAreRejected() {
+        AuthTokensDTO expired = service.issue(user);
+        stored.get(0).setExpiresAt(OffsetDateTime.now().minusSeconds(1));
+        assertUnauthorized(() -> service.refresh(expired.refreshToken()));
+
+        assertUnauthorized(() -> service.refresh("unknown"));
+
+        AuthTokensDTO login = service.issue(user);
+        user.setActive(false);
+        assertUnauthorized(() -> service.refresh(login.refreshToken()));
+        assertThat(stored).hasSize(2);
+    }
+
+    private static int revoke(List<RefreshToken> tokens, OffsetDateTime now) {
+        int revoked = 0;
+        for (RefreshToken token : tokens) {
+            if (token.getRevokedAt() == null) {
+                token.setRevokedAt(now);
+                revoked++;
+            }
+        }
+        return revoked;
+    }
+
+    private static void assertUnauthorized(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED));
+    }
+}
@@ -0,0 +1,88 @@
+package com.elearning.adaptive.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Compromis précision / mémoire de l'esquisse de quantiles : l'erreur reste sous une largeur de
+ * classe quelle que soit la distribution, et la fusion est exacte.
+ */
+class ScoreHistogramTest {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.5, 0.9, 0.99};
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 50, 200})
+    void quantileErrorIsBoundedByBinWidth(int bins) {
+        Random rnd = new Random(42);
+        DoubleSupplier[] distributions = {
+                rnd::nextDouble,                                                  // uniforme
+                () -> clamp(0.3 + rnd.nextGaussian() * 0.05),                     // concentrée
+                () -> rnd.nextDouble() < 0.95 ? 0.1 * rnd.nextDouble() : 0.95,    // pics rares
+                () -> rnd.nextDouble() < 0.5 ? 0.0 : 1.0                          // bimodale aux bornes
+        };
+        for (DoubleSupplier distribution : distributions) {
+            double[] scores = new double[20_000];
+            ScoreHistogram histogram = new ScoreHistogram(bins);
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = distribution.getAsDouble();
+                histogram.add(scores[i]);
+            }
+            Arrays.sort(scores);
+            for (double q : QUANTILES) {
+                double exact = scores[(int) Math.min(scores.length - 1, Math.ceil(q * scores.length) - 1)];
+                assertThat(histogram.quantile(q)).isCloseTo(exact, within(1.0 / bins));
+            }
+        }
+    }
+
+    @Test
+    void mergeEqualsHistogramOfTheUnion() {
+        Random rnd = new Random(7);
+        ScoreHistogram union = new ScoreHistogram(50);
+        ScoreHistogram merged = new ScoreHistogram(50);
+        for (int part = 0; part < 30; part++) { // 30 sessions d'une leçon
+            ScoreHistogram session = new ScoreHistogram(50);
+            double level = rnd.nextDouble();
+            for (int i = 0; i < 500; i++) {
+                double score = clamp(level + rnd.nextGaussian() * 0.1);
+                session.add(score);
+                union.add(score);
+            }
+            merged.merge(session);
+        }
+
+        assertThat(merged.total()).isEqualTo(union.total()).isEqualTo(15_000);
+        for (double q : QUANTILES) {
+            assertThat(merged.quantile(q)).isEqualTo(union.quantile(q));
+        }
+        assertThatThrownBy(() -> merged.merge(new ScoreHistogram(100)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void emptyHistogramHasNoQuantileAndBoundsAreInRange() {
+        ScoreHistogram histogram = new ScoreHistogram(50);
+        assertThat(histogram.quantile(0.5)).isNull();
+
+        histogram.add(0.0);
+        histogram.add(1.0);
+        assertThat(histogram.quantile(0.0)).isBetween(0.0, 0.02);
+        assertThat(histogram.quantile(1.0)).isBetween(0.98, 1.0);
+        assertThat(ScoreHistogram.bin(1.0, 50)).isEqualTo(49);
+        assertThat(ScoreHistogram.bin(-0.1, 50)).isZero();
+    }
+
+    private static double clamp(double v) {
+        return Math.max(0.0, Math.min(1.0, v));
+    }
+}
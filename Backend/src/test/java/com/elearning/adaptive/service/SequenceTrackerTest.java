@@ -0,0 +1,131 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.repository.EmotionEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fenêtre de numéros reçus : renvois, arrivées dans le désordre, sauts, rechargement depuis la base
+ * et transfert entre nœuds.
+ */
+class SequenceTrackerTest {
+
+    private static final int WINDOW = 128;
+
+    private final EmotionEventRepository repo = mock(EmotionEventRepository.class);
+    private final SequenceTracker tracker = new SequenceTracker(repo, WINDOW, 600);
+
+    @Test
+    void outOfOrderArrivalsAreTrackedWithinTheWindow() {
+        received("s", 10, 12, 11, 15);
+
+        assertThat(tracker.isDuplicate("s", 10)).isTrue();
+        assertThat(tracker.isDuplicate("s", 11)).isTrue();
+        assertThat(tracker.isDuplicate("s", 13)).isFalse();
+        assertThat(tracker.isDuplicate("s", 16)).isFalse();
+        assertThat(tracker.isDuplicate("other", 10)).isFalse();
+
+        received("s", 13);
+        assertThat(tracker.isDuplicate("s", 13)).isTrue();
+        assertThat(tracker.isDuplicate("s", 14)).isFalse();
+    }
+
+    @Test
+    void positionsReusedByTheRingDoNotReportStaleSequences() {
+        received("s", 5, 130, 134); // 5 + WINDOW occupe la position de 5, sautée en passant à 134
+
+        assertThat(tracker.isDuplicate("s", 5 + WINDOW)).isFalse();
+        assertThat(tracker.isDuplicate("s", 130)).isTrue();
+        // Trop ancien : laissé à l'index unique en base
+        assertThat(tracker.isDuplicate("s", 5)).isFalse();
+
+        received("s", 134 + 10 * WINDOW); // saut au-delà de la fenêtre : tout est oublié
+        assertThat(tracker.isDuplicate("s", 134)).isFalse();
+        assertThat(tracker.isDuplicate("s", 134 + 10 * WINDOW)).isTrue();
+    }
+
+    @Test
+    void windowIsLoadedOnceFromStoredRowsIncludingCompactedRuns() {
+        when(repo.findLatestSequences(eq("s"), any(Limit.class))).thenReturn(List.of(row(20, 3), row(7, 1)));
+
+        assertThat(tracker.isDuplicate("s", 22)).isTrue();
+        assertThat(tracker.isDuplicate("s", 21)).isTrue();
+        assertThat(tracker.isDuplicate("s", 7)).isTrue();
+        assertThat(tracker.isDuplicate("s", 8)).isFalse();
+        assertThat(tracker.isDuplicate("s", 23)).isFalse();
+        verify(repo, times(1)).findLatestSequences(eq("s"), any(Limit.class));
+    }
+
+    @Test
+    void handoffMergesSequencesSeenOnBothNodes() {
+        received("s", 1, 2, 3);
+        Map<String, SequenceTracker.SequenceSnapshot> exported = tracker.export(id -> true);
+        assertThat(tracker.export(id -> true)).isEmpty();
+
+        SequenceTracker target = new SequenceTracker(repo, WINDOW, 600);
+        target.onEvent(event("s", 4));
+        target.restore("s", exported.get("s"));
+
+        assertThat(target.isDuplicate("s", 1)).isTrue();
+        assertThat(target.isDuplicate("s", 4)).isTrue();
+        assertThat(target.isDuplicate("s", 5)).isFalse();
+    }
+
+    @Test
+    void forgottenSequencesCanBeSentAgain() {
+        received("s", 1, 2, 3, 4, 5);
+
+        // Ligne compactée 2..4 perdue à l'écriture (write-behind)
+        tracker.forget("s", 2, 3);
+        tracker.forget("other", 2, 1);
+
+        assertThat(tracker.isDuplicate("s", 1)).isTrue();
+        assertThat(tracker.isDuplicate("s", 2)).isFalse();
+        assertThat(tracker.isDuplicate("s", 4)).isFalse();
+        assertThat(tracker.isDuplicate("s", 5)).isTrue();
+
+        received("s", 3);
+        assertThat(tracker.isDuplicate("s", 3)).isTrue();
+    }
+
+    private void received(String sessionId, long... seqs) {
+        for (long seq : seqs) {
+            tracker.onEvent(event(sessionId, seq));
+        }
+    }
+
+    private static EmotionEvent event(String sessionId, long seq) {
+        return EmotionEvent.builder()
+                .sessionId(sessionId)
+                .timestamp(OffsetDateTime.now())
+                .seq(seq)
+                .build();
+    }
+
+    private static EmotionEventRepository.SequenceRange row(long seq, int repeatCount) {
+        return new EmotionEventRepository.SequenceRange() {
+            @Override
+            public Long getSeq() {
+                return seq;
+            }
+
+            @Override
+            public int getRepeatCount() {
+                return repeatCount;
+            }
+        };
+    }
+}
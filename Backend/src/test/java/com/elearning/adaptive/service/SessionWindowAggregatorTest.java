@@ -0,0 +1,130 @@
+package com.elearning.adaptive.service;
+
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Statistiques en mémoire (quantiles, lissage, visage détecté) et transfert des fenêtres entre
+ * nœuds (mode cluster) : aucune perte, fusion avec les événements reçus pendant le transfert.
+ */
+class SessionWindowAggregatorTest {
+
+    private static final String SESSION = "sess-handoff";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+    @Test
+    void quantilesTrendAndFaceRatioFromTheWindow() {
+        SessionWindowAggregator aggregator = runningSinceLongAgo();
+        // 60 s à 10 images/s : 0.2 puis, sur les 10 dernières secondes, 0.9 ; un visage perdu sur 4
+        for (int i = 600; i > 0; i--) {
+            double score = i <= 100 ? 0.9 : 0.2;
+            aggregator.onEvent(event(now.minusNanos(i * 100_000_000L), score, i % 4 != 0));
+        }
+
+        SessionStats stats = aggregator.stats(SESSION, 60);
+
+        assertThat(stats.getTotalEvents()).isEqualTo(600);
+        assertThat(stats.getP50Frustration()).isCloseTo(0.2, offset(0.02));
+        assertThat(stats.getP90Frustration()).isCloseTo(0.9, offset(0.02));
+        assertThat(stats.getFaceDetectedRatio()).isEqualTo(0.75);
+        // Demi-vie de 30 s : 10 s de 0.9 remontent le niveau d'environ 0.7 * (1 - 2^(-1/3)) ;
+        // la moyenne (0.317) ne distingue pas la hausse
+        assertThat(stats.getTrendFrustration()).isCloseTo(0.2 + 0.7 * (1 - Math.pow(2, -1.0 / 3)), offset(0.01));
+        assertThat(stats.getTrendSlopePerSecond()).isPositive();
+    }
+
+    @Test
+    void memoryPerSessionDoesNotGrowWithTheFrameRate() {
+        SessionWindowAggregator aggregator = runningSinceLongAgo();
+        for (int i = 0; i < 30_000; i++) { // 100 images/s pendant 300 s
+            aggregator.onEvent(event(now.minusNanos(i * 10_000_000L), (i % 100) / 100.0));
+        }
+
+        SessionWindowAggregator.WindowSnapshot snapshot = aggregator.export(id -> true).get(SESSION);
+
+        // (300 / 10 + 1) tranches d'esquisse de 50 classes, 300 tranches de stats
+        assertThat(snapshot.sliceBins()).hasSizeLessThanOrEqualTo(31 * 50);
+        assertThat(snapshot.buckets()).hasSizeLessThanOrEqualTo(300);
+    }
+
+    @Test
+    void windowSurvivesHandoffThroughJson() throws Exception {
+        SessionWindowAggregator from = runningSinceLongAgo();
+        SessionWindowAggregator to = new SessionWindowAggregator(300, 1, 10, 50, 30);
+        for (int i = 0; i < 100; i++) {
+            from.onEvent(event(now.minusSeconds(i), i % 2 == 0 ? 0.9 : 0.2));
+        }
+        SessionStats before = from.stats(SESSION, 120);
+
+        // Le destinataire vient de devenir propriétaire : sans fenêtre, il renverrait vers la base
+        to.ownershipChanged(id -> true);
+        assertThat(to.stats(SESSION, 120)).isNull();
+
+        Map<String, SessionWindowAggregator.WindowSnapshot> exported = from.export(SESSION::equals);
+        String json = objectMapper.writeValueAsString(exported.get(SESSION));
+        to.restore(SESSION, objectMapper.readValue(json, SessionWindowAggregator.WindowSnapshot.class));
+
+        assertThat(to.stats(SESSION, 120)).isEqualTo(before);
+        assertThat(before.getP90Frustration()).isNotNull();
+        assertThat(from.sessionCount()).isZero();
+    }
+
+    @Test
+    void restoreMergesEventsReceivedMeanwhile() {
+        SessionWindowAggregator from = runningSinceLongAgo();
+        SessionWindowAggregator to = new SessionWindowAggregator(300, 1, 10, 50, 30);
+        to.ownershipChanged(id -> true);
+        from.onEvent(event(now.minusSeconds(30), 0.4));
+        from.onEvent(event(now.minusSeconds(2), 0.6));
+        to.onEvent(event(now.minusSeconds(1), 0.95));
+        to.onEvent(event(now.minusSeconds(2), 0.8));
+
+        to.restore(SESSION, from.export(id -> true).get(SESSION));
+
+        SessionStats stats = to.stats(SESSION, 60);
+        assertThat(stats.getTotalEvents()).isEqualTo(4);
+        assertThat(stats.getMaxFrustration()).isEqualTo(0.95);
+        assertThat(stats.getAverageFrustration()).isCloseTo((0.4 + 0.6 + 0.95 + 0.8) / 4, offset(1e-9));
+    }
+
+    @Test
+    void sessionsOwnedElsewhereFallBackToDatabase() {
+        SessionWindowAggregator aggregator = runningSinceLongAgo();
+        aggregator.onEvent(event(now.minusSeconds(1), 0.5));
+
+        aggregator.ownershipChanged(id -> !SESSION.equals(id));
+
+        assertThat(aggregator.stats(SESSION, 60)).isNull();
+        assertThat(aggregator.stats("other", 60)).isNull(); // couverture repartie de maintenant
+    }
+
+    private SessionWindowAggregator runningSinceLongAgo() {
+        SessionWindowAggregator aggregator = new SessionWindowAggregator(300, 1, 10, 50, 30);
+        ReflectionTestUtils.setField(aggregator, "coveredSinceEpochSecond", 0L);
+        // Horloge figée : la fenêtre ne glisse pas d'une seconde pendant le test
+        ReflectionTestUtils.setField(aggregator, "clock", Clock.fixed(now.toInstant(), ZoneOffset.UTC));
+        return aggregator;
+    }
+
+    private static EmotionEvent event(OffsetDateTime at, double score) {
+        return event(at, score, true);
+    }
+
+    private static EmotionEvent event(OffsetDateTime at, double score, boolean face) {
+        return EmotionEvent.builder().sessionId(SESSION).timestamp(at).frustrationScore(score)
+                .faceDetected(face).build();
+    }
+}
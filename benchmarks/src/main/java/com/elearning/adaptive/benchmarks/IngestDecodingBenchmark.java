@@ -0,0 +1,70 @@
+package com.elearning.adaptive.benchmarks;
+
+import com.elearning.adaptive.codec.EmotionFrameCodec;
+import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage des requêtes d'ingestion : JSON (ObjectMapper configuré comme par Spring Boot),
+ * analyse des horodatages ISO-8601 et format binaire {@link EmotionFrameCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestDecodingBenchmark {
+
+    private static final TypeReference<List<EmotionEventDTO>> EVENT_LIST = new TypeReference<>() {};
+
+    @Param({"1", "500"})
+    public int batchSize;
+
+    private ObjectMapper mapper;
+    private byte[] json;
+    private byte[] binary;
+    private String[] timestamps;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        OffsetDateTime base = OffsetDateTime.parse("2026-01-05T09:00:00.000Z");
+        List<EmotionEventDTO> events = new ArrayList<>(batchSize);
+        timestamps = new String[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            timestamps[i] = base.plusNanos(i * 100_000_000L).toString();
+            events.add(new EmotionEventDTO("sess-bench", timestamps[i], (i % 100) / 100.0, true,
+                    "{\"emotions\":[0.1,0.05,0.05,0.3,0.2,0.1,0.2],\"bbox\":[120,80,96,96],\"fps\":10}"));
+        }
+        json = mapper.writeValueAsBytes(events);
+        binary = EmotionFrameCodec.encode(events);
+    }
+
+    @Benchmark
+    public List<EmotionEventDTO> jsonDeserialize() throws Exception {
+        return mapper.readValue(json, EVENT_LIST);
+    }
+
+    @Benchmark
+    public long parseTimestamps() {
+        long sum = 0;
+        for (String ts : timestamps) {
+            sum += OffsetDateTime.parse(ts).toInstant().toEpochMilli();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<EmotionEventDTO> binaryDecode() {
+        return EmotionFrameCodec.decode(binary);
+    }
+}
@@ -0,0 +1,48 @@
+package com.elearning.adaptive.benchmarks;
+
+import com.elearning.adaptive.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature et vérification des JWT (HS256).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = newJwtUtil();
+        token = jwtUtil.generateToken("student@bench.io", "STUDENT");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("student@bench.io", "STUDENT");
+    }
+
+    @Benchmark
+    public Claims validateAndGetClaims() {
+        return jwtUtil.validateAndGetClaims(token);
+    }
+
+    static JwtUtil newJwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        Stubs.setField(jwtUtil, "secret", SECRET);
+        Stubs.setField(jwtUtil, "expirationMs", 3_600_000L);
+        Stubs.invoke(jwtUtil, "init");
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,93 @@
+package com.elearning.adaptive.benchmarks;
+
+import com.elearning.adaptive.entity.Role;
+import com.elearning.adaptive.entity.User;
+import com.elearning.adaptive.repository.UserRepository;
+import com.elearning.adaptive.security.JwtAuthenticationFilter;
+import com.elearning.adaptive.security.JwtUtil;
+import com.elearning.adaptive.security.TokenAuthenticator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chemin complet de {@link JwtAuthenticationFilter} pour une requête authentifiée, avec un
+ * {@link UserRepository} en mémoire qui simule la latence d'une requête base.
+ * Compare le mode {@code stateless} (caches) au mode {@code lookup} (lecture à chaque requête).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    @Param({"stateless", "lookup"})
+    public String authMode;
+
+    // Latence simulée d'un findByEmail (aller-retour base), en microsecondes
+    @Param({"0", "200"})
+    public long repositoryLatencyMicros;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+    private final LongAdder lookups = new LongAdder();
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = JwtBenchmark.newJwtUtil();
+        User user = User.builder()
+                .id(42L)
+                .email("student@bench.io")
+                .fullName("Bench")
+                .passwordHash("x")
+                .role(Role.STUDENT)
+                .build();
+        InvocationHandler findByEmail = (proxy, method, args) -> {
+            lookups.increment();
+            if (repositoryLatencyMicros > 0) {
+                long end = System.nanoTime() + repositoryLatencyMicros * 1000;
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+            }
+            return user.getEmail().equals(args[0]) ? Optional.of(user) : Optional.empty();
+        };
+        UserRepository users = Stubs.repository(UserRepository.class, Map.of("findByEmail", findByEmail));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenAuthenticator authenticator = new TokenAuthenticator(jwtUtil, users, registry, authMode, 10_000, 10_000, 30);
+        filter = new JwtAuthenticationFilter(authenticator, registry);
+
+        request = new MockHttpServletRequest("POST", "/api/sessions/sess-bench/emotions");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(user.getEmail(), "STUDENT"));
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> {
+        };
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        filter.doFilter(request, response, chain);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    @TearDown
+    public void report() {
+        System.out.println("\nUserRepository.findByEmail calls: " + lookups.sum());
+    }
+}
@@ -0,0 +1,73 @@
+package com.elearning.adaptive.benchmarks;
+
+import com.elearning.adaptive.dto.SessionStats;
+import com.elearning.adaptive.entity.EmotionEvent;
+import com.elearning.adaptive.service.EmotionIngestListener;
+import com.elearning.adaptive.service.EmotionMetrics;
+import com.elearning.adaptive.service.EmotionServiceImpl;
+import com.elearning.adaptive.service.SessionWindowAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code EmotionServiceImpl.getSessionStats} sur des sessions de tailles réalistes
+ * (10 événements/s pendant la fenêtre), et coût d'ingestion d'un événement dans les agrégats.
+ * Le coût des stats doit rester indépendant du nombre d'événements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionStatsBenchmark {
+
+    private static final String SESSION_ID = "sess-bench";
+
+    @Param({"60", "300"})
+    public int windowSeconds;
+
+    private SessionWindowAggregator aggregator;
+    private EmotionServiceImpl service;
+    private EmotionEvent event;
+
+    @Setup
+    public void setUp() {
+        aggregator = new SessionWindowAggregator(300, 1, 10, 50, 30);
+        // Fait comme si le processus tournait depuis plus longtemps que l'horizon
+        Stubs.setField(aggregator, "coveredSinceEpochSecond", 0L);
+        // Seul l'agrégateur sert au calcul des stats dans la fenêtre en mémoire
+        service = new EmotionServiceImpl(null, null, null, aggregator, List.<EmotionIngestListener>of(), null,
+                new EmotionMetrics(new SimpleMeterRegistry(), null, aggregator), null, null, null);
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int i = 0; i < windowSeconds * 10; i++) {
+            aggregator.onEvent(event(now.minusNanos(i * 100_000_000L), (i % 100) / 100.0));
+        }
+        event = event(now, 0.8);
+    }
+
+    @Benchmark
+    public SessionStats getSessionStats() {
+        return service.getSessionStats(SESSION_ID, windowSeconds);
+    }
+
+    @Benchmark
+    public void ingestEvent() {
+        aggregator.onEvent(event);
+    }
+
+    private static EmotionEvent event(OffsetDateTime ts, double score) {
+        return EmotionEvent.builder()
+                .sessionId(SESSION_ID)
+                .timestamp(ts)
+                .frustrationScore(score)
+                .faceDetected(true)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.elearning.adaptive.benchmarks;
+
+import com.elearning.adaptive.repository.RecommendationTriggerRepository;
+import com.elearning.adaptive.service.FrustrationTriggerEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'évaluation d'un événement par le moteur de triggers, avec des dizaines de milliers
+ * de sessions suivies simultanément (événements répartis en tourniquet, 10 par seconde et par session).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TriggerEngineBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int sessions;
+
+    private FrustrationTriggerEngine engine;
+    private String[] sessionIds;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        long tick;
+    }
+
+    @Setup
+    public void setUp() {
+        InvocationHandler save = (proxy, method, args) -> args[0];
+        RecommendationTriggerRepository repo = Stubs.repository(RecommendationTriggerRepository.class,
+                Map.of("save", save));
+        engine = new FrustrationTriggerEngine(repo, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, 5, 0.7, 0.5, 10, 0.03, 0.4, 120, 600, 10_000);
+        sessionIds = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionIds[i] = "sess-" + i;
+        }
+    }
+
+    @Benchmark
+    public int evaluate(Cursor cursor) {
+        int i = cursor.next;
+        if (++cursor.next == sessions) {
+            cursor.next = 0;
+            cursor.tick++;
+        }
+        long millis = 1_700_000_000_000L + cursor.tick * 100;
+        // Score en dents de scie lente : franchit régulièrement les seuils
+        double score = ((cursor.tick + i) % 600) / 600.0;
+        return engine.evaluate(sessionIds[i], millis, score);
+    }
+}
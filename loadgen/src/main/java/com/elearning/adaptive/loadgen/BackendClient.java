@@ -0,0 +1,148 @@
+package com.elearning.adaptive.loadgen;
+
+import com.elearning.adaptive.codec.EmotionFrameCodec;
+import com.elearning.adaptive.dto.AuthTokensDTO;
+import com.elearning.adaptive.dto.EmotionEventDTO;
+import com.elearning.adaptive.dto.SessionDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Appels HTTP du client webcam : authentification ({@code AuthController}), cycle de vie des
+ * sessions et ingestion (JSON ou binaire). Un seul {@link HttpClient} partagé par tous les étudiants.
+ */
+final class BackendClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper json = JsonMapper.builder()
+            .findAndAddModules()
+            .serializationInclusion(JsonInclude.Include.NON_NULL) // champs optionnels absents, comme le client web
+            .build();
+
+    BackendClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * Réponse brute : statut, corps et délai demandé par un 503 (secondes, 0 sinon).
+     */
+    record Reply(int status, byte[] body, long retryAfterSeconds) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    Reply register(String fullName, String email, String password) throws IOException, InterruptedException {
+        return postJson("/api/auth/register", null, Map.of("fullName", fullName, "email", email, "password", password));
+    }
+
+    Reply login(String email, String password) throws IOException, InterruptedException {
+        return postJson("/api/auth/login", null, Map.of("email", email, "password", password));
+    }
+
+    Reply refresh(String refreshToken) throws IOException, InterruptedException {
+        return postJson("/api/auth/refresh", null, Map.of("refreshToken", refreshToken));
+    }
+
+    Reply startSession(String token, long lessonId) throws IOException, InterruptedException {
+        return postJson("/api/sessions", token, Map.of("lessonId", lessonId));
+    }
+
+    Reply endSession(String token, String sessionId) throws IOException, InterruptedException {
+        return send(request("/api/sessions/" + sessionId + "/end", token)
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    /**
+     * Envoie des images : un lot ({@code /emotions}), ou une seule image ({@code /emotion}) si
+     * {@code single}.
+     */
+    Reply ingest(String token, String sessionId, List<EmotionEventDTO> events, boolean binary, boolean single)
+            throws IOException, InterruptedException {
+        String path = "/api/sessions/" + sessionId + (single ? "/emotion" : "/emotions");
+        HttpRequest.Builder builder = request(path, token);
+        if (binary) {
+            builder.header("Content-Type", EmotionFrameCodec.MEDIA_TYPE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(EmotionFrameCodec.encode(events)));
+        } else {
+            Object body = single ? events.get(0) : events;
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)));
+        }
+        return send(builder.build());
+    }
+
+    AuthTokensDTO tokens(Reply reply) throws IOException {
+        return json.readValue(reply.body(), AuthTokensDTO.class);
+    }
+
+    SessionDTO session(Reply reply) throws IOException {
+        return json.readValue(reply.body(), SessionDTO.class);
+    }
+
+    /**
+     * Acquittement d'une réponse d'ingestion ({@code BatchIngestResult}, ou réponse unitaire :
+     * un accepté) et cadence conseillée par le serveur (0 si absente).
+     */
+    IngestAck ack(Reply reply, int sent) throws IOException {
+        if (!reply.ok()) {
+            return new IngestAck(0, 0, 0);
+        }
+        JsonNode node = json.readTree(reply.body());
+        long nextIntervalMs = node.path("nextIntervalMs").asLong(0);
+        if (node.has("accepted")) {
+            return new IngestAck(node.get("accepted").asInt(), node.get("rejected").asInt(), nextIntervalMs);
+        }
+        return new IngestAck(sent, 0, nextIntervalMs);
+    }
+
+    record IngestAck(int accepted, int rejected, long nextIntervalMs) {
+    }
+
+    private Reply postJson(String path, String token, Object body) throws IOException, InterruptedException {
+        return send(request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)))
+                .build());
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private Reply send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        long retryAfter = response.headers().firstValue("Retry-After").map(v -> {
+            try {
+                return Long.parseLong(v.trim());
+            } catch (NumberFormatException e) {
+                return 1L;
+            }
+        }).orElse(0L);
+        return new Reply(response.statusCode(), response.body(), retryAfter);
+    }
+}
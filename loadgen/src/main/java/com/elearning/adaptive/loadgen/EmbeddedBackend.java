@@ -0,0 +1,71 @@
+package com.elearning.adaptive.loadgen;
+
+import com.elearning.adaptive.AdaptiveLearningAiApplication;
+import com.elearning.adaptive.entity.Course;
+import com.elearning.adaptive.entity.Lesson;
+import com.elearning.adaptive.repository.LessonRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Backend démarré dans le processus du générateur, sur un port aléatoire de la boucle locale.
+ * La base est celle de la configuration habituelle (DB_HOST, DB_NAME, DB_USER, DB_PASS :
+ * Postgres local de développement) ; aucun autre service n'est nécessaire. Le port de gestion
+ * est désactivé, le secret JWT est propre au tir et les journaux du backend sont limités aux
+ * avertissements pour laisser la console au rapport.
+ */
+final class EmbeddedBackend implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedBackend(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    static EmbeddedBackend start() {
+        // Arguments de ligne de commande : prioritaires sur application.yaml
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AdaptiveLearningAiApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--server.address=127.0.0.1",
+                        "--management.server.port=-1",
+                        "--app.jwt.secret=loadgen-" + UUID.randomUUID(),
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN", // la sortie console est celle du rapport
+                        "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+                        "--logging.level.org.hibernate.tool.schema=OFF");
+        return new EmbeddedBackend(context);
+    }
+
+    String baseUrl() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+
+    /**
+     * Crée un cours et une leçon de test pour les sessions du tir.
+     */
+    long createLesson(String runId) {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        EntityManager em = context.getBean(EntityManager.class);
+        return tx.execute(status -> {
+            OffsetDateTime now = OffsetDateTime.now();
+            Course course = Course.builder().title("Load test " + runId).createdAt(now).build();
+            em.persist(course);
+            Lesson lesson = Lesson.builder().title("Load test " + runId).course(course).createdAt(now).build();
+            return context.getBean(LessonRepository.class).save(lesson).getId();
+        });
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
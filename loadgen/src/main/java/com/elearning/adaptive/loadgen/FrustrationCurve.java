@@ -0,0 +1,102 @@
+package com.elearning.adaptive.loadgen;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Profils de frustration d'un étudiant synthétique au cours de sa session (scores dans [0, 1]).
+ * Chaque étudiant tire sa propre phase et son propre bruit : deux étudiants du même profil ne
+ * produisent pas la même série.
+ */
+public enum FrustrationCurve {
+
+    /** Étudiant à l'aise : bas niveau bruité. */
+    CALM {
+        @Override
+        Signal create(Random rnd) {
+            double base = 0.1 + rnd.nextDouble() * 0.15;
+            return t -> base + rnd.nextGaussian() * 0.05;
+        }
+    },
+
+    /** Alternance difficulté / compréhension, période de 1 à 3 minutes. */
+    SINE {
+        @Override
+        Signal create(Random rnd) {
+            double period = 60 + rnd.nextDouble() * 120;
+            double phase = rnd.nextDouble() * 2 * Math.PI;
+            return t -> 0.45 + 0.35 * Math.sin(2 * Math.PI * t / period + phase) + rnd.nextGaussian() * 0.05;
+        }
+    },
+
+    /** Frustration croissante sur 5 minutes puis retombée (exercice bloquant, puis déblocage). */
+    RAMP {
+        @Override
+        Signal create(Random rnd) {
+            double offset = rnd.nextDouble() * 300;
+            return t -> 0.1 + 0.85 * (((t + offset) % 300) / 300) + rnd.nextGaussian() * 0.03;
+        }
+    },
+
+    /** Base calme avec pics de 5 à 15 s (déclencheurs de recommandation). */
+    SPIKES {
+        @Override
+        Signal create(Random rnd) {
+            double[] state = {-1, 0}; // fin du pic en cours, instant précédent
+            return t -> {
+                double dt = t - state[1];
+                state[1] = t;
+                if (t < state[0]) {
+                    return 0.8 + rnd.nextGaussian() * 0.08;
+                }
+                if (rnd.nextDouble() < dt / 60) { // un pic par minute en moyenne
+                    state[0] = t + 5 + rnd.nextDouble() * 10;
+                }
+                return 0.2 + rnd.nextGaussian() * 0.05;
+            };
+        }
+    },
+
+    /** Marche aléatoire bornée. */
+    RANDOM_WALK {
+        @Override
+        Signal create(Random rnd) {
+            double[] level = {0.2 + rnd.nextDouble() * 0.5};
+            return t -> level[0] = clamp(level[0] + rnd.nextGaussian() * 0.03);
+        }
+    };
+
+    /**
+     * Série d'un étudiant ; appelée avec des instants croissants (secondes depuis le début de session).
+     */
+    interface Signal {
+        double at(double tSeconds);
+    }
+
+    abstract Signal create(Random rnd);
+
+    /**
+     * Score borné à [0, 1] pour l'instant {@code tSeconds}.
+     */
+    static double sample(Signal signal, double tSeconds) {
+        return clamp(signal.at(tSeconds));
+    }
+
+    static FrustrationCurve of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown curve: " + name);
+        }
+    }
+
+    static String[] names() {
+        return Arrays.stream(values()).map(c -> c.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                .toArray(String[]::new);
+    }
+
+    private static double clamp(double v) {
+        return Math.max(0.0, Math.min(1.0, v));
+    }
+}
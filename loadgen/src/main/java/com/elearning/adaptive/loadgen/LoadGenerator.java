@@ -0,0 +1,120 @@
+package com.elearning.adaptive.loadgen;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point d'entrée du tir : démarre (ou cible) le backend, lance les étudiants synthétiques sur des
+ * threads virtuels en montée progressive, affiche une ligne de progression par intervalle puis la
+ * synthèse (débit, latences, erreurs), éventuellement écrite en JSON ({@code --report-json}).
+ * Code de sortie 1 si aucune requête d'ingestion n'a abouti.
+ * <pre>
+ * java -jar loadgen/target/loadgen.jar --students=200 --duration-seconds=120 --fps=15
+ * java -jar loadgen/target/loadgen.jar --url=http://localhost:8080 --lesson-id=1 --format=binary
+ * java -jar loadgen/target/loadgen.jar --batch-ms=0 --fps=5 --meta-bytes=512 --report-json=run.json
+ * java -jar loadgen/target/loadgen.jar --adaptive-sampling=true --curve=calm
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+            System.out.print(LoadOptions.usage());
+            return;
+        }
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.usage());
+            System.exit(2);
+            return;
+        }
+
+        EmbeddedBackend backend = options.embedded() ? EmbeddedBackend.start() : null;
+        Map<String, Object> summary;
+        try {
+            String url = backend != null ? backend.baseUrl() : options.url();
+            long lessonId = options.lessonId() != null ? options.lessonId() : backend.createLesson(options.runId());
+            summary = run(options, url, lessonId);
+        } finally {
+            if (backend != null) {
+                backend.close();
+            }
+        }
+
+        String report = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build()
+                .writeValueAsString(summary);
+        System.out.println(report);
+        if (options.reportJson() != null) {
+            writeReport(options.reportJson(), report);
+        }
+        System.exit(((Number) summary.get("requests")).longValue() > 0
+                && ((Number) summary.get("eventsAccepted")).longValue() > 0 ? 0 : 1);
+    }
+
+    private static Map<String, Object> run(LoadOptions options, String url, long lessonId) throws InterruptedException {
+        System.out.printf("Target %s, lesson %d, %d students, %.1f fps, %d event(s) per request every %d ms, %s%n",
+                url, lessonId, options.students(), options.fps(), options.eventsPerRequest(),
+                options.requestIntervalMs(), options.format());
+
+        BackendClient client = new BackendClient(url);
+        LoadRecorder recorder = new LoadRecorder(options.requestIntervalMs());
+        long start = System.nanoTime();
+        long rampNanos = TimeUnit.SECONDS.toNanos(options.rampUpSeconds());
+        long deadline = start + rampNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+
+        ExecutorService students = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < options.students(); i++) {
+            long startAt = start + rampNanos * i / options.students();
+            students.execute(new SyntheticStudent(i, options, client, recorder, lessonId, startAt, deadline));
+        }
+        students.shutdown();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.reportIntervalSeconds());
+        long last = start;
+        while (!students.awaitTermination(Math.max(1, intervalNanos - (System.nanoTime() - last)), TimeUnit.NANOSECONDS)) {
+            long now = System.nanoTime();
+            if (now - last >= intervalNanos) {
+                System.out.println(recorder.intervalLine(TimeUnit.NANOSECONDS.toSeconds(now - start),
+                        (now - last) / 1e9, options.students()));
+                last = now;
+            }
+        }
+        long end = System.nanoTime();
+        // Dernier intervalle, partiel : compté dans la synthèse, affiché s'il n'est pas négligeable
+        String tail = recorder.intervalLine(TimeUnit.NANOSECONDS.toSeconds(end - start),
+                Math.max(1e-3, (end - last) / 1e9), options.students());
+        if (end - last >= intervalNanos / 5) {
+            System.out.println(tail);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("target", url);
+        summary.put("options", options);
+        // Moyennes sur tout le tir, montée en charge comprise (régime établi : lignes d'intervalle)
+        summary.putAll(recorder.summary((end - start) / 1e9));
+        return summary;
+    }
+
+    private static void writeReport(String path, String report) {
+        try {
+            Files.writeString(Path.of(path), report);
+        } catch (IOException e) {
+            System.err.println("Could not write " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.elearning.adaptive.loadgen;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paramètres d'un tir, lus en {@code --clé=valeur}.
+ *
+ * @param url               backend cible ; null : backend embarqué dans le processus
+ * @param lessonId          leçon des sessions ; null en mode embarqué : une leçon de test est créée
+ * @param batchMs           période d'envoi par étudiant ; 0 : un POST par image (/emotion)
+ * @param curve             profil de frustration, ou {@code mixed} (un profil aléatoire par étudiant)
+ * @param faceLossPerMinute fréquence moyenne des pertes de visage
+ * @param faceLossSeconds   durée moyenne d'une perte de visage (loi exponentielle)
+ * @param metaBytes         taille visée de metaJson (0 : absent)
+ * @param adaptiveSampling  suivre la cadence conseillée par le serveur ({@code nextIntervalMs}) :
+ *                          {@code fps} devient la cadence maximale
+ */
+public record LoadOptions(
+        String url,
+        Long lessonId,
+        int students,
+        int rampUpSeconds,
+        int durationSeconds,
+        double fps,
+        int batchMs,
+        String curve,
+        double faceLossPerMinute,
+        double faceLossSeconds,
+        int metaBytes,
+        String format,
+        String runId,
+        String password,
+        int reportIntervalSeconds,
+        String reportJson,
+        long seed,
+        boolean endSessions,
+        boolean adaptiveSampling
+) {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("url", "");
+        DEFAULTS.put("lesson-id", "");
+        DEFAULTS.put("students", "50");
+        DEFAULTS.put("ramp-up-seconds", "10");
+        DEFAULTS.put("duration-seconds", "60");
+        DEFAULTS.put("fps", "10");
+        DEFAULTS.put("batch-ms", "1000");
+        DEFAULTS.put("curve", "mixed");
+        DEFAULTS.put("face-loss-per-minute", "1");
+        DEFAULTS.put("face-loss-seconds", "2");
+        DEFAULTS.put("meta-bytes", "64");
+        DEFAULTS.put("format", "json");
+        DEFAULTS.put("run-id", "");
+        DEFAULTS.put("password", "loadgen-password");
+        DEFAULTS.put("report-interval-seconds", "5");
+        DEFAULTS.put("report-json", "");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("end-sessions", "true");
+        DEFAULTS.put("adaptive-sampling", "false");
+    }
+
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+            values.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+
+        String runId = values.get("run-id").isBlank()
+                ? Long.toString(System.currentTimeMillis(), 36) : values.get("run-id");
+        LoadOptions options = new LoadOptions(
+                blankToNull(values.get("url")),
+                values.get("lesson-id").isBlank() ? null : Long.valueOf(values.get("lesson-id")),
+                Integer.parseInt(values.get("students")),
+                Integer.parseInt(values.get("ramp-up-seconds")),
+                Integer.parseInt(values.get("duration-seconds")),
+                Double.parseDouble(values.get("fps")),
+                Integer.parseInt(values.get("batch-ms")),
+                values.get("curve"),
+                Double.parseDouble(values.get("face-loss-per-minute")),
+                Double.parseDouble(values.get("face-loss-seconds")),
+                Integer.parseInt(values.get("meta-bytes")),
+                values.get("format"),
+                runId,
+                values.get("password"),
+                Integer.parseInt(values.get("report-interval-seconds")),
+                blankToNull(values.get("report-json")),
+                Long.parseLong(values.get("seed")),
+                Boolean.parseBoolean(values.get("end-sessions")),
+                Boolean.parseBoolean(values.get("adaptive-sampling")));
+        options.validate();
+        return options;
+    }
+
+    public static String usage() {
+        StringBuilder sb = new StringBuilder("Options (--name=value) et valeurs par défaut :\n");
+        DEFAULTS.forEach((name, value) -> sb.append("  --").append(name).append('=').append(value).append('\n'));
+        sb.append("Sans --url, le backend est démarré dans ce processus (base locale DB_HOST / DB_NAME...).\n");
+        sb.append("--curve : mixed, ").append(String.join(", ", FrustrationCurve.names())).append('\n');
+        sb.append("--format : json | binary (").append("application/x-emotion-frames").append(")\n");
+        return sb.toString();
+    }
+
+    public boolean embedded() {
+        return url == null;
+    }
+
+    /**
+     * Images par requête (au moins une).
+     */
+    public int eventsPerRequest() {
+        return batchMs == 0 ? 1 : Math.max(1, (int) Math.round(fps * batchMs / 1000.0));
+    }
+
+    /**
+     * Intervalle entre deux requêtes d'un même étudiant, en millisecondes.
+     */
+    public long requestIntervalMs() {
+        return batchMs == 0 ? Math.max(1, Math.round(1000.0 / fps)) : batchMs;
+    }
+
+    private void validate() {
+        if (students < 1 || durationSeconds < 1 || fps <= 0 || batchMs < 0 || rampUpSeconds < 0) {
+            throw new IllegalArgumentException("students, duration-seconds and fps must be positive");
+        }
+        if (!"json".equals(format) && !"binary".equals(format)) {
+            throw new IllegalArgumentException("--format must be json or binary");
+        }
+        if (!"mixed".equals(curve)) {
+            FrustrationCurve.of(curve);
+        }
+        if (url != null && lessonId == null) {
+            throw new IllegalArgumentException("--lesson-id is required with --url");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
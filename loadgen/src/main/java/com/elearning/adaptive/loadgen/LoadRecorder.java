@@ -0,0 +1,157 @@
+package com.elearning.adaptive.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs et histogrammes (HdrHistogram, microsecondes) d'un tir.
+ * <p>
+ * Les latences d'ingestion sont corrigées de l'omission coordonnée : si une réponse lente retarde
+ * les envois suivants d'un étudiant, les envois manqués sont comptés avec la latence qu'ils
+ * auraient subie ({@code recordValueWithExpectedInterval}).
+ */
+final class LoadRecorder {
+
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(5);
+
+    private final long expectedIntervalUs;
+    private final Recorder ingestInterval = new Recorder(MAX_LATENCY_US, 3);
+    private final Histogram ingestTotal = new Histogram(MAX_LATENCY_US, 3);
+    private final Map<String, Recorder> setup = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> setupTotal = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder framesSkipped = new LongAdder(); // non envoyées sur conseil du serveur
+    private final LongAdder eventsAccepted = new LongAdder();
+    private final LongAdder eventsRejected = new LongAdder();
+    // Statut HTTP, ou 0 pour une erreur d'E/S (connexion refusée, délai dépassé...)
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    final AtomicInteger activeStudents = new AtomicInteger();
+    final AtomicInteger failedStudents = new AtomicInteger();
+
+    // Dernier intervalle (thread du rapport)
+    private long lastRequests;
+    private long lastEvents;
+    private long lastErrors;
+
+    LoadRecorder(long expectedIntervalMs) {
+        this.expectedIntervalUs = TimeUnit.MILLISECONDS.toMicros(expectedIntervalMs);
+    }
+
+    void ingest(int status, long latencyNanos, int events, int accepted, int rejected) {
+        requests.increment();
+        eventsSent.add(events);
+        eventsAccepted.add(accepted);
+        eventsRejected.add(rejected);
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        ingestInterval.recordValueWithExpectedInterval(toMicros(latencyNanos), expectedIntervalUs);
+    }
+
+    void skipped(long frames) {
+        framesSkipped.add(frames);
+    }
+
+    /**
+     * Étape de préparation d'un étudiant (register, login, start, end...).
+     */
+    void setup(String step, int status, long latencyNanos) {
+        setup.computeIfAbsent(step, s -> new Recorder(MAX_LATENCY_US, 3)).recordValue(toMicros(latencyNanos));
+        if (status != 200 && status != 201 && status != 204) {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Ligne de progression de l'intervalle écoulé depuis l'appel précédent.
+     */
+    synchronized String intervalLine(long elapsedSeconds, double intervalSeconds, int targetStudents) {
+        Histogram h = ingestInterval.getIntervalHistogram();
+        ingestTotal.add(h);
+        for (Map.Entry<String, Recorder> entry : setup.entrySet()) {
+            setupTotal.computeIfAbsent(entry.getKey(), k -> new Histogram(MAX_LATENCY_US, 3))
+                    .add(entry.getValue().getIntervalHistogram());
+        }
+        long req = requests.sum();
+        long ev = eventsSent.sum();
+        long err = errors();
+        long dReq = req - lastRequests;
+        String line = String.format("[%4ds] students %d/%d | %8.1f req/s %9.1f ev/s | p50 %7.2f ms p99 %7.2f ms max %8.2f ms | errors %5.2f%%",
+                elapsedSeconds, activeStudents.get(), targetStudents,
+                dReq / intervalSeconds, (ev - lastEvents) / intervalSeconds,
+                ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(99)), ms(h.getMaxValue()),
+                dReq == 0 ? 0.0 : 100.0 * (err - lastErrors) / dReq);
+        lastRequests = req;
+        lastEvents = ev;
+        lastErrors = err;
+        return line;
+    }
+
+    /**
+     * Synthèse du tir (à appeler après le dernier {@link #intervalLine}).
+     */
+    synchronized Map<String, Object> summary(double measuredSeconds) {
+        Map<String, Object> s = new LinkedHashMap<>();
+        long req = requests.sum();
+        s.put("durationSeconds", round(measuredSeconds));
+        s.put("requests", req);
+        s.put("requestsPerSecond", round(req / measuredSeconds));
+        s.put("eventsSent", eventsSent.sum());
+        s.put("eventsAccepted", eventsAccepted.sum());
+        s.put("eventsRejected", eventsRejected.sum());
+        s.put("framesSkipped", framesSkipped.sum());
+        s.put("eventsPerSecond", round(eventsAccepted.sum() / measuredSeconds));
+        s.put("errorRatePercent", req == 0 ? 0.0 : round(100.0 * errors() / req));
+        s.put("failedStudents", failedStudents.get());
+        s.put("ingestLatencyMs", percentiles(ingestTotal));
+        Map<String, Object> steps = new TreeMap<>();
+        setupTotal.forEach((step, h) -> steps.put(step, percentiles(h)));
+        s.put("setupLatencyMs", steps);
+        Map<String, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status == 0 ? "io_error" : status.toString(), count.sum()));
+        s.put("statuses", byStatus);
+        return s;
+    }
+
+    // Réponses d'ingestion hors 2xx (503 compris : le backend a refusé la charge)
+    private long errors() {
+        long ok = 0;
+        for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+            if (entry.getKey() >= 200 && entry.getKey() < 300) {
+                ok += entry.getValue().sum();
+            }
+        }
+        return requests.sum() - ok;
+    }
+
+    private static Map<String, Object> percentiles(Histogram h) {
+        Map<String, Object> p = new LinkedHashMap<>();
+        p.put("count", h.getTotalCount());
+        p.put("p50", round(ms(h.getValueAtPercentile(50))));
+        p.put("p90", round(ms(h.getValueAtPercentile(90))));
+        p.put("p99", round(ms(h.getValueAtPercentile(99))));
+        p.put("p99.9", round(ms(h.getValueAtPercentile(99.9))));
+        p.put("max", round(ms(h.getMaxValue())));
+        return p;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(MAX_LATENCY_US, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
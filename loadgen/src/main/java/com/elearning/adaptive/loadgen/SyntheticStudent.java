@@ -0,0 +1,264 @@
+package com.elearning.adaptive.loadgen;
+
+import com.elearning.adaptive.dto.AuthTokensDTO;
+import com.elearning.adaptive.dto.EmotionEventDTO;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Étudiant synthétique : inscription, login, ouverture d'une session, puis flux webcam jusqu'à
+ * l'échéance, et clôture de la session.
+ * <p>
+ * Les envois suivent un échéancier fixe ({@code request-interval}) : une réponse lente ne fait
+ * pas rattraper les envois manqués en rafale, elle décale le suivant (les envois manqués sont
+ * comptés par {@link LoadRecorder}). Un 503 est respecté (Retry-After) comme le ferait le client
+ * web ; un 401 déclenche un refresh du token. Avec {@code adaptive-sampling}, les images sont
+ * espacées d'au moins la cadence conseillée par le serveur ({@code nextIntervalMs}). Chaque image
+ * porte un numéro de séquence croissant ({@code seq}) : les renvois sont écartés par le serveur.
+ */
+final class SyntheticStudent implements Runnable {
+
+    private static final int MAX_SETUP_ATTEMPTS = 20;
+    private static final float[] BBOX = {0.35f, 0.25f, 0.3f, 0.4f};
+
+    private final int index;
+    private final LoadOptions options;
+    private final BackendClient client;
+    private final LoadRecorder recorder;
+    private final long lessonId;
+    private final long startAtNanos;
+    private final long deadlineNanos;
+    private final Random rnd;
+    private final FrustrationCurve.Signal signal;
+    private final String meta;
+
+    private String token;
+    private String refreshToken;
+    private String sessionId;
+    // Perte de visage en cours jusqu'à cet instant (secondes de session)
+    private double faceLostUntil = -1;
+    private long nextSeq;
+
+    SyntheticStudent(int index, LoadOptions options, BackendClient client, LoadRecorder recorder,
+                     long lessonId, long startAtNanos, long deadlineNanos) {
+        this.index = index;
+        this.options = options;
+        this.client = client;
+        this.recorder = recorder;
+        this.lessonId = lessonId;
+        this.startAtNanos = startAtNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.rnd = new Random(options.seed() * 31 + index);
+        FrustrationCurve curve = "mixed".equals(options.curve())
+                ? FrustrationCurve.values()[rnd.nextInt(FrustrationCurve.values().length)]
+                : FrustrationCurve.of(options.curve());
+        this.signal = curve.create(rnd);
+        this.meta = meta(options.metaBytes());
+    }
+
+    @Override
+    public void run() {
+        LockSupport.parkNanos(startAtNanos - System.nanoTime());
+        try {
+            setUp();
+        } catch (IOException | IllegalStateException e) {
+            recorder.failedStudents.incrementAndGet();
+            System.err.println("student " + index + " setup failed: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        recorder.activeStudents.incrementAndGet();
+        try {
+            stream();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recorder.activeStudents.decrementAndGet();
+        }
+
+        if (options.endSessions()) {
+            try {
+                step("end", () -> client.endSession(token, sessionId));
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("student " + index + " could not end its session: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void setUp() throws IOException, InterruptedException {
+        String email = "loadgen-" + options.runId() + "-" + index + "@loadgen.local";
+        BackendClient.Reply registered = step("register",
+                () -> client.register("Load Student " + index, email, options.password()));
+        if (!registered.ok() && registered.status() != 400) { // 400 : déjà inscrit (tir rejoué)
+            throw new IllegalStateException("register returned " + registered.status());
+        }
+        BackendClient.Reply login = step("login", () -> client.login(email, options.password()));
+        if (!login.ok()) {
+            throw new IllegalStateException("login returned " + login.status());
+        }
+        useTokens(client.tokens(login));
+        BackendClient.Reply started = step("start", () -> client.startSession(token, lessonId));
+        if (!started.ok()) {
+            throw new IllegalStateException("session start returned " + started.status());
+        }
+        sessionId = client.session(started).id();
+    }
+
+    private void stream() throws InterruptedException {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.requestIntervalMs());
+        long frameNanos = Math.round(1e9 / options.fps());
+        int perRequest = options.eventsPerRequest();
+        boolean single = options.batchMs() == 0;
+        boolean binary = "binary".equals(options.format());
+        long sessionStart = System.nanoTime();
+        long next = sessionStart + intervalNanos;
+        long advisedNanos = 0; // cadence conseillée par le serveur (adaptive-sampling)
+
+        while (next < deadlineNanos) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // Images capturées pendant l'intervalle écoulé, horodatées à leur instant de capture,
+            // espacées d'au moins la cadence conseillée
+            long spacing = Math.max(frameNanos, advisedNanos);
+            int count = single ? 1 : Math.clamp(Math.round((double) intervalNanos / spacing), 1, perRequest);
+            recorder.skipped(perRequest - count);
+            List<EmotionEventDTO> events = new ArrayList<>(count);
+            long nowMillis = Instant.now().toEpochMilli();
+            for (int i = count - 1; i >= 0; i--) {
+                long ageNanos = i * spacing;
+                double t = (next - sessionStart - ageNanos) / 1e9;
+                events.add(frame(t, nowMillis - TimeUnit.NANOSECONDS.toMillis(ageNanos)));
+            }
+
+            long sent = System.nanoTime();
+            int status;
+            BackendClient.IngestAck ack = new BackendClient.IngestAck(0, 0, 0);
+            long retryAfter = 0;
+            try {
+                BackendClient.Reply reply = client.ingest(token, sessionId, events, binary, single);
+                if (reply.status() == 401 && renewToken()) {
+                    reply = client.ingest(token, sessionId, events, binary, single);
+                }
+                status = reply.status();
+                ack = client.ack(reply, events.size());
+                retryAfter = reply.status() == 503 ? reply.retryAfterSeconds() : 0;
+            } catch (IOException e) {
+                status = 0;
+            }
+            recorder.ingest(status, System.nanoTime() - sent, events.size(), ack.accepted(), ack.rejected());
+            if (options.adaptiveSampling() && ack.nextIntervalMs() > 0) {
+                advisedNanos = TimeUnit.MILLISECONDS.toNanos(ack.nextIntervalMs());
+            }
+
+            // Une image par requête : la cadence conseillée espace les requêtes elles-mêmes
+            long step = single ? Math.max(intervalNanos, advisedNanos) : intervalNanos;
+            if (single && step > intervalNanos) {
+                recorder.skipped(step / frameNanos - 1);
+            }
+            next += step;
+            long now = System.nanoTime();
+            if (retryAfter > 0) {
+                next = Math.max(next, now + TimeUnit.SECONDS.toNanos(retryAfter));
+            } else if (next < now) {
+                next = now; // en retard : pas de rafale de rattrapage
+            }
+        }
+    }
+
+    private EmotionEventDTO frame(double t, long epochMillis) {
+        if (t >= faceLostUntil && rnd.nextDouble() < options.faceLossPerMinute() / 60.0 / options.fps()) {
+            faceLostUntil = t - Math.log(1 - rnd.nextDouble()) * options.faceLossSeconds();
+        }
+        if (t < faceLostUntil) {
+            // Visage hors champ : pas de score exploitable, ni vecteur ni boîte
+            return new EmotionEventDTO(null, null, 0.0, false, meta, epochMillis, null, null, nextSeq++);
+        }
+        double score = FrustrationCurve.sample(signal, t);
+        return new EmotionEventDTO(null, null, score, true, meta, epochMillis, emotions(score), bbox(), nextSeq++);
+    }
+
+    // Vecteur (colère, dégoût, peur, joie, tristesse, surprise, neutre) cohérent avec le score
+    private float[] emotions(double score) {
+        double[] raw = {
+                score * 0.6, score * 0.1, score * 0.15, (1 - score) * 0.4,
+                score * 0.25, 0.05 + rnd.nextDouble() * 0.05, (1 - score) * 0.6
+        };
+        double sum = 0;
+        for (double v : raw) {
+            sum += v;
+        }
+        float[] vector = new float[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            vector[i] = (float) (raw[i] / sum);
+        }
+        return vector;
+    }
+
+    private float[] bbox() {
+        float[] box = BBOX.clone();
+        box[0] += (float) (rnd.nextGaussian() * 0.01);
+        box[1] += (float) (rnd.nextGaussian() * 0.01);
+        return box;
+    }
+
+    private boolean renewToken() throws InterruptedException {
+        try {
+            BackendClient.Reply reply = step("refresh", () -> client.refresh(refreshToken));
+            if (reply.ok()) {
+                useTokens(client.tokens(reply));
+                return true;
+            }
+        } catch (IOException e) {
+            // l'envoi suivant réessaiera
+        }
+        return false;
+    }
+
+    private void useTokens(AuthTokensDTO tokens) {
+        this.token = tokens.token();
+        this.refreshToken = tokens.refreshToken();
+    }
+
+    private interface Call {
+        BackendClient.Reply call() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Étape de préparation, réessayée tant que le backend répond 503 (BCrypt saturé à
+     * l'inscription d'une classe entière, par exemple).
+     */
+    private BackendClient.Reply step(String name, Call call) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            BackendClient.Reply reply = call.call();
+            recorder.setup(name, reply.status(), System.nanoTime() - start);
+            if (reply.status() != 503 || attempt == MAX_SETUP_ATTEMPTS) {
+                return reply;
+            }
+            long waitSeconds = Math.max(1, reply.retryAfterSeconds());
+            TimeUnit.MILLISECONDS.sleep(TimeUnit.SECONDS.toMillis(waitSeconds) + rnd.nextInt(500));
+        }
+    }
+
+    // {"client":"loadgen","pad":"xxx"} d'environ size octets (clés non typées, conservées en JSON)
+    private static String meta(int size) {
+        if (size <= 0) {
+            return null;
+        }
+        String prefix = "{\"client\":\"loadgen\",\"pad\":\"";
+        return prefix + "x".repeat(Math.max(0, size - prefix.length() - 2)) + "\"}";
+    }
+}